@@ -214,6 +214,105 @@ CREATE INDEX IF NOT EXISTS idx_usuarios_email ON usuarios(email);
 CREATE INDEX IF NOT EXISTS idx_usuarios_nombre_usuario ON usuarios(nombre_usuario);
 CREATE INDEX IF NOT EXISTS idx_usuarios_rol ON usuarios(rol);
 
+-- 16. TABLA DE EVENTOS DE REPRODUCCIÓN (proof-of-play, append-only)
+CREATE TABLE IF NOT EXISTS eventos_reproduccion (
+    id BIGSERIAL PRIMARY KEY,
+    contenido_id BIGINT NOT NULL,
+    codigo_pantalla VARCHAR(50) NOT NULL,
+    fecha_reproduccion TIMESTAMP NOT NULL,
+    duracion_segundos INTEGER,
+    fecha_recepcion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_eventos_reproduccion_contenido ON eventos_reproduccion(contenido_id, fecha_reproduccion);
+CREATE INDEX IF NOT EXISTS idx_eventos_reproduccion_pantalla ON eventos_reproduccion(codigo_pantalla, fecha_reproduccion);
+
+-- Una reproducción se identifica por pantalla e identificador del evento (los lotes reenviados no se duplican).
+-- Las filas anteriores reciben un identificador propio para no fusionar reproducciones distintas.
+ALTER TABLE eventos_reproduccion ADD COLUMN IF NOT EXISTS id_evento VARCHAR(64);
+UPDATE eventos_reproduccion SET id_evento = 'legado-' || id WHERE id_evento IS NULL;
+ALTER TABLE eventos_reproduccion ALTER COLUMN id_evento SET NOT NULL;
+DROP INDEX IF EXISTS uk_eventos_reproduccion_pantalla_contenido_fecha;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_eventos_reproduccion_pantalla_evento
+    ON eventos_reproduccion(codigo_pantalla, id_evento);
+
+-- 17. TABLA DE ARCHIVOS ALMACENADOS (deduplicados por SHA-256)
+CREATE TABLE IF NOT EXISTS archivos_almacenados (
+    ruta VARCHAR(200) PRIMARY KEY,
+    hash VARCHAR(64) NOT NULL,
+    tamano BIGINT NOT NULL,
+    tipo_mime VARCHAR(100),
+    referencias INTEGER NOT NULL DEFAULT 0,
+    fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_actualizacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_archivos_almacenados_referencias ON archivos_almacenados(referencias, fecha_actualizacion);
+
+ALTER TABLE contenidos ADD COLUMN IF NOT EXISTS hash_archivo VARCHAR(64);
+
+-- Los blobs se guardan por hash sin extensión (blobs/ab/cd/{hash}); las URLs de los contenidos no cambian.
+-- Se unen los registros de un mismo hash guardado con distintas extensiones, sumando sus referencias.
+INSERT INTO archivos_almacenados (ruta, hash, tamano, tipo_mime, referencias, fecha_creacion, fecha_actualizacion)
+SELECT regexp_replace(ruta, '\.[a-z0-9]{1,10}$', ''), hash, MAX(tamano), MAX(tipo_mime),
+       SUM(referencias), MIN(fecha_creacion), MAX(fecha_actualizacion)
+FROM archivos_almacenados
+WHERE ruta ~ '^blobs/.+/[0-9a-f]{64}\.[a-z0-9]{1,10}$'
+GROUP BY regexp_replace(ruta, '\.[a-z0-9]{1,10}$', ''), hash
+ON CONFLICT (ruta) DO UPDATE SET
+    referencias = archivos_almacenados.referencias + EXCLUDED.referencias,
+    fecha_actualizacion = GREATEST(archivos_almacenados.fecha_actualizacion, EXCLUDED.fecha_actualizacion);
+DELETE FROM archivos_almacenados WHERE ruta ~ '^blobs/.+/[0-9a-f]{64}\.[a-z0-9]{1,10}$';
+
+-- 18. TABLA DE TELEMETRÍA DE PANTALLAS (una fila por pantalla y hora)
+CREATE TABLE IF NOT EXISTS telemetria_pantallas (
+    id BIGSERIAL PRIMARY KEY,
+    pantalla_id BIGINT NOT NULL,
+    hora TIMESTAMP NOT NULL,
+    muestras INTEGER NOT NULL,
+    cpu_promedio REAL,
+    cpu_maximo REAL,
+    temperatura_promedio REAL,
+    temperatura_maximo REAL,
+    memoria_promedio REAL,
+    memoria_maximo REAL,
+    disco_promedio REAL,
+    disco_maximo REAL,
+    minutos BYTEA NOT NULL,
+    fecha_actualizacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_telemetria_pantallas_hora UNIQUE (pantalla_id, hora)
+);
+
+CREATE INDEX IF NOT EXISTS idx_telemetria_pantallas_hora ON telemetria_pantallas(hora);
+
+-- 19. TABLA DE DESPLIEGUES ESCALONADOS DE DESCARGAS (versiones del reproductor)
+CREATE TABLE IF NOT EXISTS despliegues_descarga (
+    id BIGSERIAL PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL,
+    tipo VARCHAR(20) NOT NULL,
+    version_objetivo VARCHAR(20),
+    url_descarga VARCHAR(500),
+    estado VARCHAR(20) NOT NULL DEFAULT 'ACTIVO',
+    olas INTEGER NOT NULL,
+    minutos_entre_olas INTEGER NOT NULL,
+    max_descargas_por_ubicacion INTEGER NOT NULL,
+    minutos_reserva INTEGER NOT NULL,
+    umbral_errores DOUBLE PRECISION NOT NULL,
+    motivo_pausa VARCHAR(500),
+    creado_por VARCHAR(100),
+    fecha_inicio TIMESTAMP NOT NULL,
+    fecha_creacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_actualizacion TIMESTAMP
+);
+
+-- Sólo se despliega software: un contenido pertenece a una sola pantalla, que lo descarga al sincronizar
+UPDATE despliegues_descarga SET estado = 'FINALIZADO' WHERE tipo <> 'SOFTWARE' AND estado <> 'FINALIZADO';
+ALTER TABLE despliegues_descarga DROP COLUMN IF EXISTS contenido_id;
+ALTER TABLE despliegues_descarga DROP COLUMN IF EXISTS pantalla_id;
+
+-- 20. VERSIÓN DE CREDENCIALES DE USUARIOS (invalida los JWT al cambiar el rol o desactivar la cuenta)
+ALTER TABLE usuarios ADD COLUMN IF NOT EXISTS version_token INTEGER NOT NULL DEFAULT 0;
+
 -- =====================================================================
 -- VERIFICACIÓN
 -- =====================================================================
@@ -0,0 +1,100 @@
+package com.innoad.modules.auth.service;
+
+import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.shared.dto.RolUsuario;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de autenticar una petición con JWT: el camino anterior (tres verificaciones HMAC,
+ * derivando la clave en cada una) contra ServicioJWT.verificarToken, con y sin la caché
+ * de tokens verificados.
+ * <p>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="VerificacionJWTBenchmark -f 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VerificacionJWTBenchmark {
+
+    private static final String SECRETO = "bWlDbGF2ZVNlY3JldGFEZUJlbmNobWFya1BhcmFJbm5vQWQyMDI0IQ==";
+
+    private Usuario usuario;
+    private String token;
+    private ServicioJWT servicioSinCache;
+    private ServicioJWT servicioConCache;
+
+    @Setup
+    public void preparar() {
+        usuario = Usuario.builder()
+                .id(15L)
+                .nombre("Laura")
+                .apellido("Gómez")
+                .nombreUsuario("lgomez")
+                .email("lgomez@innoad.example")
+                .rol(RolUsuario.ADMIN)
+                .build();
+
+        servicioSinCache = crearServicio(0);
+        servicioConCache = crearServicio(300);
+        token = servicioConCache.generarToken(usuario);
+    }
+
+    /**
+     * Como antes: extraerNombreUsuario y luego esTokenValido (nombre y expiración),
+     * cada uno con su propia derivación de clave y verificación de firma
+     */
+    @Benchmark
+    public boolean tresVerificaciones() {
+        String nombreUsuario = claimsSinCache(token).getSubject();
+        boolean mismoUsuario = claimsSinCache(token).getSubject().equals(usuario.getUsername());
+        Date expiracion = claimsSinCache(token).getExpiration();
+        return nombreUsuario != null && mismoUsuario && expiracion.after(new Date());
+    }
+
+    /**
+     * Una verificación con la clave y el parser precalculados (token no visto antes)
+     */
+    @Benchmark
+    public boolean verificacionUnica() {
+        return servicioSinCache.esTokenValido(servicioSinCache.verificarToken(token), usuario);
+    }
+
+    /**
+     * El mismo token en peticiones sucesivas: se toma de la caché sin HMAC
+     */
+    @Benchmark
+    public boolean verificacionEnCache() {
+        return servicioConCache.esTokenValido(servicioConCache.verificarToken(token), usuario);
+    }
+
+    private static Claims claimsSinCache(String token) {
+        SecretKey clave = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRETO));
+        return Jwts.parser().verifyWith(clave).build().parseSignedClaims(token).getPayload();
+    }
+
+    private static ServicioJWT crearServicio(long ttlCacheSegundos) {
+        ServicioJWT servicio = new ServicioJWT();
+        ReflectionTestUtils.setField(servicio, "secretKey", SECRETO);
+        ReflectionTestUtils.setField(servicio, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(servicio, "refreshExpiration", 604_800_000L);
+        ReflectionTestUtils.setField(servicio, "maxEntradasCache", 10_000);
+        ReflectionTestUtils.setField(servicio, "ttlCacheSegundos", ttlCacheSegundos);
+        servicio.inicializarClave();
+        return servicio;
+    }
+}
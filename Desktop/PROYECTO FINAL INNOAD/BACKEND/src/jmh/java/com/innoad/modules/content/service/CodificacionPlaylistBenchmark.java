@@ -0,0 +1,162 @@
+package com.innoad.modules.content.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innoad.dto.respuesta.RespuestaAPI;
+import com.innoad.dto.respuesta.RespuestaContenido;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sincronización JSON (RespuestaAPI con la lista completa de RespuestaContenido) contra la
+ * codificación binaria de CodificadorPlaylistBinario: costo de codificar en el servidor y de
+ * leer la respuesta en la pantalla. Los tamaños de ambas respuestas se imprimen al iniciar.
+ * <p>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="CodificacionPlaylistBenchmark -f 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodificacionPlaylistBenchmark {
+
+    @Param({"10", "100"})
+    public int cantidad;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private PlaylistPantalla playlist;
+    private CodificadorPlaylistBinario codificadorConCache;
+    private byte[] json;
+    private byte[] binario;
+
+    @Setup
+    public void preparar() throws IOException {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<RespuestaContenido> contenidos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            String hash = String.format("%064x", i + 1L);
+            contenidos.add(RespuestaContenido.builder()
+                    .id(1000L + i)
+                    .titulo("Promoción de temporada " + i)
+                    .descripcion("Video promocional para la vitrina principal de la sede " + i)
+                    .tipo("VIDEO")
+                    .urlArchivo("https://innoad.example/uploads/blobs/" + hash.substring(0, 2) + "/"
+                            + hash.substring(2, 4) + "/" + hash + ".mp4")
+                    .nombreArchivo("promocion-" + i + ".mp4")
+                    .tamanoArchivo(24_000_000L + i)
+                    .tipoMime("video/mp4")
+                    .hashArchivo(hash)
+                    .duracionSegundos(30)
+                    .orden(i)
+                    .prioridad("MEDIA")
+                    .estado("ACTIVO")
+                    .fechaInicio(ahora.minusDays(3))
+                    .fechaFin(ahora.plusDays(30))
+                    .pantallaId(7L)
+                    .nombrePantalla("Pantalla vitrina")
+                    .usuarioId(3L)
+                    .nombreUsuario("operador")
+                    .fechaCreacion(ahora.minusDays(10))
+                    .fechaActualizacion(ahora.minusDays(1))
+                    .vecesReproducido(1520)
+                    .ultimaReproduccion(ahora.minusMinutes(5))
+                    .tags("promocion,vitrina")
+                    .estaActivo(true)
+                    .enPeriodoPublicacion(true)
+                    .build());
+        }
+        playlist = PlaylistPantalla.builder()
+                .pantallaId(7L)
+                .version(42)
+                .etag("\"bench-7-42\"")
+                .vigenteHasta(ahora.plusDays(30))
+                .contenidos(contenidos)
+                .proximos(List.of())
+                .build();
+
+        codificadorConCache = new CodificadorPlaylistBinario();
+        json = codificarJson();
+        binario = codificadorConCache.codificar(playlist, false);
+        System.out.printf("%n%d contenidos - JSON: %d bytes - binario: %d bytes%n", cantidad, json.length, binario.length);
+    }
+
+    @Benchmark
+    public byte[] codificarJson() throws IOException {
+        return objectMapper.writeValueAsBytes(RespuestaAPI.<List<RespuestaContenido>>builder()
+                .exitoso(true)
+                .mensaje("Contenidos sincronizados exitosamente")
+                .datos(playlist.obtenerContenidos(false))
+                .build());
+    }
+
+    /**
+     * Primera codificación de una versión (sin la caché por ETag)
+     */
+    @Benchmark
+    public byte[] codificarBinario() {
+        return new CodificadorPlaylistBinario().codificar(playlist, false);
+    }
+
+    /**
+     * Sincronizaciones siguientes de la misma versión
+     */
+    @Benchmark
+    public byte[] codificarBinarioEnCache() {
+        return codificadorConCache.codificar(playlist, false);
+    }
+
+    @Benchmark
+    public JsonNode leerJson() throws IOException {
+        return objectMapper.readTree(json);
+    }
+
+    @Benchmark
+    public void leerBinario(Blackhole blackhole) {
+        ByteBuffer entrada = ByteBuffer.wrap(binario);
+        entrada.position(5);
+        blackhole.consume(entrada.getLong());
+        blackhole.consume(leerTexto(entrada));
+        blackhole.consume(entrada.getLong());
+        int total = entrada.getInt();
+        for (int i = 0; i < total; i++) {
+            blackhole.consume(entrada.getLong());
+            blackhole.consume(leerTexto(entrada));
+            blackhole.consume(leerTexto(entrada));
+            blackhole.consume(leerTexto(entrada));
+            blackhole.consume(leerTexto(entrada));
+            blackhole.consume(entrada.getLong());
+            blackhole.consume(leerTexto(entrada));
+            blackhole.consume(leerTexto(entrada));
+            blackhole.consume(entrada.getInt());
+            blackhole.consume(entrada.getInt());
+            blackhole.consume(entrada.getLong());
+            blackhole.consume(entrada.getLong());
+        }
+    }
+
+    private static String leerTexto(ByteBuffer entrada) {
+        int longitud = entrada.getInt();
+        if (longitud < 0) {
+            return null;
+        }
+        String texto = new String(entrada.array(), entrada.position(), longitud, StandardCharsets.UTF_8);
+        entrada.position(entrada.position() + longitud);
+        return texto;
+    }
+}
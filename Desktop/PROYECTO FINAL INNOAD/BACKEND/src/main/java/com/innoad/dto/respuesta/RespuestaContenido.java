@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class RespuestaContenido {
 
     private Long id;
@@ -24,6 +24,7 @@ public class RespuestaContenido {
     private String nombreArchivo;
     private Long tamanoArchivo;
     private String tipoMime;
+    private String hashArchivo;
     private String contenidoTexto;
     private String contenidoHtml;
     private Integer duracionSegundos;
@@ -32,6 +33,11 @@ public class RespuestaContenido {
     private String estado;
     private LocalDateTime fechaInicio;
     private LocalDateTime fechaFin;
+
+    /**
+     * Sólo en contenidos próximos (precarga): momento en que se activan
+     */
+    private LocalDateTime activaDesde;
     private Long pantallaId;
     private String nombrePantalla;
     private Long usuarioId;
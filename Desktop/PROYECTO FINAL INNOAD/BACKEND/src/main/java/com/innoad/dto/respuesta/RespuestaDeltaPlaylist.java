@@ -0,0 +1,42 @@
+package com.innoad.dto.respuesta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de respuesta para la sincronización incremental de una pantalla.
+ * Si completa es true, agregados trae la lista entera y la pantalla debe reemplazar la suya.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespuestaDeltaPlaylist {
+
+    private long version;
+    private String etag;
+    private boolean completa;
+
+    private List<RespuestaContenido> agregados;
+    private List<RespuestaContenido> actualizados;
+    private List<Long> eliminados;
+
+    /**
+     * Ids de la lista vigente en orden de reproducción
+     */
+    private List<Long> orden;
+
+    /**
+     * Contenidos que se activan pronto, para precargar (siempre la lista completa)
+     */
+    private List<RespuestaContenido> proximos;
+
+    /**
+     * Turnos de descarga de los despliegues vigentes (null si no hay)
+     */
+    private List<RespuestaTurnoDescarga> descargas;
+}
@@ -0,0 +1,49 @@
+package com.innoad.dto.respuesta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de respuesta de un despliegue escalonado con su avance.
+ * Los contadores se llevan en memoria desde el último arranque del servidor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespuestaDespliegue {
+
+    private Long id;
+    private String nombre;
+    private String tipo;
+    private String versionObjetivo;
+    private String urlDescarga;
+    private String estado;
+    private String motivoPausa;
+
+    private Integer olas;
+    private Integer minutosEntreOlas;
+    private Integer maxDescargasPorUbicacion;
+    private Integer minutosReserva;
+    private Double umbralErrores;
+
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaCreacion;
+    private String creadoPor;
+
+    /**
+     * Pantallas descargando en este momento
+     */
+    private int descargasEnCurso;
+    private long completadas;
+    private long errores;
+
+    /**
+     * Proporción de errores en la ventana de resultados recientes
+     */
+    private double tasaErroresReciente;
+}
@@ -0,0 +1,25 @@
+package com.innoad.dto.respuesta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de respuesta para la carga de un lote de reproducciones
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespuestaLoteReproducciones {
+
+    private int recibidos;
+    private int aceptados;
+
+    /**
+     * Reproducciones ya registradas por un envío anterior del mismo lote
+     */
+    private int duplicados;
+    private int rechazados;
+}
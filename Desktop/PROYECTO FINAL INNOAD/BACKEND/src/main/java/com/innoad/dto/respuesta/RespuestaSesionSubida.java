@@ -0,0 +1,30 @@
+package com.innoad.dto.respuesta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de respuesta con el estado de una subida por fragmentos
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespuestaSesionSubida {
+
+    private String id;
+    private String nombreArchivo;
+    private Long tamanoTotal;
+
+    /**
+     * Bytes recibidos de forma continua desde el inicio: el siguiente fragmento debe enviarse desde aquí
+     */
+    private Long recibidos;
+
+    private Long tamanoMaximoFragmento;
+    private LocalDateTime expira;
+}
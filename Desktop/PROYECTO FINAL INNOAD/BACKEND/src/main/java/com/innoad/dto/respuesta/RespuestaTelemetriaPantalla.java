@@ -0,0 +1,47 @@
+package com.innoad.dto.respuesta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO de respuesta con el historial de telemetría de una pantalla.
+ * Según la resolución, cada punto es una muestra, el promedio de un minuto o el de una hora.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespuestaTelemetriaPantalla {
+
+    private Long pantallaId;
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private String resolucion;
+
+    /**
+     * Última muestra recibida desde el arranque del servidor (null si no hay)
+     */
+    private PuntoTelemetria ultimaMuestra;
+
+    private List<PuntoTelemetria> puntos;
+
+    /**
+     * Valores de un punto; una métrica que la pantalla no reportó queda en null
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PuntoTelemetria {
+        private LocalDateTime fecha;
+        private Float cpu;
+        private Float temperatura;
+        private Float memoria;
+        private Float disco;
+    }
+}
@@ -0,0 +1,40 @@
+package com.innoad.dto.respuesta;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Turno de descarga que recibe una pantalla en el heartbeat o en la sincronización incremental.
+ * Con accion DESCARGAR la pantalla puede descargar ya y debe informar el resultado antes de reservaHasta;
+ * con ESPERAR no debe descargar y vuelve a preguntar en su siguiente heartbeat.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RespuestaTurnoDescarga {
+
+    public static final String DESCARGAR = "DESCARGAR";
+    public static final String ESPERAR = "ESPERAR";
+
+    private Long despliegueId;
+    private String tipo;
+    private String accion;
+
+    private String versionObjetivo;
+    private String urlDescarga;
+
+    /**
+     * DESCARGAR: límite para informar el resultado
+     */
+    private LocalDateTime reservaHasta;
+
+    /**
+     * ESPERAR: momento estimado en que se abre la ola de la pantalla (null si espera cupo en su ubicación)
+     */
+    private LocalDateTime disponibleDesde;
+}
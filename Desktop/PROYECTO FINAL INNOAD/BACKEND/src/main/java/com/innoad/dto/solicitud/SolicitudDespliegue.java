@@ -0,0 +1,49 @@
+package com.innoad.dto.solicitud;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para crear un despliegue escalonado de una versión del reproductor.
+ * Los campos opcionales toman los valores de innoad.pantallas.despliegues.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SolicitudDespliegue {
+
+    @NotBlank(message = "El nombre del despliegue es obligatorio")
+    @Size(max = 100, message = "El nombre no puede exceder 100 caracteres")
+    private String nombre;
+
+    @NotBlank(message = "El tipo es obligatorio")
+    @Pattern(regexp = "^SOFTWARE$", message = "El tipo debe ser: SOFTWARE")
+    private String tipo;
+
+    @Size(max = 20, message = "La versión no puede exceder 20 caracteres")
+    private String versionObjetivo;
+
+    @Size(max = 500, message = "La URL no puede exceder 500 caracteres")
+    private String urlDescarga;
+
+    @Min(value = 1, message = "Debe haber al menos una ola")
+    @Max(value = 1000, message = "No puede haber más de 1000 olas")
+    private Integer olas;
+
+    @Min(value = 0, message = "Los minutos entre olas no pueden ser negativos")
+    private Integer minutosEntreOlas;
+
+    @Min(value = 1, message = "Debe permitirse al menos una descarga por ubicación")
+    private Integer maxDescargasPorUbicacion;
+
+    @Min(value = 1, message = "La reserva debe durar al menos un minuto")
+    private Integer minutosReserva;
+
+    @DecimalMin(value = "0.0", message = "El umbral de errores debe estar entre 0 y 1")
+    @DecimalMax(value = "1.0", message = "El umbral de errores debe estar entre 0 y 1")
+    private Double umbralErrores;
+}
@@ -0,0 +1,40 @@
+package com.innoad.dto.solicitud;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de reproducción enviado por una pantalla (una línea del lote NDJSON)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SolicitudEventoReproduccion {
+
+    /**
+     * Identificador que la pantalla asigna a la reproducción (por ejemplo un UUID, hasta 64 caracteres).
+     * Junto con la pantalla identifica la reproducción al reenviar un lote; si se omite se usa
+     * el contenido y la fecha de reproducción informados.
+     */
+    private String idEvento;
+
+    private Long contenidoId;
+
+    /**
+     * Se ignora: la reproducción se atribuye siempre a la pantalla de la URL
+     */
+    private String codigoPantalla;
+
+    /**
+     * Momento de la reproducción según el reloj de la pantalla (obligatorio).
+     * Se rechaza si está más adelantado que la tolerancia de reloj configurada.
+     */
+    private LocalDateTime fechaReproduccion;
+
+    private Integer duracionSegundos;
+}
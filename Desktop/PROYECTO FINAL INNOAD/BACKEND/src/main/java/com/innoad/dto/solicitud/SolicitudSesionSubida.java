@@ -0,0 +1,32 @@
+package com.innoad.dto.solicitud;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para iniciar una subida por fragmentos de una imagen o video
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SolicitudSesionSubida {
+
+    @NotBlank(message = "El nombre del archivo es obligatorio")
+    @Size(max = 255, message = "El nombre del archivo no puede exceder 255 caracteres")
+    private String nombreArchivo;
+
+    @NotBlank(message = "El tipo MIME es obligatorio")
+    private String tipoMime;
+
+    @NotBlank(message = "El tipo de contenido es obligatorio")
+    @Pattern(regexp = "^(IMAGEN|VIDEO)$", message = "El tipo debe ser: IMAGEN o VIDEO")
+    private String tipo;
+
+    @NotNull(message = "El tamaño total es obligatorio")
+    @Min(value = 1, message = "El archivo no puede estar vacío")
+    private Long tamanoTotal;
+}
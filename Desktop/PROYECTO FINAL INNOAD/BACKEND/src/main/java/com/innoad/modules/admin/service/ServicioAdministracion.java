@@ -4,15 +4,18 @@ import com.innoad.dto.respuesta.RespuestaAuditoria;
 import com.innoad.dto.respuesta.RespuestaEstadisticas;
 import com.innoad.dto.respuesta.RespuestaUsuarioAdmin;
 import com.innoad.modules.admin.domain.Auditoria;
+import com.innoad.modules.auth.domain.EventoCredencialesModificadas;
 import com.innoad.modules.auth.domain.Usuario;
 import com.innoad.modules.auth.repository.RepositorioUsuario;
 import com.innoad.modules.content.repository.RepositorioContenido;
 import com.innoad.modules.content.repository.RepositorioPublicidad;
 import com.innoad.modules.screens.repository.RepositorioPantalla;
+import com.innoad.modules.screens.service.RastreadorConectividadPantallas;
 import com.innoad.shared.dto.RolUsuario;
 import com.innoad.modules.admin.repository.RepositorioAuditoria;
 import com.innoad.modules.ia.repository.RepositorioConversacionIA;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -37,6 +40,8 @@ public class ServicioAdministracion {
     private final RepositorioPantalla repositorioPantalla;
     private final RepositorioPublicidad repositorioPublicidad;
     private final RepositorioConversacionIA repositorioConversacionIA;
+    private final RastreadorConectividadPantallas rastreadorConectividad;
+    private final ApplicationEventPublisher publicadorEventos;
 
     /**
      * Obtiene todos los usuarios del sistema
@@ -88,7 +93,10 @@ public class ServicioAdministracion {
 
         Boolean estadoAnterior = usuario.getActivo();
         usuario.setActivo(activo);
+        // Los tokens emitidos antes de la desactivación no vuelven a valer al reactivar la cuenta
+        usuario.incrementarVersionToken();
         repositorioUsuario.save(usuario);
+        publicadorEventos.publishEvent(new EventoCredencialesModificadas(usuarioId));
 
         registrarAuditoria(
                 activo ? "ACTIVAR_USUARIO" : "DESACTIVAR_USUARIO",
@@ -124,7 +132,10 @@ public class ServicioAdministracion {
         }
 
         usuario.setRol(nuevoRol);
+        // El rol viaja en el token: los emitidos con el rol anterior dejan de ser válidos
+        usuario.incrementarVersionToken();
         repositorioUsuario.save(usuario);
+        publicadorEventos.publishEvent(new EventoCredencialesModificadas(usuarioId));
 
         String detalles = String.format("Usuario %s cambió de rol %s a %s. Motivo: %s",
                 usuario.getNombreUsuario(), rolAnterior, nuevoRol,
@@ -202,6 +213,8 @@ public class ServicioAdministracion {
 
         Map<String, Object> estadisticasAdicionales = new HashMap<>();
         estadisticasAdicionales.put("registrosAuditoria", repositorioAuditoria.count());
+        estadisticasAdicionales.put("pantallasConectadas", rastreadorConectividad.contarConectadas());
+        estadisticasAdicionales.put("pantallasDesconectadas", rastreadorConectividad.contarDesconectadas());
         estadisticasAdicionales.put("ultimaActualizacion", LocalDateTime.now());
 
         return RespuestaEstadisticas.builder()
@@ -312,6 +325,7 @@ public class ServicioAdministracion {
         );
 
         repositorioUsuario.delete(usuario);
+        publicadorEventos.publishEvent(new EventoCredencialesModificadas(usuarioId));
     }
 
     /**
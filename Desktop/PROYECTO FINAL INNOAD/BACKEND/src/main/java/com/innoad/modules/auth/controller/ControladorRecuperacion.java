@@ -1,10 +1,12 @@
 package com.innoad.modules.auth.controller;
 
+import com.innoad.modules.auth.domain.EventoCredencialesModificadas;
 import com.innoad.modules.auth.domain.Usuario;
 import com.innoad.modules.auth.repository.RepositorioUsuario;
 import com.innoad.shared.dto.RolUsuario;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 public class ControladorRecuperacion {
 
     private final RepositorioUsuario repositorioUsuario;
+    private final ApplicationEventPublisher publicadorEventos;
 
     @PostMapping("/arreglar-admin")
     public ResponseEntity<?> arreglarAdminRole() {
@@ -33,7 +36,9 @@ public class ControladorRecuperacion {
 
             // Actualizar rol
             admin.setRol(RolUsuario.ADMIN);
+            admin.incrementarVersionToken();
             repositorioUsuario.save(admin);
+            publicadorEventos.publishEvent(new EventoCredencialesModificadas(admin.getId()));
 
             return ResponseEntity.ok(new Object() {
                 public boolean exitoso = true;
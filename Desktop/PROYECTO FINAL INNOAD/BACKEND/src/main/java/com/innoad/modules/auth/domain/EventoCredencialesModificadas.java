@@ -0,0 +1,14 @@
+package com.innoad.modules.auth.domain;
+
+import lombok.Value;
+
+/**
+ * Evento publicado cuando cambia algo que los JWT del usuario llevan en sus claims
+ * (rol, estado activo) o cuando el usuario se elimina.
+ * Se procesa después del commit (ver RegistroVersionesToken).
+ */
+@Value
+public class EventoCredencialesModificadas {
+
+    Long usuarioId;
+}
@@ -0,0 +1,47 @@
+package com.innoad.modules.auth.domain;
+
+import com.innoad.shared.dto.RolUsuario;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Datos inmutables de un JWT cuya firma ya fue verificada (ver ServicioJWT.verificarToken).
+ * Todas las comprobaciones de una petición se hacen sobre este objeto, sin volver a leer el token.
+ */
+@Value
+@Builder
+public class TokenVerificado {
+
+    String nombreUsuario;
+    Instant emitidoEn;
+    Instant expiraEn;
+
+    /**
+     * Datos del usuario al emitir el token (null en tokens emitidos antes de incluirlos)
+     */
+    Long usuarioId;
+    RolUsuario rol;
+    Integer version;
+    String nombre;
+    String apellido;
+
+    public boolean estaExpirado(Instant ahora) {
+        return expiraEn != null && !ahora.isBefore(expiraEn);
+    }
+
+    /**
+     * Indica si el token trae los claims necesarios para armar el principal sin consultar la base de datos
+     */
+    public boolean tieneDatosUsuario() {
+        return usuarioId != null && rol != null && version != null;
+    }
+
+    /**
+     * Versión de credenciales del token; los tokens anteriores a la versión se tratan como versión 0
+     */
+    public int versionEfectiva() {
+        return version != null ? version : 0;
+    }
+}
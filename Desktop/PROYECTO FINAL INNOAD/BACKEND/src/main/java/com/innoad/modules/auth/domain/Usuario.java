@@ -115,6 +115,14 @@ public class Usuario implements UserDetails {
     
     @Column(columnDefinition = "TEXT")
     private String preferenciaNotificaciones; // JSON con preferencias
+
+    /**
+     * Versión de las credenciales: se incrementa al cambiar el rol o desactivar la cuenta,
+     * y los JWT emitidos con una versión anterior dejan de aceptarse
+     */
+    @Builder.Default
+    @Column(name = "version_token", columnDefinition = "INTEGER NOT NULL DEFAULT 0")
+    private Integer versionToken = 0;
     
     // Métodos de UserDetails
     @Override
@@ -164,6 +172,13 @@ public class Usuario implements UserDetails {
         return nombre + " " + apellido;
     }
     
+    /**
+     * Invalida los tokens emitidos hasta ahora
+     */
+    public void incrementarVersionToken() {
+        this.versionToken = (versionToken != null ? versionToken : 0) + 1;
+    }
+    
     /**
      * Verifica si el usuario tiene un rol específico
      */
@@ -141,4 +141,10 @@ public interface RepositorioUsuario extends JpaRepository<Usuario, Long> {
            "LOWER(u.nombre) LIKE LOWER(CONCAT('%', :termino, '%')) OR " +
            "LOWER(u.apellido) LIKE LOWER(CONCAT('%', :termino, '%'))")
     List<Usuario> buscarUsuarios(@Param("termino") String termino);
+
+    /**
+     * Versión de credenciales de un usuario activo (vacío si está inactivo o no existe)
+     */
+    @Query("SELECT u.versionToken FROM Usuario u WHERE u.id = :id AND u.activo = true")
+    Optional<Integer> obtenerVersionTokenVigente(@Param("id") Long id);
 }
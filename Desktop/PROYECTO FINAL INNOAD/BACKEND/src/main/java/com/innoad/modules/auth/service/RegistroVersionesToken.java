@@ -0,0 +1,132 @@
+package com.innoad.modules.auth.service;
+
+import com.innoad.modules.auth.domain.EventoCredencialesModificadas;
+import com.innoad.modules.auth.repository.RepositorioUsuario;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabla en memoria con la versión de credenciales vigente de cada usuario (ver Usuario.versionToken).
+ * <p>
+ * Los JWT llevan id, rol y versión del usuario, y el filtro arma el principal solo con esos claims:
+ * aquí se comprueba que la versión del token siga siendo la actual. La primera petición de cada usuario
+ * consulta la base de datos; las siguientes se responden desde memoria.
+ * Al cambiar el rol, desactivar o eliminar un usuario, la entrada se descarta después del commit
+ * y la siguiente petición lee la versión nueva. Como ese aviso sólo llega a esta instancia, cada entrada
+ * se vuelve a leer pasados jwt.usuarios.ttl-segundos: un cambio hecho en otra instancia (o directo en la
+ * base de datos) tarda como máximo ese tiempo en aplicarse.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RegistroVersionesToken {
+
+    /**
+     * Marca de usuario inactivo o eliminado: ningún token es vigente
+     */
+    private static final int SIN_VERSION_VIGENTE = -1;
+
+    private final RepositorioUsuario repositorioUsuario;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.usuarios.max-entradas:50000}")
+    private int maxEntradas;
+
+    @Value("${jwt.usuarios.ttl-segundos:30}")
+    private long ttlSegundos;
+
+    private final Map<Long, Entrada> versiones = new ConcurrentHashMap<>();
+
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder rechazos = new LongAdder();
+
+    @PostConstruct
+    void registrarMetricas() {
+        Gauge.builder("innoad.auth.versiones.entradas", versiones, Map::size)
+                .description("Usuarios con versión de credenciales en memoria")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.auth.versiones.consultas", consultas, LongAdder::sum)
+                .description("Versiones de credenciales leídas de la base de datos")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.auth.versiones.rechazos", rechazos, LongAdder::sum)
+                .description("Tokens rechazados por versión anterior o usuario inactivo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si un token emitido con la versión dada sigue siendo válido para el usuario
+     */
+    public boolean esVigente(Long usuarioId, int version) {
+        long ahora = System.nanoTime();
+        Entrada entrada = versiones.get(usuarioId);
+        if (entrada == null || entrada.vencida(ahora, ttlSegundos)) {
+            hacerEspacio();
+            // compute bloquea la entrada mientras se consulta: una invalidación concurrente espera
+            // a que termine y descarta el valor leído, nunca queda una versión anterior en memoria
+            entrada = versiones.compute(usuarioId, (id, actual) ->
+                    actual != null && !actual.vencida(ahora, ttlSegundos) ? actual : consultarVersion(id));
+        }
+
+        int actual = entrada.version();
+        boolean vigente = actual != SIN_VERSION_VIGENTE && actual == version;
+        if (!vigente) {
+            rechazos.increment();
+        }
+        return vigente;
+    }
+
+    /**
+     * Descarta la versión en memoria una vez confirmado el cambio del usuario
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarCredenciales(EventoCredencialesModificadas evento) {
+        versiones.remove(evento.getUsuarioId());
+        log.debug("Versión de credenciales descartada - Usuario: {}", evento.getUsuarioId());
+    }
+
+    // Métodos auxiliares
+
+    private Entrada consultarVersion(Long usuarioId) {
+        consultas.increment();
+        int version = repositorioUsuario.obtenerVersionTokenVigente(usuarioId).orElse(SIN_VERSION_VIGENTE);
+        return new Entrada(version, System.nanoTime());
+    }
+
+    /**
+     * Al llegar al máximo se descarta una parte de las entradas; se vuelven a leer cuando se necesiten
+     */
+    private void hacerEspacio() {
+        if (versiones.size() < maxEntradas) {
+            return;
+        }
+        int objetivo = maxEntradas - Math.max(1, maxEntradas / 10);
+        for (Iterator<Entrada> iterador = versiones.values().iterator();
+             iterador.hasNext() && versiones.size() > objetivo; ) {
+            iterador.next();
+            iterador.remove();
+        }
+    }
+
+    /**
+     * Versión leída de la base de datos y el instante (System.nanoTime) en que se leyó
+     */
+    private record Entrada(int version, long cargada) {
+
+        private boolean vencida(long ahora, long ttlSegundos) {
+            return ahora - cargada > TimeUnit.SECONDS.toNanos(ttlSegundos);
+        }
+    }
+}
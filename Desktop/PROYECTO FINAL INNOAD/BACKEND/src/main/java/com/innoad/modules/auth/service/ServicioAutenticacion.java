@@ -8,6 +8,7 @@ import com.innoad.dto.respuesta.RespuestaAutenticacion;
 import com.innoad.dto.respuesta.RespuestaAPI;
 import com.innoad.dto.respuesta.RespuestaLogin;
 import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.auth.domain.TokenVerificado;
 import com.innoad.shared.dto.RolUsuario;
 import com.innoad.modules.auth.repository.RepositorioUsuario;
 import com.innoad.servicio.ServicioEmail;
@@ -367,12 +368,13 @@ public class ServicioAutenticacion {
      */
     @Transactional(readOnly = true)
     public RespuestaAPI<RespuestaLogin> refrescarToken(String refreshToken) {
-        String username = servicioJWT.extraerNombreUsuario(refreshToken);
+        TokenVerificado token = servicioJWT.verificarToken(refreshToken);
+        String username = token.getNombreUsuario();
         Usuario usuario = repositorioUsuario.findByNombreUsuario(username)
                 .or(() -> repositorioUsuario.findByEmail(username))
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        if (!servicioJWT.esTokenValido(refreshToken, usuario)) {
+        if (!servicioJWT.esTokenValido(token, usuario)) {
             throw new RuntimeException("Refresh token inválido o expirado");
         }
 
@@ -1,26 +1,45 @@
 package com.innoad.modules.auth.service;
 
+import com.innoad.modules.auth.domain.TokenVerificado;
+import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.shared.dto.RolUsuario;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
  * Servicio para la gestión de tokens JWT.
  * Proporciona métodos para generar, validar y extraer información de tokens.
+ * La clave de firma y el parser se construyen una sola vez, y los tokens verificados
+ * recientemente se recuerdan en una caché acotada para no repetir el HMAC en cada petición.
  */
 @Service
 public class ServicioJWT {
+
+    /**
+     * Claims con los datos del usuario; permiten autenticar sin consultar la base de datos
+     */
+    public static final String CLAIM_USUARIO_ID = "uid";
+    public static final String CLAIM_ROL = "rol";
+    public static final String CLAIM_VERSION = "ver";
+    public static final String CLAIM_NOMBRE = "nombre";
+    public static final String CLAIM_APELLIDO = "apellido";
     
     @Value("${jwt.secret}")
     private String secretKey;
@@ -30,12 +49,71 @@ public class ServicioJWT {
     
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
+
+    @Value("${jwt.cache.max-entradas:10000}")
+    private int maxEntradasCache;
+
+    @Value("${jwt.cache.ttl-segundos:300}")
+    private long ttlCacheSegundos;
+
+    private SecretKey claveFirma;
+    private JwtParser parser;
+
+    /**
+     * Tokens ya verificados (la clave es el token completo, firma incluida)
+     */
+    private final Map<String, EntradaCache> verificados = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void inicializarClave() {
+        claveFirma = getSignInKey();
+        parser = Jwts.parser().verifyWith(claveFirma).build();
+    }
+
+    /**
+     * Verifica la firma y la expiración del token una sola vez y devuelve sus datos
+     *
+     * @throws io.jsonwebtoken.JwtException si la firma no es válida o el token expiró
+     */
+    public TokenVerificado verificarToken(String token) {
+        Instant ahora = Instant.now();
+        EntradaCache entrada = verificados.get(token);
+        if (entrada != null) {
+            if (ahora.isBefore(entrada.vence())) {
+                return entrada.token();
+            }
+            verificados.remove(token, entrada);
+        }
+
+        // El parser rechaza firmas inválidas y tokens expirados
+        Claims claims = extraerTodosLosClaims(token);
+        String rol = claims.get(CLAIM_ROL, String.class);
+        TokenVerificado verificado = TokenVerificado.builder()
+                .nombreUsuario(claims.getSubject())
+                .emitidoEn(claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null)
+                .expiraEn(claims.getExpiration() != null ? claims.getExpiration().toInstant() : null)
+                .usuarioId(claims.get(CLAIM_USUARIO_ID, Long.class))
+                .rol(rol != null ? RolUsuario.valueOf(rol) : null)
+                .version(claims.get(CLAIM_VERSION, Integer.class))
+                .nombre(claims.get(CLAIM_NOMBRE, String.class))
+                .apellido(claims.get(CLAIM_APELLIDO, String.class))
+                .build();
+
+        // Nunca se recuerda más allá de la expiración del token
+        Instant vence = ahora.plusSeconds(ttlCacheSegundos);
+        if (verificado.getExpiraEn() != null && verificado.getExpiraEn().isBefore(vence)) {
+            vence = verificado.getExpiraEn();
+        }
+        hacerEspacio(ahora);
+        verificados.put(token, new EntradaCache(verificado, vence));
+        return verificado;
+    }
     
     /**
      * Extrae el nombre de usuario del token
      */
     public String extraerNombreUsuario(String token) {
-        return extraerClaim(token, Claims::getSubject);
+        return verificarToken(token).getNombreUsuario();
     }
     
     /**
@@ -68,56 +146,81 @@ public class ServicioJWT {
     }
     
     /**
-     * Construye el token JWT
+     * Construye el token JWT; si es un Usuario, incluye su id, rol y versión de credenciales
      */
     private String construirToken(
             Map<String, Object> extraClaims,
             UserDetails userDetails,
             long expiration
     ) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        if (userDetails instanceof Usuario usuario && usuario.getId() != null) {
+            claims.put(CLAIM_USUARIO_ID, usuario.getId());
+            claims.put(CLAIM_ROL, usuario.getRol().name());
+            claims.put(CLAIM_VERSION, usuario.getVersionToken() != null ? usuario.getVersionToken() : 0);
+            claims.put(CLAIM_NOMBRE, usuario.getNombre());
+            claims.put(CLAIM_APELLIDO, usuario.getApellido());
+        }
     return Jwts
         .builder()
-        .claims(extraClaims)
+        .claims(claims)
         .subject(userDetails.getUsername())
         .issuedAt(new Date(System.currentTimeMillis()))
         .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS256)
+                .signWith(claveFirma, Jwts.SIG.HS256)
         .compact();
     }
     
     /**
-     * Valida si el token es válido para el usuario
+     * Valida si el token es válido para el usuario (una sola verificación)
      */
     public boolean esTokenValido(String token, UserDetails userDetails) {
-        final String username = extraerNombreUsuario(token);
-        return (username.equals(userDetails.getUsername())) && !esTokenExpirado(token);
-    }
-    
-    /**
-     * Verifica si el token ha expirado
-     */
-    private boolean esTokenExpirado(String token) {
-        return extraerExpiracion(token).before(new Date());
+        return esTokenValido(verificarToken(token), userDetails);
     }
-    
+
     /**
-     * Extrae la fecha de expiración del token
+     * Valida un token ya verificado contra el usuario (y su versión de credenciales, si es un Usuario)
      */
-    private Date extraerExpiracion(String token) {
-        return extraerClaim(token, Claims::getExpiration);
+    public boolean esTokenValido(TokenVerificado token, UserDetails userDetails) {
+        if (userDetails instanceof Usuario usuario) {
+            int versionActual = usuario.getVersionToken() != null ? usuario.getVersionToken() : 0;
+            if (!usuario.isEnabled() || token.versionEfectiva() != versionActual) {
+                return false;
+            }
+        }
+        return token.getNombreUsuario() != null
+                && token.getNombreUsuario().equals(userDetails.getUsername())
+                && !token.estaExpirado(Instant.now());
     }
     
     /**
      * Extrae todos los claims del token
      */
     private Claims extraerTodosLosClaims(String token) {
-    return Jwts
-        .parser()
-        .verifyWith((SecretKey) getSignInKey())
-                .build()
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
+
+    /**
+     * Al llegar al máximo se descartan los tokens vencidos y, si no alcanza, una parte de los demás
+     */
+    private void hacerEspacio(Instant ahora) {
+        if (verificados.size() < maxEntradasCache) {
+            return;
+        }
+        verificados.values().removeIf(entrada -> !ahora.isBefore(entrada.vence()));
+
+        int objetivo = maxEntradasCache - Math.max(1, maxEntradasCache / 10);
+        for (Iterator<EntradaCache> iterador = verificados.values().iterator();
+             iterador.hasNext() && verificados.size() > objetivo; ) {
+            iterador.next();
+            iterador.remove();
+        }
+    }
+
+    private record EntradaCache(TokenVerificado token, Instant vence) {
+    }
     
     /**
      * Obtiene la clave de firma
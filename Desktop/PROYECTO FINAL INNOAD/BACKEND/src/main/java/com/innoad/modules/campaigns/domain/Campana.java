@@ -1,5 +1,6 @@
 package com.innoad.modules.campaigns.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.innoad.modules.auth.domain.Usuario;
 import jakarta.persistence.*;
 import lombok.*;
@@ -71,10 +72,22 @@ public class Campana {
     @Column(columnDefinition = "TEXT")
     private String configuracion; // JSON con transiciones, horarios, etc.
 
-    @Column(name = "reproducciones_totales")
+    /**
+     * Reproducciones de los contenidos de la campaña mientras está activa; un contenido compartido con otra
+     * campaña activa cuenta en las dos. Sólo se modifica con UPDATE incremental (ver ServicioContadoresReproduccion):
+     * guardar la entidad no debe pisar los deltas ya escritos
+     */
+    @Column(name = "reproducciones_totales", updatable = false)
     @Builder.Default
     private Long reproduccionesTotales = 0L;
 
+    /**
+     * Valor leído de la base antes de sumar las reproducciones pendientes en memoria
+     */
+    @Transient
+    @JsonIgnore
+    private Long reproduccionesPersistidas;
+
     @Column(name = "pantallas_activas")
     @Builder.Default
     private Integer pantallasActivas = 0;
@@ -119,7 +132,13 @@ public class Campana {
                LocalDateTime.now().isBefore(fechaInicio);
     }
 
-    public void incrementarReproducciones() {
-        this.reproduccionesTotales = (this.reproduccionesTotales != null ? this.reproduccionesTotales : 0) + 1;
+    /**
+     * Suma al total persistido las reproducciones aún no escritas (puede llamarse más de una vez)
+     */
+    public void aplicarReproduccionesPendientes(long pendientes) {
+        if (reproduccionesPersistidas == null) {
+            reproduccionesPersistidas = reproduccionesTotales != null ? reproduccionesTotales : 0L;
+        }
+        this.reproduccionesTotales = reproduccionesPersistidas + pendientes;
     }
 }
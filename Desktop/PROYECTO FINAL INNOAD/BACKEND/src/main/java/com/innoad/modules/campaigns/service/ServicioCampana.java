@@ -3,15 +3,21 @@ package com.innoad.modules.campaigns.service;
 import com.innoad.modules.campaigns.domain.Campana;
 import com.innoad.modules.campaigns.repository.RepositorioCampana;
 import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.content.service.ServicioContadoresReproduccion;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +29,8 @@ import java.util.stream.Collectors;
 public class ServicioCampana {
 
     private final RepositorioCampana repositorioCampana;
+    private final ApplicationEventPublisher publicadorEventos;
+    private final ServicioContadoresReproduccion servicioContadores;
 
     /**
      * Crear una nueva campaña
@@ -34,6 +42,7 @@ public class ServicioCampana {
         campana.setFechaActualizacion(LocalDateTime.now());
 
         Campana campanGuardada = repositorioCampana.save(campana);
+        notificarPantallas(campanGuardada.getPantallaIds());
         log.info("Campaña creada: {} - Usuario: {}", campanGuardada.getNombre(), usuario.getNombreUsuario());
 
         return campanGuardada;
@@ -46,10 +55,10 @@ public class ServicioCampana {
     public List<Campana> obtenerCampanas(Usuario usuario) {
         if (usuario.esAdministrador() || usuario.esTecnico()) {
             // Admin y Técnico ven todas las campañas
-            return repositorioCampana.findAll();
+            return conReproduccionesPendientes(repositorioCampana.findAll());
         } else {
             // Usuario solo ve sus propias campañas
-            return repositorioCampana.findByUsuario(usuario);
+            return conReproduccionesPendientes(repositorioCampana.findByUsuario(usuario));
         }
     }
 
@@ -58,11 +67,11 @@ public class ServicioCampana {
      */
     @Transactional(readOnly = true)
     public Page<Campana> obtenerCampanasPaginadas(Usuario usuario, Pageable pageable) {
-        if (usuario.esAdministrador() || usuario.esTecnico()) {
-            return repositorioCampana.findAll(pageable);
-        } else {
-            return repositorioCampana.findByUsuario(usuario, pageable);
-        }
+        Page<Campana> pagina = usuario.esAdministrador() || usuario.esTecnico()
+                ? repositorioCampana.findAll(pageable)
+                : repositorioCampana.findByUsuario(usuario, pageable);
+        conReproduccionesPendientes(pagina.getContent());
+        return pagina;
     }
 
     /**
@@ -78,7 +87,7 @@ public class ServicioCampana {
             throw new IllegalArgumentException("No tienes permiso para ver esta campaña");
         }
 
-        return campana;
+        return conReproduccionesPendientes(campana);
     }
 
     /**
@@ -93,6 +102,9 @@ public class ServicioCampana {
             throw new IllegalArgumentException("No tienes permiso para actualizar esta campaña");
         }
 
+        // Las pantallas que dejan de estar en la campaña también deben enterarse
+        Set<Long> pantallasAfectadas = new HashSet<>(campana.getPantallaIds());
+
         campana.setNombre(datos.getNombre());
         campana.setDescripcion(datos.getDescripcion());
         campana.setEstado(datos.getEstado());
@@ -106,6 +118,8 @@ public class ServicioCampana {
         campana.setFechaActualizacion(LocalDateTime.now());
 
         Campana campanActualizada = repositorioCampana.save(campana);
+        pantallasAfectadas.addAll(campanActualizada.getPantallaIds());
+        notificarPantallas(pantallasAfectadas);
         log.info("Campaña actualizada: {} - Usuario: {}", campanActualizada.getNombre(), usuario.getNombreUsuario());
 
         return campanActualizada;
@@ -151,7 +165,9 @@ public class ServicioCampana {
             throw new IllegalArgumentException("No tienes permiso para eliminar esta campaña");
         }
 
+        List<Long> pantallasAfectadas = List.copyOf(campana.getPantallaIds());
         repositorioCampana.delete(campana);
+        notificarPantallas(pantallasAfectadas);
         log.info("Campaña eliminada: {} - Usuario: {}", campana.getNombre(), usuario.getNombreUsuario());
     }
 
@@ -171,6 +187,7 @@ public class ServicioCampana {
         campana.setFechaActualizacion(LocalDateTime.now());
 
         Campana campanActualizada = repositorioCampana.save(campana);
+        notificarPantallas(campanActualizada.getPantallaIds());
         log.info("Estado de campaña cambiado: {} -> {} - Usuario: {}",
                 campanActualizada.getNombre(), nuevoEstado, usuario.getNombreUsuario());
 
@@ -191,7 +208,7 @@ public class ServicioCampana {
                     .collect(Collectors.toList());
         }
 
-        return campanas;
+        return conReproduccionesPendientes(campanas);
     }
 
     /**
@@ -199,7 +216,7 @@ public class ServicioCampana {
      */
     @Transactional(readOnly = true)
     public List<Campana> obtenerCampanasPorContenido(Long contenidoId) {
-        return repositorioCampana.findByContenidoId(contenidoId);
+        return conReproduccionesPendientes(repositorioCampana.findByContenidoId(contenidoId));
     }
 
     /**
@@ -207,6 +224,31 @@ public class ServicioCampana {
      */
     @Transactional(readOnly = true)
     public List<Campana> obtenerCampanasPorPantalla(Long pantallaId) {
-        return repositorioCampana.findByPantallaId(pantallaId);
+        return conReproduccionesPendientes(repositorioCampana.findByPantallaId(pantallaId));
+    }
+
+    /**
+     * Publica un evento de modificación de playlist para cada pantalla de la campaña
+     */
+    private void notificarPantallas(Collection<Long> pantallaIds) {
+        if (pantallaIds == null) {
+            return;
+        }
+        pantallaIds.forEach(pantallaId -> publicadorEventos.publishEvent(EventoPlaylistModificado.de(pantallaId)));
+    }
+
+    /**
+     * Suma a las campañas activas las reproducciones de sus contenidos que aún no se han persistido
+     */
+    private Campana conReproduccionesPendientes(Campana campana) {
+        if (campana.getEstado() == Campana.EstadoCampana.ACTIVA && campana.getContenidoIds() != null) {
+            campana.aplicarReproduccionesPendientes(servicioContadores.obtenerPendientes(campana.getContenidoIds()));
+        }
+        return campana;
+    }
+
+    private List<Campana> conReproduccionesPendientes(List<Campana> campanas) {
+        campanas.forEach(this::conReproduccionesPendientes);
+        return campanas;
     }
 }
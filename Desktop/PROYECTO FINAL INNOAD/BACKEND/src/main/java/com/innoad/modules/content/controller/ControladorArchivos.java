@@ -0,0 +1,33 @@
+package com.innoad.modules.content.controller;
+
+import com.innoad.modules.content.service.ServicioEntregaArchivos;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Controlador para entregar los archivos subidos (imágenes, videos, etc.)
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Archivos", description = "Entrega de archivos multimedia con soporte de descargas parciales")
+public class ControladorArchivos {
+
+    private final ServicioEntregaArchivos servicioEntregaArchivos;
+
+    /**
+     * Entrega un archivo del almacenamiento (soporta Range, If-Range e If-None-Match)
+     */
+    @RequestMapping(value = "/uploads/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    @Operation(summary = "Descargar archivo", description = "Entrega un archivo multimedia, completo o por rangos de bytes")
+    public void entregarArchivo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        servicioEntregaArchivos.entregar(request, response);
+    }
+}
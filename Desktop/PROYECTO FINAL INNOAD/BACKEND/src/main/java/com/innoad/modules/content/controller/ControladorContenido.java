@@ -3,10 +3,14 @@ package com.innoad.modules.content.controller;
 import com.innoad.dto.solicitud.SolicitudContenido;
 import com.innoad.dto.respuesta.RespuestaAPI;
 import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.dto.respuesta.RespuestaSesionSubida;
+import com.innoad.dto.solicitud.SolicitudSesionSubida;
 import com.innoad.modules.auth.domain.Usuario;
 import com.innoad.modules.content.service.ServicioContenido;
+import com.innoad.modules.content.service.ServicioSubidasFragmentadas;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +31,7 @@ import java.util.List;
 public class ControladorContenido {
 
     private final ServicioContenido servicioContenido;
+    private final ServicioSubidasFragmentadas servicioSubidasFragmentadas;
 
     /**
      * Crea un nuevo contenido sin archivo
@@ -104,6 +109,145 @@ public class ControladorContenido {
         }
     }
 
+    /**
+     * Inicia una subida por fragmentos (reanudable) para una imagen o video
+     */
+    @PostMapping("/subidas")
+    @Operation(summary = "Iniciar subida por fragmentos", description = "Reserva una subida reanudable para un archivo grande")
+    public ResponseEntity<RespuestaAPI<RespuestaSesionSubida>> iniciarSubida(
+            @Valid @RequestBody SolicitudSesionSubida solicitud,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaSesionSubida sesion = servicioSubidasFragmentadas.iniciar(solicitud, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaSesionSubida>builder()
+                            .exitoso(true)
+                            .mensaje("Subida iniciada exitosamente")
+                            .datos(sesion)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaSesionSubida>builder()
+                            .exitoso(false)
+                            .mensaje("Error al iniciar subida: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Obtiene el estado de una subida (bytes recibidos, para reanudar)
+     */
+    @GetMapping("/subidas/{id}")
+    @Operation(summary = "Estado de subida", description = "Indica desde qué byte debe continuar la subida")
+    public ResponseEntity<RespuestaAPI<RespuestaSesionSubida>> obtenerEstadoSubida(
+            @PathVariable String id,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaSesionSubida sesion = servicioSubidasFragmentadas.obtenerEstado(id, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaSesionSubida>builder()
+                            .exitoso(true)
+                            .mensaje("Estado de subida obtenido exitosamente")
+                            .datos(sesion)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaSesionSubida>builder()
+                            .exitoso(false)
+                            .mensaje("Error al obtener estado de subida: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Recibe un fragmento (cuerpo binario) a partir de la posición indicada
+     */
+    @PutMapping(value = "/subidas/{id}", consumes = "application/octet-stream")
+    @Operation(summary = "Enviar fragmento", description = "Escribe un fragmento del archivo desde el byte indicado en offset")
+    public ResponseEntity<RespuestaAPI<RespuestaSesionSubida>> recibirFragmento(
+            @PathVariable String id,
+            @RequestParam("offset") Long offset,
+            HttpServletRequest request,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaSesionSubida sesion = servicioSubidasFragmentadas.recibirFragmento(
+                    id, offset, request.getInputStream(), usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaSesionSubida>builder()
+                            .exitoso(true)
+                            .mensaje("Fragmento recibido exitosamente")
+                            .datos(sesion)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaSesionSubida>builder()
+                            .exitoso(false)
+                            .mensaje("Error al recibir fragmento: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Completa la subida: verifica el SHA-256 y crea el contenido
+     */
+    @PostMapping("/subidas/{id}/completar")
+    @Operation(summary = "Completar subida", description = "Verifica el checksum del archivo subido y crea el contenido")
+    public ResponseEntity<RespuestaAPI<RespuestaContenido>> completarSubida(
+            @PathVariable String id,
+            @RequestParam("sha256") String sha256,
+            @Valid @RequestBody SolicitudContenido solicitud,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaContenido contenido = servicioSubidasFragmentadas.completar(id, sha256, solicitud, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaContenido>builder()
+                            .exitoso(true)
+                            .mensaje("Contenido creado exitosamente")
+                            .datos(contenido)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaContenido>builder()
+                            .exitoso(false)
+                            .mensaje("Error al completar subida: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Cancela una subida en curso
+     */
+    @DeleteMapping("/subidas/{id}")
+    @Operation(summary = "Cancelar subida", description = "Cancela una subida y descarta lo recibido")
+    public ResponseEntity<RespuestaAPI<Void>> cancelarSubida(
+            @PathVariable String id,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            servicioSubidasFragmentadas.cancelar(id, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<Void>builder()
+                            .exitoso(true)
+                            .mensaje("Subida cancelada exitosamente")
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<Void>builder()
+                            .exitoso(false)
+                            .mensaje("Error al cancelar subida: " + e.getMessage())
+                            .build());
+        }
+    }
+
     /**
      * Obtiene todos los contenidos del usuario autenticado
      */
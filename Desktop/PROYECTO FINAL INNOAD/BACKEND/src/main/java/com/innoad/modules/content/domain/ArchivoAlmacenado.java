@@ -0,0 +1,59 @@
+package com.innoad.modules.content.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Archivo guardado por contenido (SHA-256) en el almacenamiento.
+ * Un mismo archivo subido varias veces se guarda una sola vez; referencias cuenta
+ * cuántos contenidos y publicaciones lo usan. Sin referencias, se elimina pasado un período de gracia.
+ */
+@Entity
+@Table(name = "archivos_almacenados", indexes = {
+        @Index(name = "idx_archivos_almacenados_referencias", columnList = "referencias, fecha_actualizacion")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivoAlmacenado {
+
+    /**
+     * Ruta relativa al directorio de almacenamiento (blobs/ab/cd/{hash}, sin extensión)
+     */
+    @Id
+    @Column(length = 200)
+    private String ruta;
+
+    /**
+     * SHA-256 del contenido en hexadecimal
+     */
+    @Column(nullable = false, length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long tamano;
+
+    @Column(name = "tipo_mime", length = 100)
+    private String tipoMime;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer referencias = 0;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    @Builder.Default
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+
+    /**
+     * Última vez que se subió o cambió de referencias (el período de gracia cuenta desde aquí)
+     */
+    @Column(name = "fecha_actualizacion", nullable = false)
+    @Builder.Default
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
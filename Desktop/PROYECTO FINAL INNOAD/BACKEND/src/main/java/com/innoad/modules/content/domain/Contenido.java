@@ -70,6 +70,12 @@ public class Contenido {
     @Column(length = 100)
     private String tipoMime;
 
+    /**
+     * SHA-256 del archivo (sólo para archivos del almacenamiento deduplicado)
+     */
+    @Column(name = "hash_archivo", length = 64)
+    private String hashArchivo;
+
     /**
      * Contenido de texto (para tipo TEXTO)
      */
@@ -148,14 +154,17 @@ public class Contenido {
     private LocalDateTime fechaActualizacion = LocalDateTime.now();
 
     /**
-     * Número de veces que se ha reproducido
+     * Número de veces que se ha reproducido.
+     * Sólo se modifica con UPDATE incremental (ver ServicioContadoresReproduccion).
      */
+    @Column(updatable = false)
     @Builder.Default
     private Integer vecesReproducido = 0;
 
     /**
      * Última fecha de reproducción
      */
+    @Column(updatable = false)
     private LocalDateTime ultimaReproduccion;
 
     /**
@@ -202,14 +211,6 @@ public class Contenido {
         return true;
     }
 
-    /**
-     * Incrementa el contador de reproducciones
-     */
-    public void incrementarReproducciones() {
-        this.vecesReproducido++;
-        this.ultimaReproduccion = LocalDateTime.now();
-    }
-
     /**
      * Actualiza la fecha de modificación
      */
@@ -0,0 +1,16 @@
+package com.innoad.modules.content.domain;
+
+import lombok.Value;
+
+/**
+ * Evento publicado cuando la limpieza del almacenamiento borra un blob que quedó sin referencias.
+ * Permite descartar lo que se haya derivado de él (variantes de imagen).
+ */
+@Value
+public class EventoArchivoEliminado {
+
+    /**
+     * Hash SHA-256 del contenido del blob borrado
+     */
+    String hash;
+}
@@ -0,0 +1,69 @@
+package com.innoad.modules.content.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro append-only de una reproducción (proof-of-play) informada por una pantalla.
+ * Las filas se insertan por lotes vía JDBC; nunca se actualizan.
+ * Pantalla e identificador del evento identifican la reproducción (un lote reenviado no la duplica).
+ */
+@Entity
+@Table(name = "eventos_reproduccion", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_eventos_reproduccion_pantalla_evento",
+                columnNames = {"codigo_pantalla", "id_evento"})
+}, indexes = {
+        @Index(name = "idx_eventos_reproduccion_contenido", columnList = "contenido_id, fecha_reproduccion"),
+        @Index(name = "idx_eventos_reproduccion_pantalla", columnList = "codigo_pantalla, fecha_reproduccion")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoReproduccion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Contenido reproducido (sin FK: los eventos se conservan aunque el contenido se elimine)
+     */
+    @Column(name = "contenido_id", nullable = false)
+    private Long contenidoId;
+
+    /**
+     * Código de identificación de la pantalla que reprodujo el contenido
+     */
+    @Column(name = "codigo_pantalla", nullable = false, length = 50)
+    private String codigoPantalla;
+
+    /**
+     * Identificador asignado por la pantalla, o "contenidoId@fechaReproduccion" si no lo envió
+     */
+    @Column(name = "id_evento", nullable = false, length = 64)
+    private String idEvento;
+
+    /**
+     * Momento de la reproducción según la pantalla (puede ser anterior si estuvo sin conexión)
+     */
+    @Column(name = "fecha_reproduccion", nullable = false)
+    private LocalDateTime fechaReproduccion;
+
+    /**
+     * Duración efectiva de la reproducción en segundos
+     */
+    @Column(name = "duracion_segundos")
+    private Integer duracionSegundos;
+
+    /**
+     * Momento en que el servidor recibió el evento
+     */
+    @Column(name = "fecha_recepcion", nullable = false)
+    private LocalDateTime fechaRecepcion;
+}
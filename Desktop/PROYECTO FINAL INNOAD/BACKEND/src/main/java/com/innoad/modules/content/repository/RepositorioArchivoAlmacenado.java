@@ -0,0 +1,53 @@
+package com.innoad.modules.content.repository;
+
+import com.innoad.modules.content.domain.ArchivoAlmacenado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de archivos almacenados por contenido (SHA-256)
+ */
+@Repository
+public interface RepositorioArchivoAlmacenado extends JpaRepository<ArchivoAlmacenado, String> {
+
+    /**
+     * Suma una referencia (UPDATE atómico: bloquea la fila hasta el commit)
+     */
+    @Modifying
+    @Query("UPDATE ArchivoAlmacenado a SET a.referencias = a.referencias + 1, a.fechaActualizacion = :ahora WHERE a.ruta = :ruta")
+    int incrementarReferencias(@Param("ruta") String ruta, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Resta una referencia sin bajar de cero
+     */
+    @Modifying
+    @Query("UPDATE ArchivoAlmacenado a SET a.referencias = a.referencias - 1, a.fechaActualizacion = :ahora " +
+           "WHERE a.ruta = :ruta AND a.referencias > 0")
+    int decrementarReferencias(@Param("ruta") String ruta, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Renueva el período de gracia de un archivo recién subido otra vez
+     */
+    @Modifying
+    @Query("UPDATE ArchivoAlmacenado a SET a.fechaActualizacion = :ahora WHERE a.ruta = :ruta")
+    int renovar(@Param("ruta") String ruta, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Rutas de archivos sin referencias desde antes de la fecha límite
+     */
+    @Query("SELECT a.ruta FROM ArchivoAlmacenado a WHERE a.referencias = 0 AND a.fechaActualizacion < :limite")
+    List<String> findRutasSinReferencias(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Elimina el registro sólo si sigue sin referencias (retorna 0 si alguien lo volvió a usar)
+     */
+    @Modifying
+    @Query("DELETE FROM ArchivoAlmacenado a WHERE a.ruta = :ruta AND a.referencias = 0 AND a.fechaActualizacion < :limite")
+    int eliminarSiSinReferencias(@Param("ruta") String ruta, @Param("limite") LocalDateTime limite);
+}
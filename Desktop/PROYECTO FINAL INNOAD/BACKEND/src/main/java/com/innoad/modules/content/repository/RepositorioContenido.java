@@ -43,9 +43,10 @@ public interface RepositorioContenido extends JpaRepository<Contenido, Long> {
     List<Contenido> findByEstado(String estado);
 
     /**
-     * Busca contenidos activos de una pantalla, ordenados por orden y prioridad
+     * Busca contenidos activos de una pantalla, ordenados por orden y prioridad.
+     * Trae el usuario en la misma consulta para no inicializar proxies al convertir a DTO.
      */
-    @Query("SELECT c FROM Contenido c WHERE c.pantalla.id = :pantallaId " +
+    @Query("SELECT c FROM Contenido c JOIN FETCH c.usuario WHERE c.pantalla.id = :pantallaId " +
            "AND c.estado = 'ACTIVO' " +
            "AND (c.fechaInicio IS NULL OR c.fechaInicio <= :ahora) " +
            "AND (c.fechaFin IS NULL OR c.fechaFin >= :ahora) " +
@@ -55,6 +56,31 @@ public interface RepositorioContenido extends JpaRepository<Contenido, Long> {
         @Param("ahora") LocalDateTime ahora
     );
 
+    /**
+     * Obtiene la próxima fecha de inicio de publicación pendiente de una pantalla
+     */
+    @Query("SELECT MIN(c.fechaInicio) FROM Contenido c WHERE c.pantalla.id = :pantallaId " +
+           "AND c.estado = 'ACTIVO' " +
+           "AND c.fechaInicio > :ahora")
+    LocalDateTime findProximoInicioByPantallaId(
+        @Param("pantallaId") Long pantallaId,
+        @Param("ahora") LocalDateTime ahora
+    );
+
+    /**
+     * Obtiene los contenidos de una pantalla que comienzan su publicación dentro del horizonte indicado
+     */
+    @Query("SELECT c FROM Contenido c JOIN FETCH c.usuario WHERE c.pantalla.id = :pantallaId " +
+           "AND c.estado = 'ACTIVO' " +
+           "AND c.fechaInicio > :ahora AND c.fechaInicio <= :limite " +
+           "AND (c.fechaFin IS NULL OR c.fechaFin >= c.fechaInicio) " +
+           "ORDER BY c.fechaInicio ASC, c.orden ASC")
+    List<Contenido> findContenidosProximosByPantallaId(
+        @Param("pantallaId") Long pantallaId,
+        @Param("ahora") LocalDateTime ahora,
+        @Param("limite") LocalDateTime limite
+    );
+
     /**
      * Busca contenidos por tipo
      */
@@ -132,4 +158,12 @@ public interface RepositorioContenido extends JpaRepository<Contenido, Long> {
      */
     @Query("SELECT COUNT(c) FROM Contenido c WHERE c.estado = 'ACTIVO'")
     Long countByActivoTrue();
+
+    /**
+     * Hash de cada imagen deduplicada con el id, resolución y orientación de su pantalla
+     * (para reconstruir qué pantallas usan cada variante de imagen al iniciar)
+     */
+    @Query("SELECT c.hashArchivo, p.id, p.resolucion, p.orientacion FROM Contenido c JOIN c.pantalla p " +
+           "WHERE c.tipo = 'IMAGEN' AND c.hashArchivo IS NOT NULL")
+    List<Object[]> findHashesImagenesConPantalla();
 }
@@ -0,0 +1,76 @@
+package com.innoad.modules.content.service;
+
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import com.innoad.modules.screens.service.ServicioVersionPlaylist;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché de listas de reproducción ya ordenadas y convertidas a DTO, por pantalla.
+ * Una entrada es válida mientras su versión coincida con la actual y no se haya alcanzado
+ * el próximo inicio/fin de publicación de sus contenidos.
+ * Se invalida con los eventos de modificación de contenidos (después del commit).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CachePlaylistPantallas {
+
+    private final ServicioVersionPlaylist servicioVersionPlaylist;
+
+    private final Map<Long, PlaylistPantalla> playlists = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene la lista de reproducción vigente de una pantalla, o null si hay que recalcularla
+     */
+    public PlaylistPantalla obtener(Long pantallaId) {
+        PlaylistPantalla playlist = playlists.get(pantallaId);
+        if (playlist == null) {
+            return null;
+        }
+
+        boolean versionVigente = playlist.getVersion() == servicioVersionPlaylist.obtenerVersion(pantallaId);
+        boolean periodoVigente = playlist.getVigenteHasta() == null
+                || LocalDateTime.now().isBefore(playlist.getVigenteHasta());
+
+        if (!periodoVigente) {
+            servicioVersionPlaylist.vencerVersion(pantallaId, playlist.getVersion());
+        }
+        if (!versionVigente || !periodoVigente) {
+            playlists.remove(pantallaId, playlist);
+            return null;
+        }
+        return playlist;
+    }
+
+    /**
+     * Guarda una lista recién calculada (se conserva la de mayor versión)
+     */
+    public void guardar(PlaylistPantalla playlist) {
+        playlists.merge(playlist.getPantallaId(), playlist,
+                (actual, nueva) -> nueva.getVersion() >= actual.getVersion() ? nueva : actual);
+    }
+
+    /**
+     * Invalida la entrada de la pantalla cuyos contenidos cambiaron
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        if (evento.getPantallaId() != null && playlists.remove(evento.getPantallaId()) != null) {
+            log.debug("Playlist en caché invalidada - Pantalla: {}", evento.getPantallaId());
+        }
+    }
+
+    /**
+     * Cantidad de listas en caché
+     */
+    public int tamano() {
+        return playlists.size();
+    }
+}
@@ -0,0 +1,140 @@
+package com.innoad.modules.content.service;
+
+import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codificación binaria compacta de la lista de una pantalla, alternativa al JSON de RespuestaAPI
+ * para reproductores de bajo consumo (se pide con Accept: application/vnd.innoad.playlist).
+ * <p>
+ * Formato (big-endian):
+ * <pre>
+ * "IAPL" | formato u8 | versión i64 | etag str | vigenteHasta i64 | cantidad i32 | contenido*
+ * contenido: id i64 | tipo str | urlArchivo str | hashArchivo str | tipoMime str | tamanoArchivo i64
+ *            | contenidoTexto str | contenidoHtml str | duracionSegundos i32 | orden i32
+ *            | fechaFin i64 | activaDesde i64
+ * str: longitud i32 (-1 = nulo) seguida de los bytes UTF-8
+ * </pre>
+ * Las fechas van en milisegundos epoch (-1 = sin fecha) y los enteros ausentes como -1.
+ * Sólo viajan los campos que usa el reproductor; los bytes se guardan por pantalla y ETag.
+ */
+@Service
+@Slf4j
+public class CodificadorPlaylistBinario {
+
+    public static final String TIPO_MEDIO = "application/vnd.innoad.playlist";
+
+    private static final byte[] FIRMA = {'I', 'A', 'P', 'L'};
+    private static final int FORMATO = 1;
+
+    private record Clave(Long pantallaId, boolean conProximos) {
+    }
+
+    private record Codificada(String etag, byte[] bytes) {
+    }
+
+    private final Map<Clave, Codificada> codificadas = new ConcurrentHashMap<>();
+
+    /**
+     * Bytes de la lista (con los contenidos próximos al final si se piden), reutilizando
+     * la codificación anterior mientras la versión de la lista no cambie
+     */
+    public byte[] codificar(PlaylistPantalla playlist, boolean incluirProximos) {
+        boolean conProximos = incluirProximos && !playlist.getProximos().isEmpty();
+        Clave clave = new Clave(playlist.getPantallaId(), conProximos);
+
+        Codificada codificada = codificadas.get(clave);
+        if (codificada != null && codificada.etag().equals(playlist.getEtag())) {
+            return codificada.bytes();
+        }
+
+        byte[] bytes = escribir(playlist, conProximos);
+        codificadas.put(clave, new Codificada(playlist.getEtag(), bytes));
+        log.debug("Lista codificada - Pantalla: {} - Versión: {} - {} bytes",
+                playlist.getPantallaId(), playlist.getVersion(), bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Descarta las codificaciones de una pantalla eliminada
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        if (evento.isPantallaEliminada() && evento.getPantallaId() != null) {
+            codificadas.keySet().removeIf(clave -> evento.getPantallaId().equals(clave.pantallaId()));
+        }
+    }
+
+    // Métodos auxiliares
+
+    private static byte[] escribir(PlaylistPantalla playlist, boolean conProximos) {
+        List<RespuestaContenido> contenidos = playlist.getContenidos();
+        List<RespuestaContenido> proximos = conProximos ? playlist.getProximos() : List.of();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + (contenidos.size() + proximos.size()) * 160);
+        try (DataOutputStream salida = new DataOutputStream(bytes)) {
+            salida.write(FIRMA);
+            salida.writeByte(FORMATO);
+            salida.writeLong(playlist.getVersion());
+            escribirTexto(salida, playlist.getEtag());
+            salida.writeLong(milisegundos(playlist.getVigenteHasta()));
+            salida.writeInt(contenidos.size() + proximos.size());
+            for (RespuestaContenido contenido : contenidos) {
+                escribirContenido(salida, contenido);
+            }
+            for (RespuestaContenido contenido : proximos) {
+                escribirContenido(salida, contenido);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void escribirContenido(DataOutputStream salida, RespuestaContenido contenido) throws IOException {
+        salida.writeLong(contenido.getId());
+        escribirTexto(salida, contenido.getTipo());
+        escribirTexto(salida, contenido.getUrlArchivo());
+        escribirTexto(salida, contenido.getHashArchivo());
+        escribirTexto(salida, contenido.getTipoMime());
+        salida.writeLong(contenido.getTamanoArchivo() != null ? contenido.getTamanoArchivo() : -1);
+        escribirTexto(salida, contenido.getContenidoTexto());
+        escribirTexto(salida, contenido.getContenidoHtml());
+        salida.writeInt(contenido.getDuracionSegundos() != null ? contenido.getDuracionSegundos() : -1);
+        salida.writeInt(contenido.getOrden() != null ? contenido.getOrden() : -1);
+        salida.writeLong(milisegundos(contenido.getFechaFin()));
+        salida.writeLong(milisegundos(contenido.getActivaDesde()));
+    }
+
+    /**
+     * Texto con longitud de 32 bits (writeUTF se limita a 64 KB y el HTML puede superarlo)
+     */
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static long milisegundos(LocalDateTime fecha) {
+        return fecha != null ? fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+}
@@ -0,0 +1,247 @@
+package com.innoad.modules.content.service;
+
+import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.dto.respuesta.RespuestaDeltaPlaylist;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diario de cambios de la lista de reproducción de cada pantalla.
+ * Cada vez que se calcula una nueva versión (tras una modificación de contenidos o el vencimiento
+ * de un período) se anota qué contenidos se agregaron, cambiaron o salieron respecto de la anterior.
+ * Con eso se responde a la pantalla sólo con las diferencias desde la versión que ya tiene.
+ */
+@Service
+@Slf4j
+public class DiarioCambiosPlaylist {
+
+    @Value("${innoad.pantallas.sincronizacion.max-entradas-diario:32}")
+    private int maxEntradas;
+
+    private final Map<Long, Diario> diarios = new ConcurrentHashMap<>();
+
+    /**
+     * Anota una lista recién calculada (las versiones anteriores a la última anotada se ignoran)
+     */
+    public void registrar(PlaylistPantalla playlist) {
+        diarios.computeIfAbsent(playlist.getPantallaId(), id -> new Diario())
+                .registrar(playlist, maxEntradas);
+    }
+
+    /**
+     * Calcula las diferencias entre la versión que tiene la pantalla y la lista vigente.
+     * Si la versión es desconocida o ya salió del diario, retorna la lista completa.
+     *
+     * @param desde versión de la pantalla (null si no tiene o no es de este servidor)
+     */
+    public RespuestaDeltaPlaylist calcularDelta(PlaylistPantalla playlist, Long desde) {
+        Map<Long, TipoCambio> cambios = null;
+        if (desde != null) {
+            Diario diario = diarios.get(playlist.getPantallaId());
+            if (diario != null) {
+                cambios = diario.cambiosDesde(desde, playlist.getVersion());
+            }
+        }
+
+        List<Long> orden = playlist.getContenidos().stream().map(RespuestaContenido::getId).toList();
+
+        if (cambios == null) {
+            return RespuestaDeltaPlaylist.builder()
+                    .version(playlist.getVersion())
+                    .etag(playlist.getEtag())
+                    .completa(true)
+                    .agregados(playlist.getContenidos())
+                    .actualizados(List.of())
+                    .eliminados(List.of())
+                    .orden(orden)
+                    .proximos(playlist.getProximos())
+                    .build();
+        }
+
+        List<RespuestaContenido> agregados = new ArrayList<>();
+        List<RespuestaContenido> actualizados = new ArrayList<>();
+        for (RespuestaContenido contenido : playlist.getContenidos()) {
+            TipoCambio cambio = cambios.get(contenido.getId());
+            if (cambio == TipoCambio.AGREGADO) {
+                agregados.add(contenido);
+            } else if (cambio == TipoCambio.ACTUALIZADO) {
+                actualizados.add(contenido);
+            }
+        }
+        List<Long> eliminados = cambios.entrySet().stream()
+                .filter(entrada -> entrada.getValue() == TipoCambio.ELIMINADO)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        return RespuestaDeltaPlaylist.builder()
+                .version(playlist.getVersion())
+                .etag(playlist.getEtag())
+                .completa(false)
+                .agregados(agregados)
+                .actualizados(actualizados)
+                .eliminados(eliminados)
+                .orden(orden)
+                .proximos(playlist.getProximos())
+                .build();
+    }
+
+    /**
+     * Descarta el diario de una pantalla eliminada
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        if (evento.isPantallaEliminada() && evento.getPantallaId() != null) {
+            diarios.remove(evento.getPantallaId());
+        }
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Campos que la pantalla necesita para reproducir el contenido (no incluye contadores de
+     * reproducciones, que cambian constantemente). Se comparan completos con equals: un hash de
+     * 32 bits podía coincidir entre dos estados distintos y el cambio no llegaba a la pantalla.
+     * Las cadenas son las mismas instancias de la lista en caché, así que no se duplican en memoria.
+     */
+    private record EstadoContenido(LocalDateTime fechaActualizacion, String titulo, String tipo,
+                                   String urlArchivo, String hashArchivo, String tipoMime,
+                                   String contenidoTexto, String contenidoHtml, Integer duracionSegundos,
+                                   Integer orden, String prioridad, LocalDateTime fechaInicio,
+                                   LocalDateTime fechaFin) {
+
+        private static EstadoContenido de(RespuestaContenido contenido) {
+            return new EstadoContenido(contenido.getFechaActualizacion(), contenido.getTitulo(), contenido.getTipo(),
+                    contenido.getUrlArchivo(), contenido.getHashArchivo(), contenido.getTipoMime(),
+                    contenido.getContenidoTexto(), contenido.getContenidoHtml(), contenido.getDuracionSegundos(),
+                    contenido.getOrden(), contenido.getPrioridad(), contenido.getFechaInicio(), contenido.getFechaFin());
+        }
+    }
+
+    private enum TipoCambio {
+        AGREGADO, ACTUALIZADO, ELIMINADO
+    }
+
+    private record Entrada(long versionAnterior, long version, Map<Long, TipoCambio> cambios) {
+    }
+
+    private static final class Diario {
+
+        private long version = -1;
+        private Map<Long, EstadoContenido> estados;
+        private final Deque<Entrada> entradas = new ArrayDeque<>();
+
+        synchronized void registrar(PlaylistPantalla playlist, int maxEntradas) {
+            if (playlist.getVersion() <= version) {
+                return;
+            }
+
+            Map<Long, EstadoContenido> nuevosEstados = new HashMap<>();
+            playlist.getContenidos().forEach(contenido ->
+                    nuevosEstados.put(contenido.getId(), EstadoContenido.de(contenido)));
+
+            if (estados != null) {
+                Map<Long, TipoCambio> cambios = new HashMap<>();
+                nuevosEstados.forEach((id, estado) -> {
+                    EstadoContenido anterior = estados.get(id);
+                    if (anterior == null) {
+                        cambios.put(id, TipoCambio.AGREGADO);
+                    } else if (!anterior.equals(estado)) {
+                        cambios.put(id, TipoCambio.ACTUALIZADO);
+                    }
+                });
+                estados.keySet().stream()
+                        .filter(id -> !nuevosEstados.containsKey(id))
+                        .forEach(id -> cambios.put(id, TipoCambio.ELIMINADO));
+
+                entradas.addLast(new Entrada(version, playlist.getVersion(), cambios));
+                while (entradas.size() > maxEntradas) {
+                    entradas.removeFirst();
+                }
+            }
+
+            version = playlist.getVersion();
+            estados = nuevosEstados;
+        }
+
+        /**
+         * Combina las entradas desde la versión indicada; null si no se puede reconstruir
+         */
+        synchronized Map<Long, TipoCambio> cambiosDesde(long desde, long hasta) {
+            if (version != hasta) {
+                return null;
+            }
+            if (desde == hasta) {
+                return Map.of();
+            }
+
+            Iterator<Entrada> iterador = entradas.iterator();
+            Entrada entrada = null;
+            while (iterador.hasNext()) {
+                Entrada candidata = iterador.next();
+                if (candidata.versionAnterior() == desde) {
+                    entrada = candidata;
+                    break;
+                }
+            }
+            if (entrada == null) {
+                return null;
+            }
+
+            Map<Long, TipoCambio> netos = new LinkedHashMap<>();
+            Set<Long> agregadosEnElCamino = new HashSet<>();
+            while (true) {
+                entrada.cambios().forEach((id, cambio) -> combinar(netos, agregadosEnElCamino, id, cambio));
+                if (!iterador.hasNext()) {
+                    break;
+                }
+                entrada = iterador.next();
+            }
+            return netos;
+        }
+
+        private static void combinar(Map<Long, TipoCambio> netos, Set<Long> agregadosEnElCamino,
+                                     Long id, TipoCambio cambio) {
+            TipoCambio previo = netos.get(id);
+            switch (cambio) {
+                case AGREGADO -> {
+                    if (previo == null) {
+                        netos.put(id, TipoCambio.AGREGADO);
+                        agregadosEnElCamino.add(id);
+                    } else if (previo == TipoCambio.ELIMINADO) {
+                        // Existía en la versión de la pantalla, salió y volvió a entrar
+                        netos.put(id, TipoCambio.ACTUALIZADO);
+                    }
+                }
+                case ACTUALIZADO -> {
+                    if (previo == null) {
+                        netos.put(id, TipoCambio.ACTUALIZADO);
+                    }
+                }
+                case ELIMINADO -> {
+                    if (agregadosEnElCamino.remove(id)) {
+                        // Nunca lo tuvo la pantalla
+                        netos.remove(id);
+                    } else {
+                        netos.put(id, TipoCambio.ELIMINADO);
+                    }
+                }
+            }
+        }
+    }
+}
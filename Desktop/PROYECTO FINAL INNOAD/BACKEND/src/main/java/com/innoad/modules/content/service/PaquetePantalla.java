@@ -0,0 +1,55 @@
+package com.innoad.modules.content.service;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Paquete sin conexión de una pantalla: manifiesto JSON más los archivos de su lista de reproducción,
+ * listos para escribirse como un único archivo TAR (ver ServicioPaquetesPantalla).
+ */
+@Value
+@Builder
+public class PaquetePantalla {
+
+    Long pantallaId;
+    long version;
+
+    /**
+     * ETag de la versión de la lista con la que se armó el paquete
+     */
+    String etag;
+
+    /**
+     * Contenido de manifest.json
+     */
+    byte[] manifiesto;
+
+    List<ArchivoPaquete> archivos;
+
+    /**
+     * Tamaño exacto del TAR en bytes (permite enviar Content-Length)
+     */
+    long longitud;
+
+    /**
+     * Fecha de modificación de las entradas del TAR (segundos desde epoch): la última actualización
+     * de los contenidos, así la misma versión de la lista produce siempre los mismos bytes
+     */
+    long fechaModificacion;
+
+    /**
+     * Archivo multimedia incluido en el paquete
+     */
+    @Value
+    public static class ArchivoPaquete {
+        /**
+         * Ruta dentro del TAR (media/...)
+         */
+        String nombre;
+        Path ruta;
+        long tamano;
+    }
+}
@@ -0,0 +1,57 @@
+package com.innoad.modules.content.service;
+
+import com.innoad.dto.respuesta.RespuestaContenido;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una sincronización completa de una pantalla:
+ * contenidos activos ya ordenados junto con su versión y vigencia.
+ * Se comparte desde la caché entre peticiones: sus contenidos no deben modificarse.
+ */
+@Value
+@Builder
+public class PlaylistPantalla {
+
+    Long pantallaId;
+
+    /**
+     * Versión de la lista al momento de consultarla
+     */
+    long version;
+
+    /**
+     * ETag que identifica esta versión de la lista
+     */
+    String etag;
+
+    /**
+     * Próximo instante en que algún contenido entra o sale de su período (null si no hay)
+     */
+    LocalDateTime vigenteHasta;
+
+    List<RespuestaContenido> contenidos;
+
+    /**
+     * Contenidos que se activan dentro del horizonte de precarga, ordenados por su activación
+     * (activaDesde). La pantalla puede descargarlos con anticipación pero no reproducirlos aún.
+     */
+    List<RespuestaContenido> proximos;
+
+    /**
+     * Contenidos activos y, si se pide, a continuación los próximos (marcados con activaDesde)
+     * para descargarlos con anticipación
+     */
+    public List<RespuestaContenido> obtenerContenidos(boolean incluirProximos) {
+        if (!incluirProximos || proximos.isEmpty()) {
+            return contenidos;
+        }
+        List<RespuestaContenido> todos = new ArrayList<>(contenidos);
+        todos.addAll(proximos);
+        return todos;
+    }
+}
@@ -1,69 +1,254 @@
 package com.innoad.modules.content.service;
 
+import com.innoad.modules.content.domain.ArchivoAlmacenado;
+import com.innoad.modules.content.domain.EventoArchivoEliminado;
+import com.innoad.modules.content.repository.RepositorioArchivoAlmacenado;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Servicio para gestionar el almacenamiento de archivos (imágenes, videos, etc.)
  * En producción, se recomienda usar un servicio de almacenamiento en la nube como AWS S3, Cloudinary, etc.
+ * <p>
+ * Con innoad.storage.deduplicar los archivos se guardan por contenido: se calcula el SHA-256 mientras
+ * se escribe a un archivo temporal y se mueve a blobs/ab/cd/{hash}, sin extensión. Un mismo archivo subido
+ * varias veces (aunque sea con otro nombre o extensión) ocupa disco una sola vez y su URL identifica sus bytes.
+ * La URL conserva la extensión del nombre original (blobs/ab/cd/{hash}.ext) sólo para el tipo de contenido
+ * al entregarlo; el tipo MIME queda además en archivos_almacenados.
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ServicioAlmacenamiento {
 
+    /**
+     * Ruta relativa de un blob: blobs/ab/cd/{hash}, opcionalmente con la extensión de la URL
+     */
+    private static final Pattern PATRON_BLOB =
+            Pattern.compile("^blobs/([0-9a-f]{2})/([0-9a-f]{2})/([0-9a-f]{64})(?:\\.[a-z0-9]{1,10})?$");
+
+    private static final Pattern PATRON_EXTENSION = Pattern.compile("[A-Za-z0-9]{1,10}");
+
+    private static final int CANDADOS = 64;
+
+    private final RepositorioArchivoAlmacenado repositorioArchivoAlmacenado;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher publicadorEventos;
+
     @Value("${innoad.storage.directory:uploads}")
     private String directorioAlmacenamiento;
 
     @Value("${innoad.storage.base-url:http://localhost:8081/uploads}")
     private String urlBase;
 
+    @Value("${innoad.storage.deduplicar:true}")
+    private boolean deduplicar;
+
+    @Value("${innoad.storage.gracia-minutos:60}")
+    private long graciaMinutos;
+
+    /**
+     * Serializa la subida y la limpieza de una misma ruta dentro de este proceso
+     */
+    private final Object[] candados = crearCandados();
+
+    /**
+     * Los blobs se guardaban como {hash}.ext: se renombran a {hash} (si ya existe, sobra el duplicado).
+     * Los registros de archivos_almacenados se migran en DATABASE-MIGRATIONS.sql.
+     */
+    @PostConstruct
+    public void migrarBlobsConExtension() {
+        Path blobs = Paths.get(directorioAlmacenamiento).resolve("blobs");
+        if (!deduplicar || !Files.isDirectory(blobs)) {
+            return;
+        }
+        int migrados = 0;
+        try (Stream<Path> archivos = Files.walk(blobs, 3)) {
+            for (Path archivo : archivos.filter(Files::isRegularFile).toList()) {
+                String nombre = archivo.getFileName().toString();
+                int punto = nombre.indexOf('.');
+                String ruta = "blobs/" + blobs.relativize(archivo).toString().replace('\\', '/');
+                if (punto != 64 || hashDeRuta(ruta) == null) {
+                    continue;
+                }
+                Path destino = archivo.resolveSibling(nombre.substring(0, punto));
+                if (Files.exists(destino)) {
+                    Files.delete(archivo);
+                } else {
+                    mover(archivo, destino);
+                }
+                migrados++;
+            }
+        } catch (IOException e) {
+            log.warn("No se pudieron migrar los blobs con extensión: {}", e.getMessage());
+        }
+        if (migrados > 0) {
+            log.info("Blobs con extensión migrados a su ruta por hash: {}", migrados);
+        }
+    }
+
     /**
      * Almacena un archivo y retorna la URL pública
      */
     public String almacenarArchivo(MultipartFile archivo) throws IOException {
+        return almacenar(archivo).url();
+    }
+
+    /**
+     * Almacena un archivo y retorna su URL pública, hash y tamaño.
+     * En modo deduplicado el archivo queda sin referencias: quien lo use debe llamar a agregarReferencia.
+     */
+    public ResultadoAlmacenamiento almacenar(MultipartFile archivo) throws IOException {
         // Validar que el archivo no esté vacío
         if (archivo.isEmpty()) {
             throw new IllegalArgumentException("El archivo está vacío");
         }
 
-        // Crear directorio si no existe
-        Path directorio = Paths.get(directorioAlmacenamiento);
-        if (!Files.exists(directorio)) {
-            Files.createDirectories(directorio);
-            log.info("Directorio de almacenamiento creado: {}", directorio.toAbsolutePath());
+        try (InputStream entrada = archivo.getInputStream()) {
+            return almacenar(entrada, archivo.getOriginalFilename(), archivo.getContentType());
+        }
+    }
+
+    /**
+     * Almacena el contenido de un flujo (se lee una sola vez, sin cargarlo en memoria)
+     */
+    public ResultadoAlmacenamiento almacenar(InputStream entrada, String nombreOriginal, String tipoMime) throws IOException {
+        return almacenarFlujo(entrada, obtenerExtension(nombreOriginal), tipoMime, nombreOriginal);
+    }
+
+    /**
+     * Almacena una imagen validando su contenido real y no el tipo declarado por el cliente:
+     * el tipo se detecta por sus primeros bytes (JPEG, PNG, GIF o WEBP) y el tamaño máximo
+     * se controla mientras se escribe, sin cargar el archivo en memoria.
+     */
+    public ResultadoAlmacenamiento almacenarImagen(MultipartFile archivo, long tamanoMaximoBytes) throws IOException {
+        if (archivo.isEmpty()) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        if (archivo.getSize() > tamanoMaximoBytes) {
+            throw new IllegalArgumentException("El archivo excede el tamaño máximo de " + tamanoMaximoBytes / (1024 * 1024) + " MB");
+        }
+
+        try (InputStream entrada = new BufferedInputStream(archivo.getInputStream())) {
+            entrada.mark(TipoImagen.TAMANO_CABECERA);
+            byte[] cabecera = entrada.readNBytes(TipoImagen.TAMANO_CABECERA);
+            entrada.reset();
+
+            TipoImagen tipo = TipoImagen.detectar(cabecera);
+            if (tipo == null) {
+                throw new IllegalArgumentException("El contenido del archivo no es una imagen JPEG, PNG, GIF o WEBP");
+            }
+            return almacenarFlujo(new EntradaLimitada(entrada, tamanoMaximoBytes),
+                    tipo.extension, tipo.tipoMime, archivo.getOriginalFilename());
         }
+    }
+
+    /**
+     * Incorpora al almacenamiento un archivo ya escrito en disco (por ejemplo, una subida por fragmentos).
+     * El archivo se mueve (no se copia) y deja de existir en su ubicación original.
+     * El hash debe haber sido calculado y verificado por quien llama.
+     */
+    public ResultadoAlmacenamiento incorporar(Path archivo, String hash, String nombreOriginal, String tipoMime) throws IOException {
+        Path directorio = prepararDirectorio();
+        String extension = obtenerExtension(nombreOriginal);
+        long tamano = Files.size(archivo);
+
+        try {
+            if (!deduplicar) {
+                String nombreUnico = UUID.randomUUID() + extension;
+                mover(archivo, directorio.resolve(nombreUnico));
+                log.info("Archivo incorporado: {} -> {}", nombreOriginal, nombreUnico);
+                return new ResultadoAlmacenamiento(urlBase + "/" + nombreUnico, hash, tamano);
+            }
 
-        // Generar nombre único para el archivo
-        String nombreOriginal = archivo.getOriginalFilename();
-        String extension = "";
-        if (nombreOriginal != null && nombreOriginal.contains(".")) {
-            extension = nombreOriginal.substring(nombreOriginal.lastIndexOf("."));
+            String ruta = rutaBlob(hash);
+            boolean nuevo = publicar(directorio, ruta, archivo, hash, tamano, tipoMime);
+            log.info("Archivo incorporado: {} -> {} ({})", nombreOriginal, ruta, nuevo ? "nuevo" : "ya existía");
+            return new ResultadoAlmacenamiento(urlBase + "/" + ruta + extension, hash, tamano);
+        } finally {
+            Files.deleteIfExists(archivo);
         }
-        String nombreUnico = UUID.randomUUID().toString() + extension;
+    }
 
-        // Guardar el archivo
-        Path rutaDestino = directorio.resolve(nombreUnico);
-        Files.copy(archivo.getInputStream(), rutaDestino, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Tipo MIME real de un archivo en disco según sus primeros bytes
+     * (null si no es una imagen JPEG, PNG, GIF o WEBP ni un video MP4, MOV, WEBM, AVI u OGG)
+     */
+    public String detectarTipoMime(Path archivo) throws IOException {
+        byte[] cabecera;
+        try (InputStream entrada = Files.newInputStream(archivo)) {
+            cabecera = entrada.readNBytes(TipoImagen.TAMANO_CABECERA);
+        }
+        TipoImagen imagen = TipoImagen.detectar(cabecera);
+        if (imagen != null) {
+            return imagen.tipoMime;
+        }
+        TipoVideo video = TipoVideo.detectar(cabecera);
+        return video != null ? video.tipoMime : null;
+    }
 
-        log.info("Archivo almacenado: {} -> {}", nombreOriginal, nombreUnico);
+    /**
+     * Directorio para archivos temporales (en el mismo disco que el almacenamiento, para poder moverlos)
+     */
+    public Path obtenerDirectorioTemporal(String nombre) throws IOException {
+        return Files.createDirectories(prepararDirectorio().resolve(".tmp").resolve(nombre));
+    }
 
-        // Retornar URL pública
-        return urlBase + "/" + nombreUnico;
+    /**
+     * Registra que un contenido o publicación usa el archivo de la URL indicada
+     */
+    @Transactional
+    public void agregarReferencia(String url) {
+        String ruta = obtenerRutaBlob(url);
+        if (ruta != null && repositorioArchivoAlmacenado.incrementarReferencias(ruta, LocalDateTime.now()) == 0) {
+            log.warn("Referencia a un archivo no registrado: {}", ruta);
+        }
     }
 
     /**
-     * Elimina un archivo del almacenamiento
+     * Elimina un archivo del almacenamiento.
+     * Los archivos deduplicados sólo pierden una referencia; se borran cuando nadie más los usa.
      */
+    @Transactional
     public void eliminarArchivo(String url) {
+        String ruta = obtenerRutaBlob(url);
+        if (ruta != null) {
+            repositorioArchivoAlmacenado.decrementarReferencias(ruta, LocalDateTime.now());
+            log.info("Referencia a archivo liberada: {}", ruta);
+            return;
+        }
+
         try {
             // Extraer nombre del archivo de la URL
             String nombreArchivo = url.substring(url.lastIndexOf("/") + 1);
@@ -80,6 +265,89 @@ public class ServicioAlmacenamiento {
         }
     }
 
+    /**
+     * Retorna el SHA-256 de un archivo deduplicado a partir de su URL pública o de su ruta
+     * relativa al almacenamiento (null si no lo es)
+     */
+    public String extraerHash(String url) {
+        if (url == null) {
+            return null;
+        }
+        return hashDeRuta(url.startsWith(urlBase + "/") ? url.substring(urlBase.length() + 1) : url);
+    }
+
+    /**
+     * Ruta en disco de un archivo del almacenamiento a partir de su URL pública (null si no es local)
+     */
+    public Path obtenerRutaLocal(String url) {
+        if (url == null || !url.startsWith(urlBase + "/")) {
+            return null;
+        }
+        Path base = Paths.get(directorioAlmacenamiento).toAbsolutePath().normalize();
+        Path archivo = base.resolve(resolverRutaAlmacenada(url.substring(urlBase.length() + 1))).normalize();
+        return archivo.startsWith(base) && !archivo.equals(base) ? archivo : null;
+    }
+
+    /**
+     * Ruta relativa en disco de una ruta pedida: los blobs se guardan sin la extensión que lleva su URL
+     */
+    public String resolverRutaAlmacenada(String ruta) {
+        String rutaBlob = obtenerRutaBlob(ruta);
+        return rutaBlob != null ? rutaBlob : ruta;
+    }
+
+    /**
+     * Tipo MIME registrado de un blob (null si la ruta no es un blob o no está registrado)
+     */
+    @Transactional(readOnly = true)
+    public String buscarTipoMimeBlob(String ruta) {
+        String rutaBlob = obtenerRutaBlob(ruta);
+        if (rutaBlob == null) {
+            return null;
+        }
+        return repositorioArchivoAlmacenado.findById(rutaBlob).map(ArchivoAlmacenado::getTipoMime).orElse(null);
+    }
+
+    /**
+     * Borra los archivos que quedaron sin referencias por más del período de gracia
+     * (y avisa con EventoArchivoEliminado para que se borren sus variantes)
+     */
+    @Scheduled(fixedDelayString = "${innoad.storage.intervalo-limpieza-ms:3600000}")
+    public void limpiarArchivosSinReferencias() {
+        if (!deduplicar) {
+            return;
+        }
+
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(graciaMinutos);
+        List<String> rutas = repositorioArchivoAlmacenado.findRutasSinReferencias(limite);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int eliminados = 0;
+
+        for (String ruta : rutas) {
+            synchronized (candado(ruta)) {
+                // El DELETE vuelve a verificar las referencias: si alguien lo usó en el intermedio no se borra
+                Integer filas = transaccion.execute(estado ->
+                        repositorioArchivoAlmacenado.eliminarSiSinReferencias(ruta, limite));
+                if (filas != null && filas > 0) {
+                    try {
+                        Files.deleteIfExists(Paths.get(directorioAlmacenamiento).resolve(ruta));
+                        eliminados++;
+                    } catch (IOException e) {
+                        log.error("Error al eliminar archivo sin referencias: {}", ruta, e);
+                    }
+                    String hash = hashDeRuta(ruta);
+                    if (hash != null) {
+                        publicadorEventos.publishEvent(new EventoArchivoEliminado(hash));
+                    }
+                }
+            }
+        }
+
+        if (eliminados > 0) {
+            log.info("Archivos sin referencias eliminados: {}", eliminados);
+        }
+    }
+
     /**
      * Valida que el archivo sea una imagen
      */
@@ -118,4 +386,274 @@ public class ServicioAlmacenamiento {
     public long obtenerTamano(MultipartFile archivo) {
         return archivo.getSize();
     }
+
+    // Métodos auxiliares
+
+    /**
+     * Escribe el flujo a un temporal calculando su SHA-256 al vuelo y lo publica en su ruta definitiva
+     */
+    private ResultadoAlmacenamiento almacenarFlujo(InputStream entrada, String extension, String tipoMime,
+                                                   String nombreOriginal) throws IOException {
+        Path directorio = prepararDirectorio();
+        Path directorioTemporal = Files.createDirectories(directorio.resolve(".tmp"));
+        Path temporal = Files.createTempFile(directorioTemporal, "subida-", ".part");
+        try {
+            MessageDigest digest = nuevoDigest();
+            long tamano;
+            try (InputStream conDigest = new DigestInputStream(entrada, digest)) {
+                tamano = Files.copy(conDigest, temporal, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            if (!deduplicar) {
+                // Generar nombre único para el archivo
+                String nombreUnico = UUID.randomUUID() + extension;
+                mover(temporal, directorio.resolve(nombreUnico));
+                log.info("Archivo almacenado: {} -> {}", nombreOriginal, nombreUnico);
+                return new ResultadoAlmacenamiento(urlBase + "/" + nombreUnico, hash, tamano);
+            }
+
+            String ruta = rutaBlob(hash);
+            boolean nuevo = publicar(directorio, ruta, temporal, hash, tamano, tipoMime);
+            log.info("Archivo almacenado: {} -> {} ({})", nombreOriginal, ruta, nuevo ? "nuevo" : "ya existía");
+            return new ResultadoAlmacenamiento(urlBase + "/" + ruta + extension, hash, tamano);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Registra el archivo y lo mueve a su ruta definitiva si aún no está en disco.
+     * El registro se confirma en su propia transacción antes de soltar el candado,
+     * así la limpieza no puede borrar un archivo recién subido.
+     *
+     * @return true si el archivo no existía
+     */
+    private boolean publicar(Path directorio, String ruta, Path temporal, String hash, long tamano, String tipoMime) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        synchronized (candado(ruta)) {
+            return Boolean.TRUE.equals(transaccion.execute(estado -> {
+                LocalDateTime ahora = LocalDateTime.now();
+                if (repositorioArchivoAlmacenado.renovar(ruta, ahora) == 0) {
+                    repositorioArchivoAlmacenado.save(ArchivoAlmacenado.builder()
+                            .ruta(ruta)
+                            .hash(hash)
+                            .tamano(tamano)
+                            .tipoMime(tipoMime)
+                            .fechaCreacion(ahora)
+                            .fechaActualizacion(ahora)
+                            .build());
+                }
+
+                Path destino = directorio.resolve(ruta);
+                if (Files.exists(destino)) {
+                    return false;
+                }
+                try {
+                    Files.createDirectories(destino.getParent());
+                    mover(temporal, destino);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }));
+        }
+    }
+
+    private static void mover(Path origen, Path destino) throws IOException {
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path prepararDirectorio() throws IOException {
+        // Crear directorio si no existe
+        Path directorio = Paths.get(directorioAlmacenamiento);
+        if (!Files.exists(directorio)) {
+            Files.createDirectories(directorio);
+            log.info("Directorio de almacenamiento creado: {}", directorio.toAbsolutePath());
+        }
+        return directorio;
+    }
+
+    /**
+     * Extensión del nombre original en minúsculas (vacía si no es alfanumérica)
+     */
+    private static String obtenerExtension(String nombreOriginal) {
+        if (nombreOriginal == null || !nombreOriginal.contains(".")) {
+            return "";
+        }
+        String extension = nombreOriginal.substring(nombreOriginal.lastIndexOf('.') + 1);
+        return PATRON_EXTENSION.matcher(extension).matches() ? "." + extension.toLowerCase() : "";
+    }
+
+    private static String rutaBlob(String hash) {
+        return "blobs/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    /**
+     * Ruta del blob (sin extensión) de una URL o ruta; es la clave en archivos_almacenados
+     */
+    private String obtenerRutaBlob(String url) {
+        String hash = extraerHash(url);
+        return hash != null ? rutaBlob(hash) : null;
+    }
+
+    /**
+     * Hash de una ruta relativa de blob; null si no lo es o si sus directorios
+     * no son los primeros bytes del hash
+     */
+    private static String hashDeRuta(String ruta) {
+        Matcher matcher = PATRON_BLOB.matcher(ruta);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String hash = matcher.group(3);
+        return hash.startsWith(matcher.group(1) + matcher.group(2)) ? hash : null;
+    }
+
+    private Object candado(String ruta) {
+        return candados[Math.floorMod(ruta.hashCode(), CANDADOS)];
+    }
+
+    private static Object[] crearCandados() {
+        Object[] candados = new Object[CANDADOS];
+        for (int i = 0; i < CANDADOS; i++) {
+            candados[i] = new Object();
+        }
+        return candados;
+    }
+
+    private static MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Formatos de imagen aceptados, reconocidos por su firma (magic bytes)
+     */
+    private enum TipoImagen {
+        JPEG("image/jpeg", ".jpg"),
+        PNG("image/png", ".png"),
+        GIF("image/gif", ".gif"),
+        WEBP("image/webp", ".webp");
+
+        private static final int TAMANO_CABECERA = 12;
+
+        private final String tipoMime;
+        private final String extension;
+
+        TipoImagen(String tipoMime, String extension) {
+            this.tipoMime = tipoMime;
+            this.extension = extension;
+        }
+
+        private static TipoImagen detectar(byte[] c) {
+            if (c.length >= 3 && (c[0] & 0xFF) == 0xFF && (c[1] & 0xFF) == 0xD8 && (c[2] & 0xFF) == 0xFF) {
+                return JPEG;
+            }
+            if (c.length >= 8 && (c[0] & 0xFF) == 0x89 && c[1] == 'P' && c[2] == 'N' && c[3] == 'G'
+                    && c[4] == 0x0D && c[5] == 0x0A && c[6] == 0x1A && c[7] == 0x0A) {
+                return PNG;
+            }
+            if (c.length >= 6 && c[0] == 'G' && c[1] == 'I' && c[2] == 'F' && c[3] == '8'
+                    && (c[4] == '7' || c[4] == '9') && c[5] == 'a') {
+                return GIF;
+            }
+            if (c.length >= 12 && c[0] == 'R' && c[1] == 'I' && c[2] == 'F' && c[3] == 'F'
+                    && c[8] == 'W' && c[9] == 'E' && c[10] == 'B' && c[11] == 'P') {
+                return WEBP;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Formatos de video aceptados, reconocidos por su firma (magic bytes)
+     */
+    private enum TipoVideo {
+        MP4("video/mp4"),
+        QUICKTIME("video/quicktime"),
+        WEBM("video/webm"),
+        AVI("video/x-msvideo"),
+        OGG("video/ogg");
+
+        private final String tipoMime;
+
+        TipoVideo(String tipoMime) {
+            this.tipoMime = tipoMime;
+        }
+
+        private static TipoVideo detectar(byte[] c) {
+            // ISO BMFF: caja "ftyp" tras el tamaño; la marca "qt  " es QuickTime
+            if (c.length >= 12 && c[4] == 'f' && c[5] == 't' && c[6] == 'y' && c[7] == 'p') {
+                return c[8] == 'q' && c[9] == 't' ? QUICKTIME : MP4;
+            }
+            if (c.length >= 4 && (c[0] & 0xFF) == 0x1A && (c[1] & 0xFF) == 0x45
+                    && (c[2] & 0xFF) == 0xDF && (c[3] & 0xFF) == 0xA3) {
+                return WEBM;
+            }
+            if (c.length >= 12 && c[0] == 'R' && c[1] == 'I' && c[2] == 'F' && c[3] == 'F'
+                    && c[8] == 'A' && c[9] == 'V' && c[10] == 'I' && c[11] == ' ') {
+                return AVI;
+            }
+            if (c.length >= 4 && c[0] == 'O' && c[1] == 'g' && c[2] == 'g' && c[3] == 'S') {
+                return OGG;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Flujo que falla en cuanto se lee más del máximo permitido
+     */
+    private static final class EntradaLimitada extends FilterInputStream {
+        private final long maximo;
+        private long leidos;
+
+        private EntradaLimitada(InputStream entrada, long maximo) {
+            super(entrada);
+            this.maximo = maximo;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int valor = super.read();
+            if (valor != -1) {
+                contar(1);
+            }
+            return valor;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int cantidad = super.read(b, off, len);
+            if (cantidad > 0) {
+                contar(cantidad);
+            }
+            return cantidad;
+        }
+
+        private void contar(int cantidad) {
+            leidos += cantidad;
+            if (leidos > maximo) {
+                throw new IllegalArgumentException("El archivo excede el tamaño máximo de " + maximo / (1024 * 1024) + " MB");
+            }
+        }
+    }
+
+    /**
+     * Resultado de almacenar un archivo
+     *
+     * @param hash SHA-256 en hexadecimal
+     */
+    public record ResultadoAlmacenamiento(String url, String hash, long tamano) {
+    }
 }
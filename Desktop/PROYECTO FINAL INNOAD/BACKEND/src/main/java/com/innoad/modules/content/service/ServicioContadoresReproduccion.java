@@ -0,0 +1,209 @@
+package com.innoad.modules.content.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de reproducciones en memoria (LongAdder por contenido) con escritura periódica de deltas.
+ * Evita el patrón cargar-incrementar-guardar sobre la fila del contenido, que serializa
+ * a todas las pantallas que reproducen un mismo anuncio y pierde incrementos concurrentes.
+ * Los deltas se aplican con UPDATE ... SET veces_reproducido = veces_reproducido + ? por lotes,
+ * y en el mismo ciclo se suman a reproducciones_totales de las campañas activas que incluyen el contenido.
+ * <p>
+ * Una reproducción no indica campaña (sólo contenido y pantalla), así que reproducciones_totales de una
+ * campaña es la suma de las reproducciones de sus contenidos mientras está activa: si un contenido está
+ * en dos campañas activas, cada reproducción cuenta en ambas. Por eso los totales de campañas que comparten
+ * contenidos no deben sumarse entre sí. Antes de estos contadores la columna no se actualizaba con las
+ * reproducciones.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioContadoresReproduccion {
+
+    private static final String SQL_CONTENIDOS =
+            "UPDATE contenidos SET veces_reproducido = COALESCE(veces_reproducido, 0) + ?, " +
+            "ultima_reproduccion = GREATEST(COALESCE(ultima_reproduccion, ?), ?) " +
+            "WHERE id = ?";
+
+    // Cada campaña activa que incluye el contenido recibe el delta completo (ver la documentación de la clase)
+    private static final String SQL_CAMPANAS =
+            "UPDATE campanas SET reproducciones_totales = COALESCE(reproducciones_totales, 0) + ? " +
+            "WHERE estado = 'ACTIVA' " +
+            "AND id IN (SELECT cc.campana_id FROM campana_contenidos cc WHERE cc.contenido_id = ?)";
+
+    /**
+     * Ciclos de escritura sin actividad tras los cuales se libera el contador de un contenido
+     */
+    private static final int CICLOS_INACTIVO_PARA_LIBERAR = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Long, Contador> contadores = new ConcurrentHashMap<>();
+
+    /**
+     * Registra reproducciones de un contenido (sin acceso a la base de datos)
+     */
+    public void registrar(Long contenidoId, long cantidad, LocalDateTime fecha) {
+        if (contenidoId == null || cantidad <= 0) {
+            return;
+        }
+        long fechaMillis = aMillis(fecha != null ? fecha : LocalDateTime.now());
+
+        Contador contador = contadores.computeIfAbsent(contenidoId, id -> new Contador());
+        // La fecha se acumula antes que el conteo: quien vea el conteo también ve una fecha válida
+        contador.ultima.accumulate(fechaMillis);
+        contador.reproducciones.add(cantidad);
+
+        // Si el contador fue liberado en paralelo, rescatar lo que haya quedado en él
+        if (contadores.get(contenidoId) != contador) {
+            long rescatadas = contador.reproducciones.sumThenReset();
+            if (rescatadas > 0) {
+                Contador nuevo = contadores.computeIfAbsent(contenidoId, id -> new Contador());
+                nuevo.ultima.accumulate(contador.ultima.get());
+                nuevo.reproducciones.add(rescatadas);
+            }
+        }
+    }
+
+    /**
+     * Indica si el contenido ya tiene un contador en memoria (ya se registraron reproducciones suyas
+     * hace poco, así que existe): permite no consultar la base de datos en cada reproducción
+     */
+    public boolean estaRegistrado(Long contenidoId) {
+        return contadores.containsKey(contenidoId);
+    }
+
+    /**
+     * Reproducciones aún no persistidas de un contenido
+     */
+    public long obtenerPendientes(Long contenidoId) {
+        Contador contador = contadores.get(contenidoId);
+        return contador != null ? contador.reproducciones.sum() : 0;
+    }
+
+    /**
+     * Reproducciones aún no persistidas de un conjunto de contenidos (p. ej. los de una campaña)
+     */
+    public long obtenerPendientes(Collection<Long> contenidoIds) {
+        long total = 0;
+        for (Long contenidoId : contenidoIds) {
+            total += obtenerPendientes(contenidoId);
+        }
+        return total;
+    }
+
+    /**
+     * Veces reproducido combinando el valor persistido con lo pendiente en memoria
+     */
+    public int obtenerVecesReproducido(Long contenidoId, Integer persistido) {
+        return (int) ((persistido != null ? persistido : 0) + obtenerPendientes(contenidoId));
+    }
+
+    /**
+     * Última reproducción combinando el valor persistido con lo pendiente en memoria
+     */
+    public LocalDateTime obtenerUltimaReproduccion(Long contenidoId, LocalDateTime persistida) {
+        Contador contador = contadores.get(contenidoId);
+        if (contador == null || contador.reproducciones.sum() == 0) {
+            return persistida;
+        }
+        LocalDateTime pendiente = LocalDateTime.ofInstant(Instant.ofEpochMilli(contador.ultima.get()), ZoneId.systemDefault());
+        return persistida == null || pendiente.isAfter(persistida) ? pendiente : persistida;
+    }
+
+    /**
+     * Escribe los deltas acumulados en contenidos y campañas
+     */
+    @Scheduled(fixedDelayString = "${innoad.reproducciones.intervalo-escritura-ms:10000}")
+    public void escribirDeltas() {
+        List<Delta> deltas = new ArrayList<>();
+
+        contadores.forEach((contenidoId, contador) -> {
+            long cantidad = contador.reproducciones.sumThenReset();
+            if (cantidad == 0) {
+                if (++contador.ciclosInactivo >= CICLOS_INACTIVO_PARA_LIBERAR && contadores.remove(contenidoId, contador)) {
+                    // Lo que haya llegado justo antes de liberarlo se escribe igual
+                    cantidad = contador.reproducciones.sumThenReset();
+                }
+                if (cantidad == 0) {
+                    return;
+                }
+            }
+            // La última reproducción sólo crece, por eso no se reinicia (GREATEST la deja igual en la base)
+            contador.ciclosInactivo = 0;
+            deltas.add(new Delta(contenidoId, cantidad, contador.ultima.get()));
+        });
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+                jdbcTemplate.batchUpdate(SQL_CONTENIDOS, deltas, 500, (ps, delta) -> {
+                    Timestamp ultima = Timestamp.valueOf(aFecha(delta.ultimaMillis()));
+                    ps.setLong(1, delta.cantidad());
+                    ps.setTimestamp(2, ultima);
+                    ps.setTimestamp(3, ultima);
+                    ps.setLong(4, delta.contenidoId());
+                });
+                jdbcTemplate.batchUpdate(SQL_CAMPANAS, deltas, 500, (ps, delta) -> {
+                    ps.setLong(1, delta.cantidad());
+                    ps.setLong(2, delta.contenidoId());
+                });
+            });
+            log.debug("Deltas de reproducciones persistidos: {} contenidos", deltas.size());
+        } catch (Exception e) {
+            // Devolver los deltas a memoria para el siguiente ciclo
+            deltas.forEach(delta -> registrar(delta.contenidoId(), delta.cantidad(), aFecha(delta.ultimaMillis())));
+            log.error("Error al persistir reproducciones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Persiste lo pendiente antes de detener la aplicación
+     */
+    @PreDestroy
+    public void alDetener() {
+        escribirDeltas();
+    }
+
+    // Métodos auxiliares
+
+    private static long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime aFecha(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static final class Contador {
+        private final LongAdder reproducciones = new LongAdder();
+        private final LongAccumulator ultima = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private volatile int ciclosInactivo;
+    }
+
+    private record Delta(Long contenidoId, long cantidad, long ultimaMillis) {
+    }
+}
@@ -2,15 +2,24 @@ package com.innoad.modules.content.service;
 
 import com.innoad.dto.solicitud.SolicitudContenido;
 import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.dto.respuesta.RespuestaDeltaPlaylist;
 import com.innoad.modules.content.domain.Contenido;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
 import com.innoad.modules.screens.domain.Pantalla;
+import com.innoad.modules.screens.domain.ResumenPantalla;
 import com.innoad.modules.auth.domain.Usuario;
 import com.innoad.modules.content.repository.RepositorioContenido;
 import com.innoad.modules.screens.repository.RepositorioPantalla;
+import com.innoad.modules.screens.service.CachePantallas;
+import com.innoad.modules.screens.service.ServicioVersionPlaylist;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -29,6 +38,20 @@ public class ServicioContenido {
     private final RepositorioContenido repositorioContenido;
     private final RepositorioPantalla repositorioPantalla;
     private final ServicioAlmacenamiento servicioAlmacenamiento;
+    private final ServicioDerivadosImagen servicioDerivadosImagen;
+    private final ServicioVersionPlaylist servicioVersionPlaylist;
+    private final ApplicationEventPublisher publicadorEventos;
+    private final CachePlaylistPantallas cachePlaylistPantallas;
+    private final ServicioContadoresReproduccion servicioContadores;
+    private final DiarioCambiosPlaylist diarioCambiosPlaylist;
+    private final PlatformTransactionManager transactionManager;
+    private final CachePantallas cachePantallas;
+
+    /**
+     * Minutos de anticipación con que se envían los contenidos próximos a activarse (0 = sin precarga)
+     */
+    @Value("${innoad.pantallas.sincronizacion.horizonte-precarga-minutos:60}")
+    private long horizontePrecargaMinutos;
 
     /**
      * Crea un nuevo contenido
@@ -53,6 +76,7 @@ public class ServicioContenido {
                 .nombreArchivo(solicitud.getNombreArchivo())
                 .tamanoArchivo(solicitud.getTamanoArchivo())
                 .tipoMime(solicitud.getTipoMime())
+                .hashArchivo(servicioAlmacenamiento.extraerHash(solicitud.getUrlArchivo()))
                 .contenidoTexto(solicitud.getContenidoTexto())
                 .contenidoHtml(solicitud.getContenidoHtml())
                 .duracionSegundos(solicitud.getDuracionSegundos())
@@ -70,6 +94,8 @@ public class ServicioContenido {
                 .build();
 
         Contenido contenidoGuardado = repositorioContenido.save(contenido);
+        servicioAlmacenamiento.agregarReferencia(contenidoGuardado.getUrlArchivo());
+        publicadorEventos.publishEvent(EventoPlaylistModificado.de(pantalla.getId()));
         log.info("Contenido creado: {} - Tipo: {} - Usuario: {}",
                 contenidoGuardado.getTitulo(), contenidoGuardado.getTipo(), usuario.getNombreUsuario());
 
@@ -151,6 +177,7 @@ public class ServicioContenido {
         contenido.setFechaActualizacion(LocalDateTime.now());
 
         Contenido contenidoActualizado = repositorioContenido.save(contenido);
+        publicadorEventos.publishEvent(EventoPlaylistModificado.de(contenido.getPantalla().getId()));
         log.info("Contenido actualizado: {} - Usuario: {}",
                 contenidoActualizado.getTitulo(), usuario.getNombreUsuario());
 
@@ -223,42 +250,129 @@ public class ServicioContenido {
             throw new IllegalArgumentException("No tienes permiso para eliminar este contenido");
         }
 
-        // Eliminar archivo si existe
+        // Eliminar archivo si existe (si está deduplicado sólo se libera la referencia)
         if (contenido.getUrlArchivo() != null) {
             servicioAlmacenamiento.eliminarArchivo(contenido.getUrlArchivo());
         }
 
         repositorioContenido.delete(contenido);
+        publicadorEventos.publishEvent(EventoPlaylistModificado.de(contenido.getPantalla().getId()));
         log.info("Contenido eliminado: {} - Usuario: {}", contenido.getTitulo(), usuario.getNombreUsuario());
     }
 
     /**
      * Obtiene contenidos activos de una pantalla (para Raspberry Pi)
      */
-    @Transactional(readOnly = true)
     public List<RespuestaContenido> obtenerContenidosActivosParaPantalla(String codigoIdentificacion) {
-        Pantalla pantalla = repositorioPantalla.findByCodigoIdentificacion(codigoIdentificacion)
-                .orElseThrow(() -> new IllegalArgumentException("Pantalla no encontrada"));
+        return obtenerPlaylistParaPantalla(codigoIdentificacion).getContenidos();
+    }
 
-        List<Contenido> contenidos = repositorioContenido.findContenidosActivosByPantallaId(
-                pantalla.getId(),
-                LocalDateTime.now()
-        );
+    /**
+     * Obtiene la lista de reproducción de una pantalla junto con su versión (ETag) y vigencia.
+     * Si está en caché y sigue vigente no se abre transacción ni se consulta la base de datos.
+     */
+    public PlaylistPantalla obtenerPlaylistParaPantalla(String codigoIdentificacion) {
+        Long pantallaId = servicioVersionPlaylist.obtenerPantallaId(codigoIdentificacion);
+        if (pantallaId != null) {
+            PlaylistPantalla enCache = cachePlaylistPantallas.obtener(pantallaId);
+            if (enCache != null) {
+                return enCache;
+            }
+        }
 
-        return contenidos.stream()
-                .map(this::convertirARespuesta)
-                .collect(Collectors.toList());
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setReadOnly(true);
+        PlaylistPantalla playlist = transaccion.execute(estado -> cargarPlaylist(codigoIdentificacion));
+        cachePlaylistPantallas.guardar(playlist);
+        diarioCambiosPlaylist.registrar(playlist);
+        return playlist;
     }
 
     /**
-     * Registra la reproducción de un contenido
+     * Obtiene sólo los contenidos agregados, actualizados y eliminados desde la versión que tiene la pantalla
+     *
+     * @param etagPantalla ETag de la última sincronización de la pantalla (null para lista completa)
+     */
+    public RespuestaDeltaPlaylist obtenerDeltaParaPantalla(String codigoIdentificacion, String etagPantalla) {
+        PlaylistPantalla playlist = obtenerPlaylistParaPantalla(codigoIdentificacion);
+        Long desde = servicioVersionPlaylist.extraerVersion(etagPantalla, playlist.getPantallaId());
+        return diarioCambiosPlaylist.calcularDelta(playlist, desde);
+    }
+
+    /**
+     * Construye la lista de reproducción desde la base de datos
+     */
+    private PlaylistPantalla cargarPlaylist(String codigoIdentificacion) {
+        ResumenPantalla pantalla = cachePantallas.obtener(codigoIdentificacion);
+        Long pantallaId = pantalla.getId();
+
+        // La versión se lee antes de consultar para no etiquetar datos nuevos con una versión vieja
+        long version = servicioVersionPlaylist.obtenerVersion(pantallaId);
+        LocalDateTime ahora = LocalDateTime.now();
+
+        List<Contenido> contenidos = repositorioContenido.findContenidosActivosByPantallaId(pantallaId, ahora);
+
+        // Contenidos que se activan pronto, para que las pantallas los precarguen y no los descarguen todas a la vez
+        LocalDateTime limitePrecarga = ahora.plusMinutes(horizontePrecargaMinutos);
+        List<Contenido> proximos = horizontePrecargaMinutos > 0
+                ? repositorioContenido.findContenidosProximosByPantallaId(pantallaId, ahora, limitePrecarga)
+                : List.of();
+
+        // La lista deja de ser válida cuando algún contenido termina o comienza su período
+        LocalDateTime vigenteHasta = repositorioContenido.findProximoInicioByPantallaId(pantallaId, ahora);
+        for (Contenido contenido : contenidos) {
+            if (contenido.getFechaFin() != null
+                    && (vigenteHasta == null || contenido.getFechaFin().isBefore(vigenteHasta))) {
+                vigenteHasta = contenido.getFechaFin();
+            }
+        }
+
+        // ...o cuando un contenido entra en el horizonte de precarga
+        if (horizontePrecargaMinutos > 0) {
+            LocalDateTime siguienteFueraDelHorizonte =
+                    repositorioContenido.findProximoInicioByPantallaId(pantallaId, limitePrecarga);
+            if (siguienteFueraDelHorizonte != null) {
+                LocalDateTime entraAlHorizonte = siguienteFueraDelHorizonte.minusMinutes(horizontePrecargaMinutos);
+                if (vigenteHasta == null || entraAlHorizonte.isBefore(vigenteHasta)) {
+                    vigenteHasta = entraAlHorizonte;
+                }
+            }
+        }
+
+        String etag = servicioVersionPlaylist.registrarSincronizacion(
+                codigoIdentificacion, pantallaId, version, vigenteHasta);
+
+        return PlaylistPantalla.builder()
+                .pantallaId(pantallaId)
+                .version(version)
+                .etag(etag)
+                .vigenteHasta(vigenteHasta)
+                // Las imágenes apuntan a la variante acorde a la resolución de la pantalla
+                .contenidos(contenidos.stream()
+                        .map(contenido -> servicioDerivadosImagen.ajustarParaPantalla(
+                                convertirARespuesta(contenido), pantalla))
+                        .toList())
+                .proximos(proximos.stream()
+                        .map(contenido -> {
+                            RespuestaContenido respuesta = convertirARespuesta(contenido);
+                            respuesta.setActivaDesde(contenido.getFechaInicio());
+                            return servicioDerivadosImagen.ajustarParaPantalla(respuesta, pantalla);
+                        })
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Registra la reproducción de un contenido.
+     * El conteo se acumula en memoria y se persiste por lotes (ver ServicioContadoresReproduccion).
+     * Sólo se consulta la existencia del contenido cuando aún no tiene contador en memoria.
      */
-    @Transactional
     public void registrarReproduccion(Long contenidoId) {
-        Contenido contenido = obtenerContenidoPorId(contenidoId);
-        contenido.incrementarReproducciones();
-        repositorioContenido.save(contenido);
-        log.debug("Reproducción registrada - Contenido: {}", contenido.getTitulo());
+        if (!servicioContadores.estaRegistrado(contenidoId) && !repositorioContenido.existsById(contenidoId)) {
+            throw new IllegalArgumentException("Contenido no encontrado");
+        }
+        servicioContadores.registrar(contenidoId, 1, LocalDateTime.now());
+        log.debug("Reproducción registrada - Contenido: {}", contenidoId);
     }
 
     /**
@@ -277,6 +391,7 @@ public class ServicioContenido {
         contenido.setFechaActualizacion(LocalDateTime.now());
 
         Contenido contenidoActualizado = repositorioContenido.save(contenido);
+        publicadorEventos.publishEvent(EventoPlaylistModificado.de(contenido.getPantalla().getId()));
         log.info("Estado de contenido cambiado: {} -> {} - Usuario: {}",
                 contenido.getTitulo(), nuevoEstado, usuario.getNombreUsuario());
 
@@ -300,6 +415,7 @@ public class ServicioContenido {
                 .nombreArchivo(contenido.getNombreArchivo())
                 .tamanoArchivo(contenido.getTamanoArchivo())
                 .tipoMime(contenido.getTipoMime())
+                .hashArchivo(contenido.getHashArchivo())
                 .contenidoTexto(contenido.getContenidoTexto())
                 .contenidoHtml(contenido.getContenidoHtml())
                 .duracionSegundos(contenido.getDuracionSegundos())
@@ -314,8 +430,10 @@ public class ServicioContenido {
                 .nombreUsuario(contenido.getUsuario().getNombreUsuario())
                 .fechaCreacion(contenido.getFechaCreacion())
                 .fechaActualizacion(contenido.getFechaActualizacion())
-                .vecesReproducido(contenido.getVecesReproducido())
-                .ultimaReproduccion(contenido.getUltimaReproduccion())
+                .vecesReproducido(servicioContadores.obtenerVecesReproducido(
+                        contenido.getId(), contenido.getVecesReproducido()))
+                .ultimaReproduccion(servicioContadores.obtenerUltimaReproduccion(
+                        contenido.getId(), contenido.getUltimaReproduccion()))
                 .tags(contenido.getTags())
                 .estaActivo(contenido.estaActivo())
                 .enPeriodoPublicacion(contenido.enPeriodoPublicacion())
@@ -0,0 +1,504 @@
+package com.innoad.modules.content.service;
+
+import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.modules.content.domain.EventoArchivoEliminado;
+import com.innoad.modules.content.repository.RepositorioContenido;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import com.innoad.modules.screens.domain.ResumenPantalla;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Genera variantes reducidas de las imágenes según la resolución y orientación de cada pantalla.
+ * Una Raspberry Pi de 1366x768 no necesita decodificar una foto de 6000px: la playlist le entrega
+ * la variante que mejor se ajusta a su pantalla.
+ * <p>
+ * Las variantes se generan en segundo plano (un solo hilo, para no competir con las solicitudes);
+ * mientras tanto la pantalla recibe el original y, al terminar, su playlist cambia de versión.
+ * Se guardan en derivados/ dentro del almacenamiento con una cuota de disco: al superarla se borran
+ * las menos usadas (LRU) y las pantallas que las usaban vuelven a sincronizar. Cuando la limpieza del
+ * almacenamiento borra un original, se borran también sus variantes.
+ * Sólo aplica a imágenes del almacenamiento deduplicado (identificadas por su hash).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioDerivadosImagen {
+
+    private static final Pattern PATRON_RESOLUCION = Pattern.compile("(\\d{2,5})\\s*[xX×]\\s*(\\d{2,5})");
+    private static final Pattern PATRON_DERIVADO = Pattern.compile("(\\d+)x(\\d+)\\.(jpg|png)");
+    private static final String DIRECTORIO_DERIVADOS = "derivados";
+    private static final int MAX_DESCARTADOS = 10000;
+
+    private final ServicioAlmacenamiento servicioAlmacenamiento;
+    private final RepositorioContenido repositorioContenido;
+    private final ApplicationEventPublisher publicadorEventos;
+
+    @Value("${innoad.storage.directory:uploads}")
+    private String directorioAlmacenamiento;
+
+    @Value("${innoad.storage.base-url:http://localhost:8081/uploads}")
+    private String urlBase;
+
+    @Value("${innoad.contenidos.derivados.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${innoad.contenidos.derivados.cuota-mb:2048}")
+    private long cuotaMb;
+
+    @Value("${innoad.contenidos.derivados.calidad-jpeg:0.85}")
+    private float calidadJpeg;
+
+    /**
+     * Variantes en disco por clave hash/anchoxalto, en orden de uso (protegido por this)
+     */
+    private final LinkedHashMap<String, Derivado> derivados = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesTotales;
+
+    /**
+     * Pantallas que esperan cada variante en generación (protegido por this)
+     */
+    private final Map<String, Set<Long>> pendientes = new HashMap<>();
+
+    /**
+     * Claves que no necesitan variante (el original ya cabe) o que no se pudieron generar
+     */
+    private final Set<String> descartados = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService generador;
+
+    /**
+     * Carga las variantes existentes en disco (las más antiguas quedan como menos usadas)
+     */
+    @PostConstruct
+    public void iniciar() {
+        generador = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "derivados-imagen");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+
+        Path base = obtenerDirectorioDerivados();
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        try (Stream<Path> archivos = Files.walk(base, 3)) {
+            List<Path> existentes = archivos.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(ServicioDerivadosImagen::fechaModificacion))
+                    .toList();
+            synchronized (this) {
+                for (Path archivo : existentes) {
+                    Matcher matcher = PATRON_DERIVADO.matcher(archivo.getFileName().toString());
+                    if (!matcher.matches()) {
+                        // Temporales de una generación interrumpida
+                        Files.deleteIfExists(archivo);
+                        continue;
+                    }
+                    String hash = archivo.getParent().getFileName().toString();
+                    String clave = hash + "/" + matcher.group(1) + "x" + matcher.group(2);
+                    long tamano = Files.size(archivo);
+                    derivados.put(clave, new Derivado(base.relativize(archivo).toString().replace('\\', '/'),
+                            tamano, tipoMime(matcher.group(3))));
+                    bytesTotales += tamano;
+                }
+            }
+            log.info("Variantes de imagen en disco: {} ({} MB)", derivados.size(), bytesTotales / (1024 * 1024));
+        } catch (IOException e) {
+            log.warn("No se pudieron cargar las variantes de imagen: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelve a asociar las variantes cargadas del disco con las pantallas cuyas imágenes las usan,
+     * para avisarles si se borran antes de que vuelvan a sincronizar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void vincularPantallas() {
+        if (!habilitado) {
+            return;
+        }
+        List<Object[]> filas = repositorioContenido.findHashesImagenesConPantalla();
+        int vinculos = 0;
+        synchronized (this) {
+            if (derivados.isEmpty()) {
+                return;
+            }
+            // Copia sin orden de acceso: consultar derivados alteraría el orden de uso cargado del disco
+            Map<String, Derivado> porClave = new HashMap<>(derivados);
+            for (Object[] fila : filas) {
+                int[] caja = calcularCaja((String) fila[2], (String) fila[3]);
+                if (caja == null) {
+                    continue;
+                }
+                Derivado derivado = porClave.get(fila[0] + "/" + caja[0] + "x" + caja[1]);
+                if (derivado != null && derivado.pantallas.add((Long) fila[1])) {
+                    vinculos++;
+                }
+            }
+        }
+        log.debug("Variantes de imagen vinculadas a sus pantallas: {}", vinculos);
+    }
+
+    /**
+     * Borra las variantes de un original que la limpieza del almacenamiento eliminó
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alEliminarOriginal(EventoArchivoEliminado evento) {
+        String prefijo = evento.getHash() + "/";
+        List<Long> afectadas = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Derivado>> iterador = derivados.entrySet().iterator();
+            while (iterador.hasNext()) {
+                Map.Entry<String, Derivado> entrada = iterador.next();
+                if (entrada.getKey().startsWith(prefijo)) {
+                    iterador.remove();
+                    bytesTotales -= entrada.getValue().tamano;
+                    afectadas.addAll(entrada.getValue().pantallas);
+                }
+            }
+        }
+        descartados.removeIf(clave -> clave.startsWith(prefijo));
+
+        String hash = evento.getHash();
+        Path directorio = obtenerDirectorioDerivados().resolve(hash.substring(0, 2)).resolve(hash);
+        if (Files.isDirectory(directorio)) {
+            try (Stream<Path> archivos = Files.list(directorio)) {
+                for (Path archivo : archivos.toList()) {
+                    Files.deleteIfExists(archivo);
+                }
+                Files.deleteIfExists(directorio);
+            } catch (IOException e) {
+                log.warn("No se pudieron borrar las variantes de {}: {}", hash, e.getMessage());
+            }
+        }
+
+        // Ninguna imagen vigente debería usar el original, pero si alguna pantalla quedó con la variante, resincroniza
+        new HashSet<>(afectadas).forEach(pantallaId ->
+                publicadorEventos.publishEvent(EventoPlaylistModificado.de(pantallaId)));
+    }
+
+    @PreDestroy
+    public void detener() {
+        generador.shutdownNow();
+    }
+
+    /**
+     * Si existe una variante adecuada para la pantalla retorna una copia del contenido que apunta a ella;
+     * si no, se programa su generación y se retorna el mismo contenido. Nunca modifica el recibido,
+     * que puede estar en la caché de listas de reproducción.
+     */
+    public RespuestaContenido ajustarParaPantalla(RespuestaContenido contenido, ResumenPantalla pantalla) {
+        String hash = contenido.getHashArchivo();
+        if (!habilitado || hash == null || !"IMAGEN".equals(contenido.getTipo())) {
+            return contenido;
+        }
+        int[] caja = calcularCaja(pantalla.getResolucion(), pantalla.getOrientacion());
+        if (caja == null) {
+            return contenido;
+        }
+
+        String clave = hash + "/" + caja[0] + "x" + caja[1];
+        if (descartados.contains(clave)) {
+            return contenido;
+        }
+
+        boolean programar;
+        synchronized (this) {
+            Derivado derivado = derivados.get(clave);
+            if (derivado != null) {
+                derivado.pantallas.add(pantalla.getId());
+                return contenido.toBuilder()
+                        .urlArchivo(urlBase + "/" + DIRECTORIO_DERIVADOS + "/" + derivado.ruta)
+                        .tamanoArchivo(derivado.tamano)
+                        .tipoMime(derivado.tipoMime)
+                        // El hash identifica al original, no a la variante
+                        .hashArchivo(null)
+                        .build();
+            }
+            Set<Long> esperando = pendientes.get(clave);
+            programar = esperando == null;
+            if (programar) {
+                esperando = new HashSet<>();
+                pendientes.put(clave, esperando);
+            }
+            esperando.add(pantalla.getId());
+        }
+
+        if (programar) {
+            String urlOriginal = contenido.getUrlArchivo();
+            try {
+                generador.execute(() -> generar(clave, hash, urlOriginal, caja));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    pendientes.remove(clave);
+                }
+            }
+        }
+        return contenido;
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Genera la variante y avisa a las pantallas que la esperaban
+     */
+    private void generar(String clave, String hash, String urlOriginal, int[] caja) {
+        List<Long> avisar = new ArrayList<>();
+        Derivado derivado = null;
+        try {
+            derivado = crearVariante(hash, urlOriginal, caja);
+        } catch (Exception e) {
+            log.warn("No se pudo generar la variante {}: {}", clave, e.getMessage());
+        }
+
+        synchronized (this) {
+            Set<Long> esperando = pendientes.remove(clave);
+            if (derivado == null) {
+                marcarDescartado(clave);
+                return;
+            }
+            if (esperando != null) {
+                derivado.pantallas.addAll(esperando);
+                avisar.addAll(esperando);
+            }
+            Derivado anterior = derivados.put(clave, derivado);
+            if (anterior != null) {
+                bytesTotales -= anterior.tamano;
+            }
+            bytesTotales += derivado.tamano;
+            avisar.addAll(liberarEspacio(clave));
+        }
+        log.debug("Variante generada: {} ({} bytes)", derivado.ruta, derivado.tamano);
+
+        new HashSet<>(avisar).forEach(pantallaId ->
+                publicadorEventos.publishEvent(EventoPlaylistModificado.de(pantallaId)));
+    }
+
+    /**
+     * Decodifica el original reducido (submuestreo al leer, para no cargar la imagen completa),
+     * lo escala a la caja de la pantalla y lo codifica
+     *
+     * @return null si el original ya cabe en la pantalla o la variante no resulta más liviana
+     */
+    private Derivado crearVariante(String hash, String urlOriginal, int[] caja) throws IOException {
+        Path original = servicioAlmacenamiento.obtenerRutaLocal(urlOriginal);
+        if (original == null || !Files.isRegularFile(original)) {
+            return null;
+        }
+
+        BufferedImage fuente;
+        int anchoDestino;
+        int altoDestino;
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ancho = lector.getWidth(0);
+                int alto = lector.getHeight(0);
+                double escala = Math.min((double) caja[0] / ancho, (double) caja[1] / alto);
+                if (escala >= 1) {
+                    return null;
+                }
+                anchoDestino = Math.max(1, (int) Math.round(ancho * escala));
+                altoDestino = Math.max(1, (int) Math.round(alto * escala));
+
+                // Se decodifica a no menos del doble del destino para conservar calidad al escalar
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                int submuestreo = Math.max(1, (int) Math.floor(1 / (escala * 2)));
+                parametros.setSourceSubsampling(submuestreo, submuestreo, 0, 0);
+                fuente = lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        }
+
+        boolean conTransparencia = fuente.getColorModel().hasAlpha();
+        BufferedImage destino = new BufferedImage(anchoDestino, altoDestino,
+                conTransparencia ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D grafico = destino.createGraphics();
+        try {
+            grafico.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            grafico.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            grafico.drawImage(fuente, 0, 0, anchoDestino, altoDestino, null);
+        } finally {
+            grafico.dispose();
+        }
+
+        String formato = conTransparencia ? "png" : "jpg";
+        String ruta = hash.substring(0, 2) + "/" + hash + "/" + caja[0] + "x" + caja[1] + "." + formato;
+        Path archivo = obtenerDirectorioDerivados().resolve(ruta);
+        Files.createDirectories(archivo.getParent());
+        Path temporal = Files.createTempFile(archivo.getParent(), "variante-", ".part");
+        try {
+            escribir(destino, formato, temporal);
+            long tamano = Files.size(temporal);
+            if (tamano >= Files.size(original)) {
+                return null;
+            }
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new Derivado(ruta, tamano, tipoMime(formato));
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private void escribir(BufferedImage imagen, String formato, Path archivo) throws IOException {
+        if ("png".equals(formato)) {
+            ImageIO.write(imagen, "png", archivo.toFile());
+            return;
+        }
+        ImageWriter escritor = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(archivo.toFile())) {
+            ImageWriteParam parametros = escritor.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidadJpeg);
+            escritor.setOutput(salida);
+            escritor.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            escritor.dispose();
+        }
+    }
+
+    /**
+     * Borra las variantes menos usadas hasta quedar en el 90% de la cuota (se llama con this tomado)
+     *
+     * @return pantallas que usaban las variantes borradas
+     */
+    private List<Long> liberarEspacio(String claveNueva) {
+        List<Long> afectadas = new ArrayList<>();
+        long cuota = cuotaMb * 1024 * 1024;
+        if (bytesTotales <= cuota) {
+            return afectadas;
+        }
+        long objetivo = cuota * 9 / 10;
+        Path base = obtenerDirectorioDerivados();
+        Iterator<Map.Entry<String, Derivado>> iterador = derivados.entrySet().iterator();
+        while (bytesTotales > objetivo && iterador.hasNext()) {
+            Map.Entry<String, Derivado> entrada = iterador.next();
+            if (entrada.getKey().equals(claveNueva)) {
+                continue;
+            }
+            Derivado derivado = entrada.getValue();
+            iterador.remove();
+            bytesTotales -= derivado.tamano;
+            afectadas.addAll(derivado.pantallas);
+            try {
+                Files.deleteIfExists(base.resolve(derivado.ruta));
+            } catch (IOException e) {
+                log.warn("No se pudo borrar la variante {}: {}", derivado.ruta, e.getMessage());
+            }
+        }
+        log.info("Cuota de variantes excedida: quedan {} MB", bytesTotales / (1024 * 1024));
+        return afectadas;
+    }
+
+    private void marcarDescartado(String clave) {
+        if (descartados.size() >= MAX_DESCARTADOS) {
+            descartados.clear();
+        }
+        descartados.add(clave);
+    }
+
+    /**
+     * Caja máxima de la pantalla (ancho, alto) según su resolución y orientación, o null si no se conoce
+     */
+    private static int[] calcularCaja(String resolucion, String orientacion) {
+        if (resolucion == null) {
+            return null;
+        }
+        Matcher matcher = PATRON_RESOLUCION.matcher(resolucion);
+        if (!matcher.find()) {
+            return null;
+        }
+        int ancho = Integer.parseInt(matcher.group(1));
+        int alto = Integer.parseInt(matcher.group(2));
+        boolean vertical = "VERTICAL".equals(orientacion);
+        if (vertical == ancho > alto) {
+            return new int[]{alto, ancho};
+        }
+        return new int[]{ancho, alto};
+    }
+
+    private Path obtenerDirectorioDerivados() {
+        return Paths.get(directorioAlmacenamiento).toAbsolutePath().normalize().resolve(DIRECTORIO_DERIVADOS);
+    }
+
+    private static String tipoMime(String formato) {
+        return "png".equals(formato) ? "image/png" : "image/jpeg";
+    }
+
+    private static long fechaModificacion(Path archivo) {
+        try {
+            return Files.getLastModifiedTime(archivo).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Variante en disco y pantallas que la recibieron en su playlist
+     */
+    private static final class Derivado {
+        private final String ruta;
+        private final long tamano;
+        private final String tipoMime;
+        private final Set<Long> pantallas = new HashSet<>();
+
+        private Derivado(String ruta, long tamano, String tipoMime) {
+            this.ruta = ruta;
+            this.tamano = tamano;
+            this.tipoMime = tipoMime;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.innoad.modules.content.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Entrega los archivos del almacenamiento (/uploads/**) con soporte de Range/If-Range y ETag fuerte.
+ * Los bytes se envían con sendfile de Tomcat cuando el conector lo soporta, o con
+ * FileChannel.transferTo en su defecto, sin pasar por buffers del heap.
+ * Los archivos deduplicados (blobs/...) nunca cambian: se entregan con caché inmutable y su hash como ETag.
+ * Se guardan sin extensión y se entregan con el tipo MIME registrado en archivos_almacenados, nunca con
+ * el que sugiere la URL: si la extensión pedida no corresponde a ese tipo la respuesta es 404 (si no,
+ * cualquiera podría pedir un blob como .html o .svg). Todas las respuestas llevan X-Content-Type-Options: nosniff.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioEntregaArchivos {
+
+    private static final String PREFIJO = "/uploads/";
+
+    private static final String CACHE_INMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] RANGO_INSATISFACIBLE = new long[0];
+
+    private final ServicioAlmacenamiento servicioAlmacenamiento;
+
+    @Value("${innoad.storage.directory:uploads}")
+    private String directorioAlmacenamiento;
+
+    /**
+     * Caché para archivos que no están deduplicados (pueden reemplazarse)
+     */
+    @Value("${innoad.storage.cache-segundos:3600}")
+    private long cacheSegundos;
+
+    /**
+     * Por debajo de este tamaño se escribe directamente (sendfile no compensa)
+     */
+    @Value("${innoad.storage.umbral-sendfile-bytes:49152}")
+    private long umbralSendfile;
+
+    /**
+     * Responde un GET o HEAD sobre /uploads/**
+     */
+    public void entregar(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        String ruta = rutaPedida(request);
+        Path archivo = ruta != null ? resolverArchivo(ruta) : null;
+        if (archivo == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes atributos;
+        try {
+            atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!atributos.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long tamano = atributos.size();
+        long ultimaModificacion = atributos.lastModifiedTime().toMillis() / 1000 * 1000;
+        String hash = servicioAlmacenamiento.extraerHash(ruta);
+        String tipoContenido = hash != null ? tipoContenidoBlob(ruta) : tipoContenido(ruta);
+        if (tipoContenido == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = hash != null
+                ? "\"" + hash + "\""
+                : "\"" + Long.toHexString(tamano) + "-" + Long.toHexString(ultimaModificacion) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, ultimaModificacion);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                hash != null ? CACHE_INMUTABLE : "public, max-age=" + cacheSegundos);
+
+        if (noModificado(request, etag, ultimaModificacion)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(tipoContenido);
+
+        long inicio = 0;
+        long longitud = tamano;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        if (rango != null && rangoVigente(request, etag, ultimaModificacion)) {
+            long[] limites = interpretarRango(rango, tamano);
+            if (limites == RANGO_INSATISFACIBLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (limites != null) {
+                inicio = limites[0];
+                longitud = limites[1] - limites[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + limites[0] + "-" + limites[1] + "/" + tamano);
+            }
+        }
+
+        response.setContentLengthLong(longitud);
+        if ("HEAD".equals(request.getMethod()) || longitud == 0) {
+            return;
+        }
+
+        enviar(request, response, archivo, inicio, longitud);
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Ruta pedida relativa al directorio de almacenamiento, tal como viene en la URL (null si no es válida).
+     * Se rechazan segmentos ocultos como .tmp y cualquier intento de salir del directorio.
+     */
+    private static String rutaPedida(HttpServletRequest request) {
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        if (!uri.startsWith(PREFIJO)) {
+            return null;
+        }
+        String ruta = UriUtils.decode(uri.substring(PREFIJO.length()), StandardCharsets.UTF_8);
+        if (ruta.isEmpty() || ruta.contains("\\") || ruta.contains("\0")) {
+            return null;
+        }
+        for (String segmento : ruta.split("/")) {
+            if (segmento.isEmpty() || segmento.startsWith(".")) {
+                return null;
+            }
+        }
+        return ruta;
+    }
+
+    /**
+     * Archivo en disco de una ruta pedida (null si queda fuera del directorio de almacenamiento)
+     */
+    private Path resolverArchivo(String ruta) {
+        Path base = Paths.get(directorioAlmacenamiento).toAbsolutePath().normalize();
+        Path archivo = base.resolve(servicioAlmacenamiento.resolverRutaAlmacenada(ruta)).normalize();
+        return archivo.startsWith(base) ? archivo : null;
+    }
+
+    /**
+     * Tipo de contenido de un archivo no deduplicado según la extensión con la que se guardó
+     */
+    private static String tipoContenido(String ruta) {
+        return MediaTypeFactory.getMediaType(ruta)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    /**
+     * Tipo MIME registrado del blob; null si la extensión de la URL no le corresponde.
+     * Un blob sin tipo registrado se entrega como application/octet-stream.
+     */
+    private String tipoContenidoBlob(String ruta) {
+        MediaType registrado = leerTipo(servicioAlmacenamiento.buscarTipoMimeBlob(ruta));
+        String nombre = ruta.substring(ruta.lastIndexOf('/') + 1);
+        if (nombre.indexOf('.') < 0) {
+            return registrado != null ? registrado.toString() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        if (registrado == null) {
+            return null;
+        }
+        boolean coincide = MediaTypeFactory.getMediaTypes(nombre).stream().anyMatch(registrado::equalsTypeAndSubtype);
+        return coincide ? registrado.toString() : null;
+    }
+
+    private static MediaType leerTipo(String tipoMime) {
+        if (tipoMime == null) {
+            return null;
+        }
+        try {
+            return MediaType.parseMediaType(tipoMime);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Evalúa If-None-Match (comparación débil) o, si no viene, If-Modified-Since
+     */
+    private static boolean noModificado(HttpServletRequest request, String etag, long ultimaModificacion) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidato : ifNoneMatch.split(",")) {
+                String valor = candidato.trim();
+                if (valor.startsWith("W/")) {
+                    valor = valor.substring(2);
+                }
+                if (valor.equals(etag) || "*".equals(valor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = leerFecha(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && ultimaModificacion <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range: el rango sólo aplica si el cliente tiene la misma versión del archivo
+     * (ETag fuerte idéntico o fecha igual a la última modificación)
+     */
+    private static boolean rangoVigente(HttpServletRequest request, String etag, long ultimaModificacion) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        String valor = ifRange.trim();
+        if (valor.startsWith("\"") || valor.startsWith("W/")) {
+            return valor.equals(etag);
+        }
+        return leerFecha(request, HttpHeaders.IF_RANGE) == ultimaModificacion;
+    }
+
+    /**
+     * Interpreta un único rango de bytes: "a-b", "a-" o "-n".
+     *
+     * @return {inicio, fin} inclusivos, null si el encabezado se ignora (mal formado o múltiples rangos)
+     * o RANGO_INSATISFACIBLE
+     */
+    private static long[] interpretarRango(String rango, long tamano) {
+        if (!rango.startsWith("bytes=") || rango.indexOf(',') >= 0) {
+            return null;
+        }
+        String especificacion = rango.substring(6).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return null;
+        }
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            if (desde.isEmpty()) {
+                // Sufijo: los últimos n bytes
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo <= 0 || tamano == 0) {
+                    return RANGO_INSATISFACIBLE;
+                }
+                return new long[]{Math.max(0, tamano - sufijo), tamano - 1};
+            }
+            long inicio = Long.parseLong(desde);
+            long fin = hasta.isEmpty() ? tamano - 1 : Math.min(Long.parseLong(hasta), tamano - 1);
+            if (inicio < 0 || (!hasta.isEmpty() && Long.parseLong(hasta) < inicio)) {
+                return null;
+            }
+            return inicio >= tamano ? RANGO_INSATISFACIBLE : new long[]{inicio, fin};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Envía los bytes con sendfile si Tomcat lo soporta; si no, con FileChannel.transferTo
+     */
+    private void enviar(HttpServletRequest request, HttpServletResponse response,
+                        Path archivo, long inicio, long longitud) throws IOException {
+        if (longitud >= umbralSendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, inicio + longitud);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long fin = inicio + longitud;
+            while (posicion < fin) {
+                long enviados = canal.transferTo(posicion, fin - posicion, salida);
+                if (enviados <= 0) {
+                    // El archivo se truncó mientras se enviaba
+                    log.warn("Archivo truncado durante la entrega: {}", archivo);
+                    break;
+                }
+                posicion += enviados;
+            }
+        } catch (IOException e) {
+            // Lo habitual es que la pantalla cortó la conexión; reanudará con Range
+            log.debug("Entrega interrumpida: {} - {}", archivo.getFileName(), e.getMessage());
+        }
+    }
+
+    private static long leerFecha(HttpServletRequest request, String encabezado) {
+        try {
+            return request.getDateHeader(encabezado);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
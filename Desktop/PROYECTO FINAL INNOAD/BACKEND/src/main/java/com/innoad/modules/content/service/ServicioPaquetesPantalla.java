@@ -0,0 +1,261 @@
+package com.innoad.modules.content.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Arma el paquete sin conexión de una pantalla: un TAR con manifest.json y todos los archivos
+ * de su lista de reproducción. Sirve para el arranque en frío (una sola descarga secuencial en lugar
+ * de una por archivo) y para aprovisionar instalaciones nuevas por USB.
+ * <p>
+ * El TAR no se genera en disco: se guarda por pantalla y versión de la lista sólo el manifiesto y
+ * la ubicación de cada archivo, y al descargar se escriben las cabeceras seguidas de los archivos.
+ * La respuesta del servlet no expone un FileChannel y el sendfile de Tomcat envía un solo archivo por
+ * respuesta, así que los archivos se copian con un buffer fijo por descarga (no hay copia cero como
+ * en ServicioEntregaArchivos). Las cabeceras y el manifiesto no dependen del momento en que se arma
+ * el paquete: la misma versión de la lista produce siempre los mismos bytes, como exige su ETag.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioPaquetesPantalla {
+
+    private static final int BLOQUE = 512;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final String NOMBRE_MANIFIESTO = "manifest.json";
+
+    private final ServicioContenido servicioContenido;
+    private final ServicioAlmacenamiento servicioAlmacenamiento;
+    private final ObjectMapper objectMapper;
+
+    @Value("${innoad.storage.directory:uploads}")
+    private String directorioAlmacenamiento;
+
+    private final Map<Long, PaquetePantalla> paquetes = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene el paquete de la versión vigente de la lista de la pantalla (armándolo si cambió)
+     */
+    public PaquetePantalla obtenerPaquete(String codigoIdentificacion) throws IOException {
+        PlaylistPantalla playlist = servicioContenido.obtenerPlaylistParaPantalla(codigoIdentificacion);
+
+        PaquetePantalla paquete = paquetes.get(playlist.getPantallaId());
+        if (paquete != null && paquete.getEtag().equals(playlist.getEtag()) && archivosIntactos(paquete)) {
+            return paquete;
+        }
+
+        paquete = armarPaquete(codigoIdentificacion, playlist);
+        paquetes.put(playlist.getPantallaId(), paquete);
+        log.info("Paquete armado - Pantalla: {} - Versión: {} - Archivos: {} - {} MB",
+                codigoIdentificacion, paquete.getVersion(), paquete.getArchivos().size(),
+                paquete.getLongitud() / (1024 * 1024));
+        return paquete;
+    }
+
+    /**
+     * Escribe el paquete como TAR: cabecera y manifiesto, luego cada archivo con un único buffer fijo
+     */
+    public void escribir(PaquetePantalla paquete, OutputStream salida) throws IOException {
+        long fecha = paquete.getFechaModificacion();
+        salida.write(cabecera(NOMBRE_MANIFIESTO, paquete.getManifiesto().length, fecha));
+        salida.write(paquete.getManifiesto());
+        salida.write(new byte[relleno(paquete.getManifiesto().length)]);
+
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+        for (PaquetePantalla.ArchivoPaquete archivo : paquete.getArchivos()) {
+            salida.write(cabecera(archivo.getNombre(), archivo.getTamano(), fecha));
+            try (FileChannel canal = FileChannel.open(archivo.getRuta(), StandardOpenOption.READ)) {
+                long restantes = archivo.getTamano();
+                while (restantes > 0) {
+                    buffer.clear().limit((int) Math.min(TAMANO_BUFFER, restantes));
+                    int leidos = canal.read(buffer);
+                    if (leidos <= 0) {
+                        throw new IOException("Archivo truncado durante el envío: " + archivo.getNombre());
+                    }
+                    salida.write(buffer.array(), 0, leidos);
+                    restantes -= leidos;
+                }
+            }
+            salida.write(new byte[relleno(archivo.getTamano())]);
+        }
+
+        // Fin del TAR: dos bloques vacíos
+        salida.write(new byte[BLOQUE * 2]);
+        salida.flush();
+    }
+
+    /**
+     * Descarta el paquete de una pantalla eliminada
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        if (evento.isPantallaEliminada() && evento.getPantallaId() != null) {
+            paquetes.remove(evento.getPantallaId());
+        }
+    }
+
+    // Métodos auxiliares
+
+    private PaquetePantalla armarPaquete(String codigoIdentificacion, PlaylistPantalla playlist) throws IOException {
+        Path base = Paths.get(directorioAlmacenamiento).toAbsolutePath().normalize();
+
+        // Un archivo usado por varios contenidos se incluye una sola vez
+        Map<String, PaquetePantalla.ArchivoPaquete> porUrl = new LinkedHashMap<>();
+        List<RespuestaContenido> todos = new ArrayList<>(playlist.getContenidos());
+        todos.addAll(playlist.getProximos());
+        for (RespuestaContenido contenido : todos) {
+            String url = contenido.getUrlArchivo();
+            if (url == null || porUrl.containsKey(url)) {
+                continue;
+            }
+            Path ruta = servicioAlmacenamiento.obtenerRutaLocal(url);
+            if (ruta == null || !Files.isRegularFile(ruta)) {
+                log.warn("Archivo no disponible para el paquete - Pantalla: {} - {}", codigoIdentificacion, url);
+                continue;
+            }
+            String nombre = "media/" + base.relativize(ruta).toString().replace('\\', '/');
+            porUrl.put(url, new PaquetePantalla.ArchivoPaquete(nombre, ruta, Files.size(ruta)));
+        }
+
+        Map<String, String> archivosPorUrl = new LinkedHashMap<>();
+        porUrl.forEach((url, archivo) -> archivosPorUrl.put(url, archivo.getNombre()));
+
+        // Última actualización de los contenidos: fija para una misma versión de la lista
+        LocalDateTime actualizado = todos.stream()
+                .map(RespuestaContenido::getFechaActualizacion)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+
+        Map<String, Object> manifiesto = new LinkedHashMap<>();
+        manifiesto.put("codigoIdentificacion", codigoIdentificacion);
+        manifiesto.put("pantallaId", playlist.getPantallaId());
+        manifiesto.put("version", playlist.getVersion());
+        manifiesto.put("etag", playlist.getEtag());
+        manifiesto.put("vigenteHasta", playlist.getVigenteHasta());
+        manifiesto.put("generado", actualizado);
+        manifiesto.put("contenidos", playlist.getContenidos());
+        manifiesto.put("proximos", playlist.getProximos());
+        // URL de cada contenido -> ruta del archivo dentro del paquete
+        manifiesto.put("archivos", archivosPorUrl);
+        byte[] bytesManifiesto = objectMapper.writeValueAsBytes(manifiesto);
+
+        List<PaquetePantalla.ArchivoPaquete> archivos = new ArrayList<>(porUrl.values());
+        long longitud = BLOQUE + bytesManifiesto.length + relleno(bytesManifiesto.length);
+        for (PaquetePantalla.ArchivoPaquete archivo : archivos) {
+            longitud += BLOQUE + archivo.getTamano() + relleno(archivo.getTamano());
+        }
+        longitud += BLOQUE * 2;
+
+        return PaquetePantalla.builder()
+                .pantallaId(playlist.getPantallaId())
+                .version(playlist.getVersion())
+                .etag(playlist.getEtag())
+                .manifiesto(bytesManifiesto)
+                .archivos(archivos)
+                .longitud(longitud)
+                .fechaModificacion(actualizado != null
+                        ? actualizado.atZone(ZoneId.systemDefault()).toEpochSecond()
+                        : 0)
+                .build();
+    }
+
+    /**
+     * Verifica que los archivos sigan en disco con el mismo tamaño (una variante pudo borrarse por cuota)
+     */
+    private static boolean archivosIntactos(PaquetePantalla paquete) {
+        for (PaquetePantalla.ArchivoPaquete archivo : paquete.getArchivos()) {
+            try {
+                if (Files.size(archivo.getRuta()) != archivo.getTamano()) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int relleno(long tamano) {
+        return (int) ((BLOQUE - tamano % BLOQUE) % BLOQUE);
+    }
+
+    /**
+     * Cabecera TAR (formato ustar) de un archivo regular
+     */
+    private static byte[] cabecera(String nombre, long tamano, long fechaModificacion) {
+        byte[] bloque = new byte[BLOQUE];
+        byte[] bytesNombre = nombre.getBytes(StandardCharsets.UTF_8);
+
+        // Nombres de más de 100 bytes se dividen en prefijo (155) y nombre
+        String prefijo = "";
+        if (bytesNombre.length > 100) {
+            int corte = nombre.lastIndexOf('/', 155);
+            if (corte <= 0 || nombre.substring(corte + 1).getBytes(StandardCharsets.UTF_8).length > 100) {
+                throw new IllegalArgumentException("Nombre demasiado largo para el paquete: " + nombre);
+            }
+            prefijo = nombre.substring(0, corte);
+            bytesNombre = nombre.substring(corte + 1).getBytes(StandardCharsets.UTF_8);
+        }
+
+        System.arraycopy(bytesNombre, 0, bloque, 0, bytesNombre.length);
+        escribirOctal(bloque, 100, 8, 0644);
+        escribirOctal(bloque, 108, 8, 0);
+        escribirOctal(bloque, 116, 8, 0);
+        escribirOctal(bloque, 124, 12, tamano);
+        escribirOctal(bloque, 136, 12, fechaModificacion);
+        bloque[156] = '0';
+        escribirTexto(bloque, 257, "ustar");
+        escribirTexto(bloque, 263, "00");
+        escribirTexto(bloque, 345, prefijo);
+
+        // Checksum: suma de los bytes de la cabecera con el campo de checksum en espacios
+        for (int i = 148; i < 156; i++) {
+            bloque[i] = ' ';
+        }
+        long suma = 0;
+        for (byte b : bloque) {
+            suma += b & 0xFF;
+        }
+        String checksum = String.format("%06o", suma);
+        escribirTexto(bloque, 148, checksum);
+        bloque[154] = 0;
+        bloque[155] = ' ';
+        return bloque;
+    }
+
+    private static void escribirOctal(byte[] bloque, int posicion, int longitud, long valor) {
+        String octal = String.format("%0" + (longitud - 1) + "o", valor);
+        escribirTexto(bloque, posicion, octal);
+        bloque[posicion + longitud - 1] = 0;
+    }
+
+    private static void escribirTexto(byte[] bloque, int posicion, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, bloque, posicion, bytes.length);
+    }
+}
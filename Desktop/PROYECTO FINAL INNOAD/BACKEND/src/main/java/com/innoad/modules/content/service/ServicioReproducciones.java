@@ -0,0 +1,273 @@
+package com.innoad.modules.content.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innoad.dto.respuesta.RespuestaLoteReproducciones;
+import com.innoad.dto.solicitud.SolicitudEventoReproduccion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Servicio de ingesta de reproducciones (proof-of-play).
+ * Recibe lotes NDJSON (una reproducción por línea), incluyendo lo acumulado por la pantalla
+ * mientras estuvo sin conexión, y los inserta por lotes JDBC en la tabla append-only eventos_reproduccion.
+ * <p>
+ * Las reproducciones se atribuyen siempre a la pantalla de la URL. Una reproducción se identifica por
+ * pantalla e idEvento (o, si la pantalla no lo envía, por contenido y fecha de reproducción): si un lote
+ * se reenvía, las ya registradas se informan como duplicadas y no vuelven a sumarse.
+ * Cada evento se valida por separado; uno sin fecha o con fecha en el futuro se rechaza.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioReproducciones {
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO eventos_reproduccion " +
+            "(id_evento, contenido_id, codigo_pantalla, fecha_reproduccion, duracion_segundos, fecha_recepcion) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (codigo_pantalla, id_evento) DO NOTHING";
+
+    private static final String SQL_CONTENIDOS_EXISTENTES = "SELECT id FROM contenidos WHERE id = ANY(?)";
+
+    private static final int TAMANO_LOTE_JDBC = 1000;
+    private static final int LONGITUD_MAXIMA_LINEA = 2048;
+    private static final int LONGITUD_MAXIMA_ID_EVENTO = 64;
+
+    // Formato fijo de la fecha en el idEvento derivado (LocalDateTime.toString omite los ceros finales)
+    private static final DateTimeFormatter FORMATO_ID_EVENTO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    // Resultado de leerLinea
+    private static final int FIN = -1;
+    private static final int LINEA = 0;
+    private static final int LINEA_EXCEDIDA = 1;
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ServicioContadoresReproduccion servicioContadores;
+
+    @Value("${innoad.reproducciones.max-eventos-lote:100000}")
+    private int maxEventosLote;
+
+    @Value("${innoad.reproducciones.tolerancia-reloj-segundos:300}")
+    private long toleranciaRelojSegundos;
+
+    /**
+     * Procesa un lote NDJSON de reproducciones de una pantalla
+     *
+     * @param codigoPantalla código de la pantalla que envía el lote (se usa en todos los eventos)
+     * @param ndjson         cuerpo ya descomprimido
+     */
+    public RespuestaLoteReproducciones registrarLote(String codigoPantalla, InputStream ndjson) throws IOException {
+        LocalDateTime recepcion = LocalDateTime.now();
+        LocalDateTime fechaMaxima = recepcion.plusSeconds(toleranciaRelojSegundos);
+        List<SolicitudEventoReproduccion> bloque = new ArrayList<>(TAMANO_LOTE_JDBC);
+        Resultado resultado = new Resultado();
+        int recibidos = 0;
+
+        // Se lee línea a línea: una línea malformada o demasiado larga se rechaza sin invalidar el resto del lote
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            StringBuilder linea = new StringBuilder(256);
+            int estado;
+            while ((estado = leerLinea(lector, linea)) != FIN) {
+                if (estado == LINEA && linea.toString().isBlank()) {
+                    continue;
+                }
+                if (recibidos >= maxEventosLote) {
+                    throw new IllegalArgumentException("El lote excede el máximo de " + maxEventosLote + " eventos");
+                }
+                recibidos++;
+
+                SolicitudEventoReproduccion evento = estado == LINEA ? leerEvento(linea.toString()) : null;
+                if (!esValido(evento, fechaMaxima)) {
+                    continue;
+                }
+                evento.setCodigoPantalla(codigoPantalla);
+                if (evento.getIdEvento() == null) {
+                    evento.setIdEvento(evento.getContenidoId() + "@" + FORMATO_ID_EVENTO.format(evento.getFechaReproduccion()));
+                }
+                // Dentro de la tolerancia, un reloj adelantado no registra reproducciones posteriores a la recepción
+                if (evento.getFechaReproduccion().isAfter(recepcion)) {
+                    evento.setFechaReproduccion(recepcion);
+                }
+
+                bloque.add(evento);
+                if (bloque.size() == TAMANO_LOTE_JDBC) {
+                    insertar(bloque, recepcion, resultado);
+                    bloque.clear();
+                }
+            }
+        }
+
+        if (!bloque.isEmpty()) {
+            insertar(bloque, recepcion, resultado);
+        }
+
+        log.debug("Lote de reproducciones - Pantalla: {} - Recibidos: {} - Aceptados: {} - Duplicados: {}",
+                codigoPantalla, recibidos, resultado.aceptados, resultado.duplicados);
+
+        return RespuestaLoteReproducciones.builder()
+                .recibidos(recibidos)
+                .aceptados(resultado.aceptados)
+                .duplicados(resultado.duplicados)
+                .rechazados(recibidos - resultado.aceptados - resultado.duplicados)
+                .build();
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Lee la siguiente línea en el buffer sin acumular más de LONGITUD_MAXIMA_LINEA caracteres:
+     * al pasar el límite, el resto de la línea se descarta a medida que se lee
+     *
+     * @return LINEA, LINEA_EXCEDIDA o FIN si no quedan líneas
+     */
+    private static int leerLinea(Reader lector, StringBuilder linea) throws IOException {
+        linea.setLength(0);
+        boolean excedida = false;
+        boolean leyo = false;
+        int caracter;
+        while ((caracter = lector.read()) != -1) {
+            leyo = true;
+            if (caracter == '\n') {
+                return excedida ? LINEA_EXCEDIDA : LINEA;
+            }
+            if (excedida) {
+                continue;
+            }
+            if (linea.length() >= LONGITUD_MAXIMA_LINEA) {
+                excedida = true;
+                linea.setLength(0);
+            } else {
+                linea.append((char) caracter);
+            }
+        }
+        if (!leyo) {
+            return FIN;
+        }
+        return excedida ? LINEA_EXCEDIDA : LINEA;
+    }
+
+    private SolicitudEventoReproduccion leerEvento(String linea) {
+        try {
+            return objectMapper.readValue(linea, SolicitudEventoReproduccion.class);
+        } catch (IOException e) {
+            log.debug("Línea de reproducción descartada: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean esValido(SolicitudEventoReproduccion evento, LocalDateTime fechaMaxima) {
+        return evento != null
+                && evento.getContenidoId() != null
+                && evento.getFechaReproduccion() != null
+                && !evento.getFechaReproduccion().isAfter(fechaMaxima)
+                && (evento.getIdEvento() == null
+                    || (!evento.getIdEvento().isBlank() && evento.getIdEvento().length() <= LONGITUD_MAXIMA_ID_EVENTO))
+                && (evento.getDuracionSegundos() == null || evento.getDuracionSegundos() >= 0);
+    }
+
+    /**
+     * Inserta los eventos de contenidos existentes y, ya confirmado, suma a los contadores en memoria
+     * sólo los que no estaban registrados.
+     * Cada bloque va en su propia transacción para no retener una conexión mientras se lee el cuerpo.
+     */
+    private void insertar(List<SolicitudEventoReproduccion> eventos, LocalDateTime recepcion, Resultado resultado) {
+        Set<Long> existentes = contenidosExistentes(eventos);
+        List<SolicitudEventoReproduccion> validos = eventos.stream()
+                .filter(evento -> existentes.contains(evento.getContenidoId()))
+                .toList();
+        if (validos.isEmpty()) {
+            return;
+        }
+
+        int[][] filas = new TransactionTemplate(transactionManager).execute(estado -> insertarBloque(validos, recepcion));
+        List<SolicitudEventoReproduccion> nuevos = new ArrayList<>(validos.size());
+        int indice = 0;
+        for (int[] lote : filas) {
+            for (int cantidad : lote) {
+                if (cantidad > 0) {
+                    nuevos.add(validos.get(indice));
+                }
+                indice++;
+            }
+        }
+
+        resultado.aceptados += nuevos.size();
+        resultado.duplicados += validos.size() - nuevos.size();
+        acumular(nuevos);
+    }
+
+    private Set<Long> contenidosExistentes(List<SolicitudEventoReproduccion> eventos) {
+        Long[] ids = eventos.stream().map(SolicitudEventoReproduccion::getContenidoId).distinct().toArray(Long[]::new);
+        return new HashSet<>(jdbcTemplate.query(SQL_CONTENIDOS_EXISTENTES,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)),
+                (rs, fila) -> rs.getLong(1)));
+    }
+
+    private int[][] insertarBloque(List<SolicitudEventoReproduccion> eventos, LocalDateTime recepcion) {
+        Timestamp fechaRecepcion = Timestamp.valueOf(recepcion);
+
+        return jdbcTemplate.batchUpdate(SQL_INSERTAR, eventos, TAMANO_LOTE_JDBC, (ps, evento) -> {
+            ps.setString(1, evento.getIdEvento());
+            ps.setLong(2, evento.getContenidoId());
+            ps.setString(3, evento.getCodigoPantalla());
+            ps.setTimestamp(4, Timestamp.valueOf(evento.getFechaReproduccion()));
+            if (evento.getDuracionSegundos() != null) {
+                ps.setInt(5, evento.getDuracionSegundos());
+            } else {
+                ps.setNull(5, Types.INTEGER);
+            }
+            ps.setTimestamp(6, fechaRecepcion);
+        });
+    }
+
+    private void acumular(List<SolicitudEventoReproduccion> eventos) {
+        Map<Long, Acumulado> porContenido = new HashMap<>();
+        for (SolicitudEventoReproduccion evento : eventos) {
+            porContenido.computeIfAbsent(evento.getContenidoId(), id -> new Acumulado())
+                    .sumar(evento.getFechaReproduccion());
+        }
+        porContenido.forEach((contenidoId, acumulado) ->
+                servicioContadores.registrar(contenidoId, acumulado.cantidad, acumulado.ultima));
+    }
+
+    private static final class Resultado {
+        private int aceptados;
+        private int duplicados;
+    }
+
+    private static final class Acumulado {
+        private int cantidad;
+        private LocalDateTime ultima;
+
+        void sumar(LocalDateTime fecha) {
+            cantidad++;
+            if (ultima == null || fecha.isAfter(ultima)) {
+                ultima = fecha;
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.innoad.modules.content.service;
+
+import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.dto.respuesta.RespuestaSesionSubida;
+import com.innoad.dto.solicitud.SolicitudContenido;
+import com.innoad.dto.solicitud.SolicitudSesionSubida;
+import com.innoad.modules.auth.domain.Usuario;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Subidas reanudables por fragmentos para imágenes y videos grandes.
+ * Cada fragmento se escribe directamente en su posición de un archivo temporal (escrituras posicionales NIO)
+ * con un buffer fijo, así la memoria por subida no depende del tamaño del archivo.
+ * Si la conexión se corta, el cliente consulta los bytes recibidos y continúa desde ahí.
+ * Al completar se verifican el SHA-256 y el tipo real del archivo (por sus primeros bytes) y el archivo
+ * se mueve al almacenamiento sin copiarlo. La sesión se descarta sólo cuando el contenido quedó creado:
+ * si falla la creación, completar puede reintentarse con el archivo ya incorporado.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioSubidasFragmentadas {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final long MB = 1024L * 1024L;
+
+    private final ServicioAlmacenamiento servicioAlmacenamiento;
+    private final ServicioContenido servicioContenido;
+
+    @Value("${innoad.contenidos.subida.tamano-fragmento-mb:8}")
+    private long tamanoFragmentoMb;
+
+    @Value("${innoad.contenidos.subida.expiracion-minutos:60}")
+    private long expiracionMinutos;
+
+    @Value("${innoad.contenidos.subida.max-sesiones-por-usuario:5}")
+    private int maxSesionesPorUsuario;
+
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+
+    /**
+     * Elimina los temporales de subidas que quedaron de una ejecución anterior
+     */
+    @PostConstruct
+    public void limpiarTemporalesHuerfanos() {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(servicioAlmacenamiento.obtenerDirectorioTemporal("subidas"))) {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+        } catch (IOException e) {
+            log.warn("No se pudieron limpiar los temporales de subidas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Inicia una subida y reserva su archivo temporal
+     */
+    public RespuestaSesionSubida iniciar(SolicitudSesionSubida solicitud, Usuario usuario) throws IOException {
+        String tipoMime = solicitud.getTipoMime();
+        if ("IMAGEN".equals(solicitud.getTipo())) {
+            if (!tipoMime.startsWith("image/")) {
+                throw new IllegalArgumentException("El archivo debe ser una imagen");
+            }
+            if (solicitud.getTamanoTotal() > 10 * MB) {
+                throw new IllegalArgumentException("La imagen no puede exceder 10 MB");
+            }
+        } else {
+            if (!tipoMime.startsWith("video/")) {
+                throw new IllegalArgumentException("El archivo debe ser un video");
+            }
+            if (solicitud.getTamanoTotal() > 100 * MB) {
+                throw new IllegalArgumentException("El video no puede exceder 100 MB");
+            }
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path archivo = servicioAlmacenamiento.obtenerDirectorioTemporal("subidas").resolve(id + ".part");
+        Sesion sesion = new Sesion(id, usuario.getId(), solicitud.getNombreArchivo(),
+                solicitud.getTipo(), solicitud.getTamanoTotal(), archivo);
+        sesion.expira = LocalDateTime.now().plusMinutes(expiracionMinutos);
+
+        // Cada sesión abierta reserva disco: se limita cuántas puede tener un usuario a la vez
+        synchronized (sesiones) {
+            long abiertas = sesiones.values().stream()
+                    .filter(abierta -> abierta.usuarioId.equals(usuario.getId()) && !abierta.completada)
+                    .count();
+            if (abiertas >= maxSesionesPorUsuario) {
+                throw new IllegalArgumentException("Tienes " + abiertas
+                        + " subidas abiertas; complétalas o cancélalas antes de iniciar otra");
+            }
+            sesiones.put(id, sesion);
+        }
+        try {
+            Files.createFile(archivo);
+        } catch (IOException e) {
+            sesiones.remove(id);
+            throw e;
+        }
+
+        log.info("Subida iniciada: {} - {} ({} bytes) - Usuario: {}",
+                id, solicitud.getNombreArchivo(), solicitud.getTamanoTotal(), usuario.getNombreUsuario());
+        return convertirARespuesta(sesion);
+    }
+
+    /**
+     * Estado de una subida (para saber desde dónde reanudar)
+     */
+    public RespuestaSesionSubida obtenerEstado(String id, Usuario usuario) {
+        return convertirARespuesta(obtenerSesion(id, usuario));
+    }
+
+    /**
+     * Escribe un fragmento a partir de la posición indicada.
+     * La posición no puede ser mayor que los bytes ya recibidos (los huecos no se permiten),
+     * pero sí menor: reenviar un fragmento ya recibido lo sobrescribe.
+     */
+    public RespuestaSesionSubida recibirFragmento(String id, long posicion, InputStream entrada, Usuario usuario) throws IOException {
+        Sesion sesion = obtenerSesion(id, usuario);
+
+        // Un fragmento a la vez: un segundo PUT concurrente se rechaza en lugar de esperar
+        if (!sesion.candado.tryLock()) {
+            throw new IllegalArgumentException("Ya se está recibiendo un fragmento de esta subida");
+        }
+        try {
+            if (sesion.completada || sesion.resultado != null) {
+                throw new IllegalArgumentException("La subida ya fue completada");
+            }
+            if (posicion < 0 || posicion > sesion.recibidos) {
+                throw new IllegalArgumentException(
+                        "Posición inválida: la subida debe continuar desde el byte " + sesion.recibidos);
+            }
+
+            long limite = Math.min(posicion + tamanoFragmentoMb * MB, sesion.tamanoTotal);
+            long actual = posicion;
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+            try (FileChannel canal = FileChannel.open(sesion.archivo, StandardOpenOption.WRITE)) {
+                int leidos;
+                while ((leidos = entrada.read(buffer.array())) != -1) {
+                    if (actual + leidos > limite) {
+                        throw new IllegalArgumentException(actual + leidos > sesion.tamanoTotal
+                                ? "El fragmento excede el tamaño total declarado"
+                                : "El fragmento excede el máximo de " + tamanoFragmentoMb + " MB");
+                    }
+                    buffer.clear().limit(leidos);
+                    while (buffer.hasRemaining()) {
+                        actual += canal.write(buffer, actual);
+                    }
+                }
+            } finally {
+                // Lo escrito antes de un corte sigue siendo válido: se conserva para reanudar
+                sesion.recibidos = Math.max(sesion.recibidos, actual);
+                sesion.expira = LocalDateTime.now().plusMinutes(expiracionMinutos);
+            }
+
+            return convertirARespuesta(sesion);
+        } finally {
+            sesion.candado.unlock();
+        }
+    }
+
+    /**
+     * Verifica el checksum y el tipo del archivo, lo incorpora al almacenamiento y crea el contenido.
+     * El candado se mantiene hasta el final: mientras tanto no se aceptan fragmentos ni otro completar.
+     */
+    public RespuestaContenido completar(String id, String sha256, SolicitudContenido solicitud, Usuario usuario) throws IOException {
+        Sesion sesion = obtenerSesion(id, usuario);
+
+        sesion.candado.lock();
+        try {
+            if (sesion.completada) {
+                throw new IllegalArgumentException("La subida ya fue completada");
+            }
+
+            // Un reintento tras fallar la creación del contenido reutiliza el archivo ya incorporado
+            if (sesion.resultado == null) {
+                sesion.resultado = verificarEIncorporar(sesion, sha256);
+            }
+            ServicioAlmacenamiento.ResultadoAlmacenamiento resultado = sesion.resultado;
+
+            solicitud.setTipo(sesion.tipo);
+            solicitud.setUrlArchivo(resultado.url());
+            solicitud.setNombreArchivo(sesion.nombreArchivo);
+            solicitud.setTamanoArchivo(resultado.tamano());
+            solicitud.setTipoMime(sesion.tipoMimeDetectado);
+
+            RespuestaContenido contenido = servicioContenido.crearContenido(solicitud, usuario);
+            sesion.completada = true;
+            sesiones.remove(id);
+
+            log.info("Subida completada: {} - {}", id, resultado.url());
+            return contenido;
+        } finally {
+            sesion.candado.unlock();
+        }
+    }
+
+    /**
+     * Cancela una subida y elimina su archivo temporal
+     */
+    public void cancelar(String id, Usuario usuario) {
+        Sesion sesion = obtenerSesion(id, usuario);
+        sesion.candado.lock();
+        try {
+            descartar(sesion);
+        } finally {
+            sesion.candado.unlock();
+        }
+        log.info("Subida cancelada: {}", id);
+    }
+
+    /**
+     * Descarta las subidas sin actividad dentro del tiempo de expiración
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void limpiarSesionesVencidas() {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Sesion sesion : sesiones.values()) {
+            // Una sesión recibiendo un fragmento está activa: no se espera por ella
+            if (!sesion.candado.tryLock()) {
+                continue;
+            }
+            try {
+                if (!sesion.completada && sesion.expira.isBefore(ahora)) {
+                    descartar(sesion);
+                    log.info("Subida vencida descartada: {} ({} de {} bytes)",
+                            sesion.id, sesion.recibidos, sesion.tamanoTotal);
+                }
+            } finally {
+                sesion.candado.unlock();
+            }
+        }
+    }
+
+    // Métodos auxiliares
+
+    private Sesion obtenerSesion(String id, Usuario usuario) {
+        Sesion sesion = sesiones.get(id);
+        if (sesion == null) {
+            throw new IllegalArgumentException("Subida no encontrada");
+        }
+        if (!sesion.usuarioId.equals(usuario.getId())) {
+            throw new IllegalArgumentException("No tienes permiso para usar esta subida");
+        }
+        return sesion;
+    }
+
+    /**
+     * Comprueba que la subida esté completa, que el SHA-256 coincida y que los bytes correspondan
+     * al tipo de contenido (el tipo MIME declarado por el cliente no se usa); si no, la descarta
+     */
+    private ServicioAlmacenamiento.ResultadoAlmacenamiento verificarEIncorporar(Sesion sesion, String sha256) throws IOException {
+        if (sesion.recibidos < sesion.tamanoTotal) {
+            throw new IllegalArgumentException("La subida está incompleta: recibidos "
+                    + sesion.recibidos + " de " + sesion.tamanoTotal + " bytes");
+        }
+
+        String hash = calcularHash(sesion.archivo);
+        if (sha256 == null || !hash.equalsIgnoreCase(sha256.trim())) {
+            descartar(sesion);
+            throw new IllegalArgumentException("El checksum SHA-256 no coincide; la subida fue descartada");
+        }
+
+        String tipoMime = servicioAlmacenamiento.detectarTipoMime(sesion.archivo);
+        String categoria = "IMAGEN".equals(sesion.tipo) ? "image/" : "video/";
+        if (tipoMime == null || !tipoMime.startsWith(categoria)) {
+            descartar(sesion);
+            throw new IllegalArgumentException("IMAGEN".equals(sesion.tipo)
+                    ? "El contenido del archivo no es una imagen JPEG, PNG, GIF o WEBP; la subida fue descartada"
+                    : "El contenido del archivo no es un video MP4, MOV, WEBM, AVI u OGG; la subida fue descartada");
+        }
+
+        sesion.tipoMimeDetectado = tipoMime;
+        return servicioAlmacenamiento.incorporar(sesion.archivo, hash, sesion.nombreArchivo, tipoMime);
+    }
+
+    private void descartar(Sesion sesion) {
+        sesion.completada = true;
+        sesiones.remove(sesion.id);
+        try {
+            Files.deleteIfExists(sesion.archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el temporal de la subida {}: {}", sesion.id, e.getMessage());
+        }
+    }
+
+    private static String calcularHash(Path archivo) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            while (canal.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private RespuestaSesionSubida convertirARespuesta(Sesion sesion) {
+        return RespuestaSesionSubida.builder()
+                .id(sesion.id)
+                .nombreArchivo(sesion.nombreArchivo)
+                .tamanoTotal(sesion.tamanoTotal)
+                .recibidos(sesion.recibidos)
+                .tamanoMaximoFragmento(tamanoFragmentoMb * MB)
+                .expira(sesion.expira)
+                .build();
+    }
+
+    /**
+     * Estado de una subida en curso (los campos mutables se modifican con el candado tomado)
+     */
+    private static final class Sesion {
+        private final ReentrantLock candado = new ReentrantLock();
+        private final String id;
+        private final Long usuarioId;
+        private final String nombreArchivo;
+        private final String tipo;
+        private final long tamanoTotal;
+        private final Path archivo;
+        private volatile long recibidos;
+        private volatile LocalDateTime expira;
+        private volatile boolean completada;
+        private volatile String tipoMimeDetectado;
+        private volatile ServicioAlmacenamiento.ResultadoAlmacenamiento resultado;
+
+        private Sesion(String id, Long usuarioId, String nombreArchivo,
+                       String tipo, long tamanoTotal, Path archivo) {
+            this.id = id;
+            this.usuarioId = usuarioId;
+            this.nombreArchivo = nombreArchivo;
+            this.tipo = tipo;
+            this.tamanoTotal = tamanoTotal;
+            this.archivo = archivo;
+        }
+    }
+}
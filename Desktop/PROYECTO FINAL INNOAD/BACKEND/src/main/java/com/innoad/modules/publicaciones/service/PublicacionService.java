@@ -3,6 +3,7 @@ package com.innoad.modules.publicaciones.service;
 import com.innoad.modules.publicaciones.domain.Publicacion;
 import com.innoad.modules.publicaciones.repository.PublicacionRepository;
 import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.content.service.ServicioAlmacenamiento;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,7 +19,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +26,9 @@ import java.util.UUID;
 public class PublicacionService {
 
     private final PublicacionRepository publicacionRepository;
+    private final ServicioAlmacenamiento servicioAlmacenamiento;
+
+    private static final long TAMANO_MAXIMO_IMAGEN = 10 * 1024 * 1024;
 
     @Value("${innoad.upload.dir:uploads/publicaciones}")
     private String uploadDir;
@@ -53,6 +56,7 @@ public class PublicacionService {
                 .build();
 
         Publicacion saved = publicacionRepository.save(publicacion);
+        servicioAlmacenamiento.agregarReferencia(imagenUrl);
         log.info("Publicación creada: {} por usuario {}", saved.getId(), usuario.getId());
         return saved;
     }
@@ -151,37 +155,20 @@ public class PublicacionService {
     }
 
     /**
-     * Guardar imagen en el servidor
+     * Guardar imagen en el servidor.
+     * El tipo se valida por el contenido del archivo (no por el Content-Type del cliente)
+     * y el tamaño máximo se controla mientras se escribe, sin cargar la imagen en memoria.
      */
     private String guardarImagen(MultipartFile archivo) throws IOException {
         if (archivo.isEmpty()) {
             throw new RuntimeException("Archivo vacío");
         }
 
-        // Validar tipo de archivo
-        String contentType = archivo.getContentType();
-        if (!isImagenValida(contentType)) {
-            throw new RuntimeException("Tipo de archivo no permitido: " + contentType);
-        }
-
-        // Validar tamaño (máximo 10MB)
-        if (archivo.getSize() > 10 * 1024 * 1024) {
-            throw new RuntimeException("Archivo muy grande. Máximo 10MB");
-        }
-
-        // Crear directorio si no existe
-        Path uploadPath = Paths.get(uploadDir);
-        Files.createDirectories(uploadPath);
-
-        // Generar nombre único
-        String nombreArchivo = UUID.randomUUID() + "_" + archivo.getOriginalFilename();
-        Path filePath = uploadPath.resolve(nombreArchivo);
-
-        // Guardar archivo
-        Files.write(filePath, archivo.getBytes());
+        // Guardar en el almacenamiento compartido (deduplicado por contenido), máximo 10MB
+        String imagenUrl = servicioAlmacenamiento.almacenarImagen(archivo, TAMANO_MAXIMO_IMAGEN).url();
 
-        log.info("Imagen guardada: {}", nombreArchivo);
-        return "/uploads/publicaciones/" + nombreArchivo;
+        log.info("Imagen guardada: {}", imagenUrl);
+        return imagenUrl;
     }
 
     /**
@@ -192,6 +179,12 @@ public class PublicacionService {
             return;
         }
 
+        // Imágenes del almacenamiento compartido
+        if (!imagenUrl.startsWith("/uploads/publicaciones/")) {
+            servicioAlmacenamiento.eliminarArchivo(imagenUrl);
+            return;
+        }
+
         // Extraer nombre del archivo de la URL
         String nombreArchivo = imagenUrl.substring(imagenUrl.lastIndexOf("/") + 1);
         Path filePath = Paths.get(uploadDir, nombreArchivo);
@@ -201,16 +194,4 @@ public class PublicacionService {
             log.info("Imagen eliminada: {}", nombreArchivo);
         }
     }
-
-    /**
-     * Validar si es imagen
-     */
-    private boolean isImagenValida(String contentType) {
-        return contentType != null && (
-            contentType.equals("image/jpeg") ||
-            contentType.equals("image/png") ||
-            contentType.equals("image/gif") ||
-            contentType.equals("image/webp")
-        );
-    }
 }
@@ -0,0 +1,163 @@
+package com.innoad.modules.screens.controller;
+
+import com.innoad.dto.respuesta.RespuestaAPI;
+import com.innoad.dto.respuesta.RespuestaDespliegue;
+import com.innoad.dto.solicitud.SolicitudDespliegue;
+import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.screens.service.ServicioDespliegues;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador para los despliegues escalonados de nuevas versiones del reproductor.
+ * Accesible por administradores y técnicos (rutas /api/v1/tecnico).
+ */
+@RestController
+@RequestMapping("/api/v1/tecnico/despliegues")
+@RequiredArgsConstructor
+@Tag(name = "Despliegues", description = "Despliegues escalonados de descargas a las pantallas")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8080", "http://127.0.0.1:8080"})
+public class ControladorDespliegues {
+
+    private final ServicioDespliegues servicioDespliegues;
+
+    /**
+     * Crea un despliegue
+     */
+    @PostMapping
+    @Operation(summary = "Crear despliegue",
+            description = "Reparte la descarga de una versión del reproductor en olas")
+    public ResponseEntity<RespuestaAPI<RespuestaDespliegue>> crearDespliegue(
+            @Valid @RequestBody SolicitudDespliegue solicitud,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaDespliegue despliegue = servicioDespliegues.crearDespliegue(solicitud, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(true)
+                            .mensaje("Despliegue creado exitosamente")
+                            .datos(despliegue)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(false)
+                            .mensaje("Error al crear despliegue: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Lista los despliegues con su avance
+     */
+    @GetMapping
+    @Operation(summary = "Listar despliegues", description = "Lista los despliegues con su avance")
+    public ResponseEntity<RespuestaAPI<List<RespuestaDespliegue>>> obtenerDespliegues() {
+        try {
+            List<RespuestaDespliegue> despliegues = servicioDespliegues.obtenerDespliegues();
+            return ResponseEntity.ok(
+                    RespuestaAPI.<List<RespuestaDespliegue>>builder()
+                            .exitoso(true)
+                            .mensaje("Despliegues obtenidos exitosamente")
+                            .datos(despliegues)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<List<RespuestaDespliegue>>builder()
+                            .exitoso(false)
+                            .mensaje("Error al obtener despliegues: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Pausa un despliegue
+     */
+    @PostMapping("/{id}/pausar")
+    @Operation(summary = "Pausar despliegue", description = "Deja de entregar turnos de descarga nuevos")
+    public ResponseEntity<RespuestaAPI<RespuestaDespliegue>> pausarDespliegue(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaDespliegue despliegue = servicioDespliegues.pausarDespliegue(id, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(true)
+                            .mensaje("Despliegue pausado exitosamente")
+                            .datos(despliegue)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(false)
+                            .mensaje("Error al pausar despliegue: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Reanuda un despliegue pausado (manualmente o por exceso de errores)
+     */
+    @PostMapping("/{id}/reanudar")
+    @Operation(summary = "Reanudar despliegue", description = "Reanuda un despliegue pausado")
+    public ResponseEntity<RespuestaAPI<RespuestaDespliegue>> reanudarDespliegue(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaDespliegue despliegue = servicioDespliegues.reanudarDespliegue(id, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(true)
+                            .mensaje("Despliegue reanudado exitosamente")
+                            .datos(despliegue)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(false)
+                            .mensaje("Error al reanudar despliegue: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Finaliza un despliegue
+     */
+    @PostMapping("/{id}/finalizar")
+    @Operation(summary = "Finalizar despliegue", description = "Las pantallas dejan de recibir turnos de este despliegue")
+    public ResponseEntity<RespuestaAPI<RespuestaDespliegue>> finalizarDespliegue(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaDespliegue despliegue = servicioDespliegues.finalizarDespliegue(id, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(true)
+                            .mensaje("Despliegue finalizado exitosamente")
+                            .datos(despliegue)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaDespliegue>builder()
+                            .exitoso(false)
+                            .mensaje("Error al finalizar despliegue: " + e.getMessage())
+                            .build());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.innoad.modules.screens.controller;
 import com.innoad.dto.solicitud.SolicitudPantalla;
 import com.innoad.dto.respuesta.RespuestaAPI;
 import com.innoad.dto.respuesta.RespuestaPantalla;
+import com.innoad.dto.respuesta.RespuestaTelemetriaPantalla;
 import com.innoad.modules.auth.domain.Usuario;
 import com.innoad.modules.screens.service.ServicioPantalla;
 import io.swagger.v3.oas.annotations.Operation;
@@ -107,6 +108,36 @@ public class ControladorPantalla {
         }
     }
 
+    /**
+     * Obtiene la telemetría de una pantalla
+     */
+    @GetMapping("/{id}/telemetria")
+    @Operation(summary = "Telemetría de pantalla",
+            description = "CPU, temperatura, memoria y disco de las últimas horas (resolución MUESTRA, MINUTO u HORA)")
+    public ResponseEntity<RespuestaAPI<RespuestaTelemetriaPantalla>> obtenerTelemetria(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "24") int horas,
+            @RequestParam(defaultValue = "MINUTO") String resolucion,
+            @AuthenticationPrincipal Usuario usuario
+    ) {
+        try {
+            RespuestaTelemetriaPantalla telemetria = servicioPantalla.obtenerTelemetria(id, horas, resolucion, usuario);
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaTelemetriaPantalla>builder()
+                            .exitoso(true)
+                            .mensaje("Telemetría obtenida exitosamente")
+                            .datos(telemetria)
+                            .build()
+            );
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaTelemetriaPantalla>builder()
+                            .exitoso(false)
+                            .mensaje("Error al obtener telemetría: " + e.getMessage())
+                            .build());
+        }
+    }
+
     /**
      * Actualiza una pantalla existente
      */
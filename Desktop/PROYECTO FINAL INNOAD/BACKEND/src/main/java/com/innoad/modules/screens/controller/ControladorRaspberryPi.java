@@ -1,18 +1,40 @@
 package com.innoad.modules.screens.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.innoad.dto.respuesta.RespuestaAPI;
 import com.innoad.dto.respuesta.RespuestaContenido;
+import com.innoad.dto.respuesta.RespuestaDeltaPlaylist;
+import com.innoad.dto.respuesta.RespuestaLoteReproducciones;
+import com.innoad.dto.respuesta.RespuestaTurnoDescarga;
+import com.innoad.modules.content.service.CodificadorPlaylistBinario;
+import com.innoad.modules.content.service.PaquetePantalla;
+import com.innoad.modules.content.service.PlaylistPantalla;
 import com.innoad.modules.content.service.ServicioContenido;
+import com.innoad.modules.content.service.ServicioPaquetesPantalla;
+import com.innoad.modules.content.service.ServicioReproducciones;
+import com.innoad.modules.screens.service.ServicioNotificacionPantallas;
 import com.innoad.modules.screens.service.ServicioPantalla;
+import com.innoad.modules.screens.service.ServicioVersionPlaylist;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Controlador especial para Raspberry Pi
@@ -28,43 +50,65 @@ public class ControladorRaspberryPi {
 
     private final ServicioContenido servicioContenido;
     private final ServicioPantalla servicioPantalla;
+    private final ServicioVersionPlaylist servicioVersionPlaylist;
+    private final ServicioNotificacionPantallas servicioNotificacionPantallas;
+    private final ServicioReproducciones servicioReproducciones;
+    private final ServicioPaquetesPantalla servicioPaquetesPantalla;
+    private final CodificadorPlaylistBinario codificadorPlaylistBinario;
+    private final ObjectMapper objectMapper;
 
     /**
      * Sincroniza contenidos para una pantalla específica
-     * Este endpoint es llamado por la Raspberry Pi para obtener los contenidos que debe mostrar
+     * Este endpoint es llamado por la Raspberry Pi para obtener los contenidos que debe mostrar.
+     * Si la pantalla envía If-None-Match con el ETag de su última sincronización y la lista no cambió,
+     * se responde 304 sin cuerpo y sin consultar los contenidos.
+     * Con incluirProximos=true se agregan al final los contenidos que se activan dentro del horizonte
+     * de precarga, marcados con activaDesde: la pantalla los descarga pero no los reproduce hasta entonces.
      */
     @GetMapping("/sincronizar/{codigoIdentificacion}")
     @Operation(summary = "Sincronizar contenidos",
-               description = "Obtiene los contenidos activos para una pantalla específica")
+               description = "Obtiene los contenidos activos para una pantalla específica (soporta ETag / 304)")
     public ResponseEntity<RespuestaAPI<List<RespuestaContenido>>> sincronizarContenidos(
             @PathVariable String codigoIdentificacion,
             @RequestParam(required = false) String direccionIp,
             @RequestParam(required = false) String versionSoftware,
-            @RequestParam(required = false) String informacionSistema
+            @RequestParam(required = false) String informacionSistema,
+            @RequestParam(defaultValue = "false") boolean incluirProximos,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
         try {
-            log.info("Sincronización solicitada - Pantalla: {} - IP: {}", codigoIdentificacion, direccionIp);
+            log.debug("Sincronización solicitada - Pantalla: {} - IP: {}", codigoIdentificacion, direccionIp);
 
             // Registrar conexión
             if (direccionIp != null) {
                 servicioPantalla.registrarConexion(codigoIdentificacion, direccionIp, versionSoftware, informacionSistema);
             }
 
+            // Lista sin cambios: responder 304 sin tocar los contenidos
+            String etagVigente = etagSincronizacion(servicioVersionPlaylist.obtenerEtagVigente(codigoIdentificacion), incluirProximos);
+            if (ServicioVersionPlaylist.coincideEtag(ifNoneMatch, etagVigente)) {
+                servicioPantalla.registrarSincronizacion(codigoIdentificacion);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etagVigente).varyBy(HttpHeaders.ACCEPT).build();
+            }
+
             // Obtener contenidos activos
-            List<RespuestaContenido> contenidos = servicioContenido.obtenerContenidosActivosParaPantalla(codigoIdentificacion);
+            PlaylistPantalla playlist = servicioContenido.obtenerPlaylistParaPantalla(codigoIdentificacion);
+            List<RespuestaContenido> contenidos = playlist.obtenerContenidos(incluirProximos);
 
             // Registrar sincronización
             servicioPantalla.registrarSincronizacion(codigoIdentificacion);
 
-            log.info("Sincronización exitosa - Pantalla: {} - Contenidos: {}", codigoIdentificacion, contenidos.size());
+            log.info("Sincronización exitosa - Pantalla: {} - Contenidos: {} - Versión: {}",
+                    codigoIdentificacion, contenidos.size(), playlist.getVersion());
 
-            return ResponseEntity.ok(
-                    RespuestaAPI.<List<RespuestaContenido>>builder()
+            return ResponseEntity.ok()
+                    .eTag(etagSincronizacion(playlist.getEtag(), incluirProximos))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(RespuestaAPI.<List<RespuestaContenido>>builder()
                             .exitoso(true)
                             .mensaje("Contenidos sincronizados exitosamente")
                             .datos(contenidos)
-                            .build()
-            );
+                            .build());
         } catch (Exception e) {
             log.error("Error en sincronización - Pantalla: {} - Error: {}", codigoIdentificacion, e.getMessage());
             return ResponseEntity.badRequest()
@@ -75,6 +119,164 @@ public class ControladorRaspberryPi {
         }
     }
 
+    /**
+     * Misma sincronización en formato binario compacto (Accept: application/vnd.innoad.playlist),
+     * sólo con los campos que usa el reproductor. Ver CodificadorPlaylistBinario para el formato.
+     * Es otra representación, así que su ETag lleva el sufijo "-bin" y no valida la copia JSON.
+     */
+    @GetMapping(value = "/sincronizar/{codigoIdentificacion}", produces = CodificadorPlaylistBinario.TIPO_MEDIO)
+    @Operation(summary = "Sincronizar contenidos (binario)",
+               description = "Obtiene los contenidos activos en formato binario compacto (soporta ETag / 304)")
+    public ResponseEntity<byte[]> sincronizarContenidosBinario(
+            @PathVariable String codigoIdentificacion,
+            @RequestParam(required = false) String direccionIp,
+            @RequestParam(required = false) String versionSoftware,
+            @RequestParam(required = false) String informacionSistema,
+            @RequestParam(defaultValue = "false") boolean incluirProximos,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        try {
+            if (direccionIp != null) {
+                servicioPantalla.registrarConexion(codigoIdentificacion, direccionIp, versionSoftware, informacionSistema);
+            }
+
+            String etagVigente = etagBinario(servicioVersionPlaylist.obtenerEtagVigente(codigoIdentificacion), incluirProximos);
+            if (ServicioVersionPlaylist.coincideEtag(ifNoneMatch, etagVigente)) {
+                servicioPantalla.registrarSincronizacion(codigoIdentificacion);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etagVigente).varyBy(HttpHeaders.ACCEPT).build();
+            }
+
+            PlaylistPantalla playlist = servicioContenido.obtenerPlaylistParaPantalla(codigoIdentificacion);
+            byte[] cuerpo = codificadorPlaylistBinario.codificar(playlist, incluirProximos);
+
+            servicioPantalla.registrarSincronizacion(codigoIdentificacion);
+
+            log.info("Sincronización binaria exitosa - Pantalla: {} - {} bytes - Versión: {}",
+                    codigoIdentificacion, cuerpo.length, playlist.getVersion());
+
+            return ResponseEntity.ok()
+                    .eTag(etagBinario(playlist.getEtag(), incluirProximos))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .contentType(MediaType.parseMediaType(CodificadorPlaylistBinario.TIPO_MEDIO))
+                    .body(cuerpo);
+        } catch (Exception e) {
+            log.error("Error en sincronización binaria - Pantalla: {} - Error: {}", codigoIdentificacion, e.getMessage());
+            // El error va en el mismo formato JSON que el resto de la API
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(errorComoJson("Error al sincronizar: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Sincronización incremental: la pantalla indica el ETag de su última sincronización
+     * (parámetro desde o If-None-Match) y recibe sólo los contenidos agregados, actualizados y eliminados.
+     * Si la versión ya no está en el diario se responde la lista completa (completa = true).
+     */
+    @GetMapping("/sincronizar/{codigoIdentificacion}/delta")
+    @Operation(summary = "Sincronizar cambios",
+               description = "Obtiene sólo los cambios en los contenidos desde la versión que tiene la pantalla")
+    public ResponseEntity<RespuestaAPI<RespuestaDeltaPlaylist>> sincronizarCambios(
+            @PathVariable String codigoIdentificacion,
+            @RequestParam(required = false) String desde,
+            @RequestParam(required = false) String direccionIp,
+            @RequestParam(required = false) String versionSoftware,
+            @RequestParam(required = false) String informacionSistema,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        try {
+            String etagPantalla = desde != null ? desde : ifNoneMatch;
+
+            if (direccionIp != null) {
+                servicioPantalla.registrarConexion(codigoIdentificacion, direccionIp, versionSoftware, informacionSistema);
+            }
+
+            String etagVigente = servicioVersionPlaylist.obtenerEtagVigente(codigoIdentificacion);
+            if (ServicioVersionPlaylist.coincideEtag(etagPantalla, etagVigente)) {
+                servicioPantalla.registrarSincronizacion(codigoIdentificacion);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etagVigente).build();
+            }
+
+            RespuestaDeltaPlaylist delta = servicioContenido.obtenerDeltaParaPantalla(codigoIdentificacion, etagPantalla);
+            servicioPantalla.registrarSincronizacion(codigoIdentificacion);
+
+            List<RespuestaTurnoDescarga> descargas = servicioPantalla.obtenerTurnosDescarga(codigoIdentificacion, versionSoftware);
+            if (!descargas.isEmpty()) {
+                delta.setDescargas(descargas);
+            }
+
+            log.info("Sincronización incremental - Pantalla: {} - Completa: {} - Agregados: {} - Actualizados: {} - Eliminados: {}",
+                    codigoIdentificacion, delta.isCompleta(), delta.getAgregados().size(),
+                    delta.getActualizados().size(), delta.getEliminados().size());
+
+            return ResponseEntity.ok()
+                    .eTag(delta.getEtag())
+                    .body(RespuestaAPI.<RespuestaDeltaPlaylist>builder()
+                            .exitoso(true)
+                            .mensaje("Cambios sincronizados exitosamente")
+                            .datos(delta)
+                            .build());
+        } catch (Exception e) {
+            log.error("Error en sincronización incremental - Pantalla: {} - Error: {}", codigoIdentificacion, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaDeltaPlaylist>builder()
+                            .exitoso(false)
+                            .mensaje("Error al sincronizar: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Paquete sin conexión: un TAR con manifest.json y todos los archivos de la lista de reproducción.
+     * Para el arranque en frío (una sola descarga) o para aprovisionar una pantalla por USB.
+     * Con If-None-Match igual al ETag de la lista vigente se responde 304.
+     */
+    @GetMapping(value = "/paquete/{codigoIdentificacion}", produces = "application/x-tar")
+    @Operation(summary = "Descargar paquete sin conexión",
+               description = "Descarga en un solo archivo TAR el manifiesto y los archivos de la lista de la pantalla")
+    public ResponseEntity<StreamingResponseBody> descargarPaquete(
+            @PathVariable String codigoIdentificacion,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        try {
+            String etagVigente = servicioVersionPlaylist.obtenerEtagVigente(codigoIdentificacion);
+            if (ServicioVersionPlaylist.coincideEtag(ifNoneMatch, etagVigente)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etagVigente).build();
+            }
+
+            PaquetePantalla paquete = servicioPaquetesPantalla.obtenerPaquete(codigoIdentificacion);
+            log.info("Descarga de paquete - Pantalla: {} - Versión: {} - {} bytes",
+                    codigoIdentificacion, paquete.getVersion(), paquete.getLongitud());
+
+            return ResponseEntity.ok()
+                    .eTag(paquete.getEtag())
+                    .contentLength(paquete.getLongitud())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"innoad-"
+                            + codigoIdentificacion + "-v" + paquete.getVersion() + ".tar\"")
+                    .body(salida -> servicioPaquetesPantalla.escribir(paquete, salida));
+        } catch (Exception e) {
+            log.warn("Paquete rechazado - Pantalla: {} - Error: {}", codigoIdentificacion, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Canal de eventos push (Server-Sent Events) para la pantalla.
+     * Emite "playlist-modificada" cuando cambian sus contenidos; la pantalla debe entonces llamar a /sincronizar.
+     * Con el canal abierto, la sincronización periódica sólo es un respaldo y puede espaciarse.
+     */
+    @GetMapping(value = "/eventos/{codigoIdentificacion}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Eventos de pantalla",
+               description = "Canal SSE que notifica cambios en la lista de reproducción de la pantalla")
+    public ResponseEntity<SseEmitter> suscribirEventos(@PathVariable String codigoIdentificacion) {
+        try {
+            return ResponseEntity.ok(servicioNotificacionPantallas.suscribir(codigoIdentificacion));
+        } catch (Exception e) {
+            log.warn("Suscripción a eventos rechazada - Pantalla: {} - Error: {}", codigoIdentificacion, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Registra la reproducción de un contenido
      * Llamado por la Raspberry Pi cada vez que muestra un contenido
@@ -109,7 +311,52 @@ public class ControladorRaspberryPi {
     }
 
     /**
-     * Heartbeat - Ping para verificar que la pantalla está conectada
+     * Registra un lote de reproducciones en formato NDJSON (un evento JSON por línea).
+     * Acepta el cuerpo comprimido con Content-Encoding: gzip. Pensado para que la Raspberry Pi
+     * envíe periódicamente lo acumulado, incluyendo lo registrado mientras estuvo sin conexión.
+     * Ejemplo de línea: {"idEvento": "5f0c...", "contenidoId": 12, "fechaReproduccion": "2025-01-01T10:00:00", "duracionSegundos": 10}
+     */
+    @PostMapping(value = "/reproducciones/{codigoIdentificacion}/lote",
+                 consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    @Operation(summary = "Registrar lote de reproducciones",
+               description = "Ingesta por lotes (NDJSON, opcionalmente gzip) de reproducciones de una pantalla")
+    public ResponseEntity<RespuestaAPI<RespuestaLoteReproducciones>> registrarLoteReproducciones(
+            @PathVariable String codigoIdentificacion,
+            HttpServletRequest request
+    ) {
+        try {
+            // Validar que la pantalla existe antes de leer el cuerpo
+            servicioPantalla.obtenerResumenPorCodigo(codigoIdentificacion);
+
+            InputStream cuerpo = request.getInputStream();
+            String codificacion = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+            if (codificacion != null && codificacion.toLowerCase().contains("gzip")) {
+                cuerpo = new GZIPInputStream(cuerpo, 8192);
+            }
+
+            RespuestaLoteReproducciones resultado = servicioReproducciones.registrarLote(codigoIdentificacion, cuerpo);
+
+            return ResponseEntity.ok(
+                    RespuestaAPI.<RespuestaLoteReproducciones>builder()
+                            .exitoso(true)
+                            .mensaje("Lote de reproducciones registrado")
+                            .datos(resultado)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Error al registrar lote de reproducciones - Pantalla: {} - Error: {}", codigoIdentificacion, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<RespuestaLoteReproducciones>builder()
+                            .exitoso(false)
+                            .mensaje("Error al registrar lote de reproducciones: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Heartbeat - Ping para verificar que la pantalla está conectada.
+     * Si hay despliegues vigentes, la respuesta trae en "descargas" los turnos de la pantalla:
+     * sólo debe descargar cuando la acción es DESCARGAR, e informar el resultado en /descargas.
      */
     @PostMapping("/heartbeat/{codigoIdentificacion}")
     @Operation(summary = "Heartbeat",
@@ -124,17 +371,23 @@ public class ControladorRaspberryPi {
             servicioPantalla.registrarConexion(codigoIdentificacion, direccionIp, versionSoftware, informacionSistema);
 
             // Obtener información de la pantalla
-            var pantalla = servicioPantalla.obtenerPorCodigoIdentificacion(codigoIdentificacion);
+            var pantalla = servicioPantalla.obtenerResumenPorCodigo(codigoIdentificacion);
+
+            Map<String, Object> datos = new HashMap<>(Map.of(
+                    "pantalla", pantalla.getNombre(),
+                    "estado", pantalla.getEstado(),
+                    "estaActiva", pantalla.estaActiva()
+            ));
+            List<RespuestaTurnoDescarga> descargas = servicioPantalla.obtenerTurnosDescarga(codigoIdentificacion, versionSoftware);
+            if (!descargas.isEmpty()) {
+                datos.put("descargas", descargas);
+            }
 
             return ResponseEntity.ok(
                     RespuestaAPI.<Map<String, Object>>builder()
                             .exitoso(true)
                             .mensaje("Heartbeat recibido")
-                            .datos(Map.of(
-                                    "pantalla", pantalla.getNombre(),
-                                    "estado", pantalla.getEstado(),
-                                    "estaActiva", pantalla.estaActiva()
-                            ))
+                            .datos(datos)
                             .build()
             );
         } catch (Exception e) {
@@ -146,6 +399,38 @@ public class ControladorRaspberryPi {
         }
     }
 
+    /**
+     * Resultado de la descarga de un turno: libera el cupo de la ubicación.
+     * También basta con reportar la versión nueva en el heartbeat.
+     */
+    @PostMapping("/descargas/{codigoIdentificacion}/{despliegueId}")
+    @Operation(summary = "Informar resultado de descarga",
+               description = "La pantalla informa si terminó con éxito la descarga de su turno")
+    public ResponseEntity<RespuestaAPI<Void>> informarResultadoDescarga(
+            @PathVariable String codigoIdentificacion,
+            @PathVariable Long despliegueId,
+            @RequestParam boolean exitoso
+    ) {
+        try {
+            servicioPantalla.informarResultadoDescarga(codigoIdentificacion, despliegueId, exitoso);
+
+            return ResponseEntity.ok(
+                    RespuestaAPI.<Void>builder()
+                            .exitoso(true)
+                            .mensaje("Resultado de descarga registrado")
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Error al registrar resultado de descarga - Pantalla: {} - Despliegue: {} - Error: {}",
+                    codigoIdentificacion, despliegueId, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(RespuestaAPI.<Void>builder()
+                            .exitoso(false)
+                            .mensaje("Error al registrar resultado de descarga: " + e.getMessage())
+                            .build());
+        }
+    }
+
     /**
      * Endpoint de salud para verificar que el servidor está funcionando
      */
@@ -175,7 +460,7 @@ public class ControladorRaspberryPi {
             @PathVariable String codigoIdentificacion
     ) {
         try {
-            var pantalla = servicioPantalla.obtenerPorCodigoIdentificacion(codigoIdentificacion);
+            var pantalla = servicioPantalla.obtenerResumenPorCodigo(codigoIdentificacion);
 
             return ResponseEntity.ok(
                     RespuestaAPI.<Map<String, Object>>builder()
@@ -198,4 +483,34 @@ public class ControladorRaspberryPi {
                             .build());
         }
     }
+
+    // Métodos auxiliares
+
+    /**
+     * ETag de la sincronización: la lista con contenidos próximos es otra representación y lleva su propio ETag
+     */
+    private static String etagSincronizacion(String etag, boolean incluirProximos) {
+        return incluirProximos ? ServicioVersionPlaylist.variante(etag, "prox") : etag;
+    }
+
+    /**
+     * ETag de la sincronización binaria, distinto del de la misma lista en JSON
+     */
+    private static String etagBinario(String etag, boolean incluirProximos) {
+        return ServicioVersionPlaylist.variante(etagSincronizacion(etag, incluirProximos), "bin");
+    }
+
+    /**
+     * Cuerpo de error RespuestaAPI serializado, para endpoints que responden bytes
+     */
+    private byte[] errorComoJson(String mensaje) {
+        try {
+            return objectMapper.writeValueAsBytes(RespuestaAPI.<Void>builder()
+                    .exitoso(false)
+                    .mensaje(mensaje)
+                    .build());
+        } catch (JsonProcessingException e) {
+            return "{\"exitoso\":false}".getBytes(StandardCharsets.UTF_8);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.innoad.modules.screens.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Despliegue escalonado de una nueva versión del reproductor (SOFTWARE) a la flota de pantallas.
+ * Los contenidos no se despliegan así: cada uno pertenece a una sola pantalla, que lo descarga
+ * al sincronizar su lista.
+ * Las pantallas reciben su turno de descarga en el heartbeat y en la sincronización incremental
+ * (ver OrquestadorDescargas); aquí sólo se guarda la configuración y el estado del despliegue.
+ */
+@Entity
+@Table(name = "despliegues_descarga")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DespliegueDescarga {
+
+    public static final String TIPO_SOFTWARE = "SOFTWARE";
+
+    public static final String ESTADO_ACTIVO = "ACTIVO";
+    public static final String ESTADO_PAUSADO = "PAUSADO";
+    public static final String ESTADO_FINALIZADO = "FINALIZADO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String nombre;
+
+    /**
+     * SOFTWARE
+     */
+    @Column(nullable = false, length = 20)
+    private String tipo;
+
+    /**
+     * Versión del reproductor a instalar; la pantalla termina cuando la reporta en su heartbeat
+     */
+    @Column(name = "version_objetivo", length = 20)
+    private String versionObjetivo;
+
+    /**
+     * URL de descarga del paquete
+     */
+    @Column(name = "url_descarga", length = 500)
+    private String urlDescarga;
+
+    /**
+     * ACTIVO, PAUSADO o FINALIZADO
+     */
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String estado = ESTADO_ACTIVO;
+
+    /**
+     * Cantidad de olas en que se reparte la flota
+     */
+    @Column(nullable = false)
+    private Integer olas;
+
+    @Column(name = "minutos_entre_olas", nullable = false)
+    private Integer minutosEntreOlas;
+
+    /**
+     * Descargas simultáneas máximas por ubicación (sitio)
+     */
+    @Column(name = "max_descargas_por_ubicacion", nullable = false)
+    private Integer maxDescargasPorUbicacion;
+
+    /**
+     * Tiempo que una pantalla conserva su turno sin informar resultado; al vencer cuenta como error
+     */
+    @Column(name = "minutos_reserva", nullable = false)
+    private Integer minutosReserva;
+
+    /**
+     * Proporción de errores (0-1) en los últimos resultados que pausa el despliegue
+     */
+    @Column(name = "umbral_errores", nullable = false)
+    private Double umbralErrores;
+
+    @Column(name = "motivo_pausa", length = 500)
+    private String motivoPausa;
+
+    @Column(name = "creado_por", length = 100)
+    private String creadoPor;
+
+    /**
+     * Inicio de la primera ola (se reinicia al reanudar)
+     */
+    @Column(name = "fecha_inicio", nullable = false)
+    private LocalDateTime fechaInicio;
+
+    @Column(name = "fecha_creacion", nullable = false, updatable = false)
+    @Builder.Default
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+}
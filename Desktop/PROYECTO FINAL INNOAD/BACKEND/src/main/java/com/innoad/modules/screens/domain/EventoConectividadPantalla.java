@@ -0,0 +1,22 @@
+package com.innoad.modules.screens.domain;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado cuando una pantalla pasa de desconectada a conectada o viceversa
+ * (ver RastreadorConectividadPantallas). Sirve para alertas de pantallas caídas.
+ */
+@Value
+public class EventoConectividadPantalla {
+
+    String codigoIdentificacion;
+
+    /**
+     * Nuevo estado: true si la pantalla se conectó, false si dejó de enviar heartbeats
+     */
+    boolean conectada;
+
+    LocalDateTime fecha;
+}
@@ -0,0 +1,30 @@
+package com.innoad.modules.screens.domain;
+
+import lombok.Value;
+
+/**
+ * Evento publicado cuando cambia la lista de reproducción de una pantalla
+ * (contenido creado, actualizado, eliminado o pantalla modificada).
+ * Se procesa después del commit para no exponer datos aún no confirmados.
+ */
+@Value
+public class EventoPlaylistModificado {
+
+    /**
+     * Pantalla cuya lista de reproducción cambió
+     */
+    Long pantallaId;
+
+    /**
+     * Indica que la pantalla fue eliminada
+     */
+    boolean pantallaEliminada;
+
+    public static EventoPlaylistModificado de(Long pantallaId) {
+        return new EventoPlaylistModificado(pantallaId, false);
+    }
+
+    public static EventoPlaylistModificado eliminacion(Long pantallaId) {
+        return new EventoPlaylistModificado(pantallaId, true);
+    }
+}
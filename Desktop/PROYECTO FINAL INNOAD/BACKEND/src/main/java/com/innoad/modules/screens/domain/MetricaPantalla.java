@@ -0,0 +1,43 @@
+package com.innoad.modules.screens.domain;
+
+import java.util.Set;
+
+/**
+ * Métricas de salud que las pantallas reportan en informacionSistema.
+ * Cada métrica acepta varios nombres de campo (normalizados: minúsculas, sin "_", "-" ni espacios)
+ * y un rango válido; los valores fuera de rango se descartan.
+ */
+public enum MetricaPantalla {
+
+    CPU(Set.of("cpu", "usocpu", "cpuuso", "cpuusage", "cpupercent"), 0, 100),
+    TEMPERATURA(Set.of("temperatura", "temp", "cputemp", "temperature", "tempcpu"), -40, 150),
+    MEMORIA(Set.of("memoria", "mem", "ram", "usomemoria", "memoryusage", "memory", "mempercent"), 0, 100),
+    DISCO(Set.of("disco", "disk", "usodisco", "diskusage", "almacenamiento", "diskpercent"), 0, 100);
+
+    private final Set<String> nombres;
+    private final double minimo;
+    private final double maximo;
+
+    MetricaPantalla(Set<String> nombres, double minimo, double maximo) {
+        this.nombres = nombres;
+        this.minimo = minimo;
+        this.maximo = maximo;
+    }
+
+    /**
+     * Métrica que corresponde a un nombre de campo (null si no es una métrica conocida)
+     */
+    public static MetricaPantalla desde(String nombre) {
+        String normalizado = nombre.toLowerCase().replace("_", "").replace("-", "").replace(" ", "");
+        for (MetricaPantalla metrica : values()) {
+            if (metrica.nombres.contains(normalizado)) {
+                return metrica;
+            }
+        }
+        return null;
+    }
+
+    public boolean esValido(double valor) {
+        return !Double.isNaN(valor) && valor >= minimo && valor <= maximo;
+    }
+}
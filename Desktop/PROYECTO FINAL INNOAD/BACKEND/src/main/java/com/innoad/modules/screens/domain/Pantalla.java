@@ -147,6 +147,13 @@ public class Pantalla {
      * Verifica si la pantalla está conectada (última conexión en los últimos 5 minutos)
      */
     public boolean estaConectada() {
+        return esConexionReciente(ultimaConexion);
+    }
+
+    /**
+     * Verifica si una fecha de conexión está dentro de los últimos 5 minutos
+     */
+    public static boolean esConexionReciente(LocalDateTime ultimaConexion) {
         if (ultimaConexion == null) {
             return false;
         }
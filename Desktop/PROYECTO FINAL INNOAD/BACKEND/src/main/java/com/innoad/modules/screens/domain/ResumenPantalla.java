@@ -0,0 +1,43 @@
+package com.innoad.modules.screens.domain;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Datos inmutables de una pantalla que necesitan los endpoints de Raspberry Pi.
+ * Se guardan en caché por código de identificación (ver CachePantallas).
+ */
+@Value
+@Builder
+public class ResumenPantalla {
+
+    Long id;
+    String codigoIdentificacion;
+    String nombre;
+    String estado;
+    String ubicacion;
+    String resolucion;
+    String orientacion;
+
+    /**
+     * Id del usuario propietario
+     */
+    Long usuarioId;
+
+    public static ResumenPantalla de(Pantalla pantalla) {
+        return ResumenPantalla.builder()
+                .id(pantalla.getId())
+                .codigoIdentificacion(pantalla.getCodigoIdentificacion())
+                .nombre(pantalla.getNombre())
+                .estado(pantalla.getEstado())
+                .ubicacion(pantalla.getUbicacion())
+                .resolucion(pantalla.getResolucion())
+                .orientacion(pantalla.getOrientacion())
+                .usuarioId(pantalla.getUsuario() != null ? pantalla.getUsuario().getId() : null)
+                .build();
+    }
+
+    public boolean estaActiva() {
+        return "ACTIVA".equals(estado);
+    }
+}
@@ -0,0 +1,80 @@
+package com.innoad.modules.screens.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Telemetría de una pantalla durante una hora: resumen horario por métrica y, en un bloque
+ * columnar, el promedio de cada minuto. Una gráfica de 24 horas lee 24 filas por la clave única.
+ * Las filas se escriben por lotes vía JDBC (ver ServicioTelemetriaPantallas).
+ */
+@Entity
+@Table(name = "telemetria_pantallas", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_telemetria_pantallas_hora", columnNames = {"pantalla_id", "hora"})
+}, indexes = {
+        @Index(name = "idx_telemetria_pantallas_hora", columnList = "hora")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetriaHoraPantalla {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Pantalla (sin FK: la limpieza por retención borra las filas antiguas)
+     */
+    @Column(name = "pantalla_id", nullable = false)
+    private Long pantallaId;
+
+    /**
+     * Inicio de la hora
+     */
+    @Column(nullable = false)
+    private LocalDateTime hora;
+
+    @Column(nullable = false)
+    private Integer muestras;
+
+    @Column(name = "cpu_promedio")
+    private Float cpuPromedio;
+
+    @Column(name = "cpu_maximo")
+    private Float cpuMaximo;
+
+    @Column(name = "temperatura_promedio")
+    private Float temperaturaPromedio;
+
+    @Column(name = "temperatura_maximo")
+    private Float temperaturaMaximo;
+
+    @Column(name = "memoria_promedio")
+    private Float memoriaPromedio;
+
+    @Column(name = "memoria_maximo")
+    private Float memoriaMaximo;
+
+    @Column(name = "disco_promedio")
+    private Float discoPromedio;
+
+    @Column(name = "disco_maximo")
+    private Float discoMaximo;
+
+    /**
+     * Promedios por minuto: por cada métrica (en el orden de MetricaPantalla) 60 valores float
+     * big-endian; NaN donde no hubo muestras
+     */
+    @Column(name = "minutos", nullable = false)
+    private byte[] minutos;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
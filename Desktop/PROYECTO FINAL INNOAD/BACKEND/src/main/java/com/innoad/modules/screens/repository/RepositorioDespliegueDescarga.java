@@ -0,0 +1,37 @@
+package com.innoad.modules.screens.repository;
+
+import com.innoad.modules.screens.domain.DespliegueDescarga;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de despliegues escalonados de descargas
+ */
+@Repository
+public interface RepositorioDespliegueDescarga extends JpaRepository<DespliegueDescarga, Long> {
+
+    /**
+     * Despliegues en los estados indicados (carga inicial del orquestador)
+     */
+    List<DespliegueDescarga> findByEstadoIn(Collection<String> estados);
+
+    /**
+     * Todos los despliegues, del más reciente al más antiguo
+     */
+    List<DespliegueDescarga> findAllByOrderByFechaCreacionDesc();
+
+    /**
+     * Pausa por errores sólo si sigue activo (retorna 0 si un administrador lo pausó o finalizó antes)
+     */
+    @Modifying
+    @Query("UPDATE DespliegueDescarga d SET d.estado = 'PAUSADO', d.motivoPausa = :motivo, d.fechaActualizacion = :ahora " +
+           "WHERE d.id = :id AND d.estado = 'ACTIVO'")
+    int pausarSiActivo(@Param("id") Long id, @Param("motivo") String motivo, @Param("ahora") LocalDateTime ahora);
+}
@@ -7,7 +7,6 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,12 +42,6 @@ public interface RepositorioPantalla extends JpaRepository<Pantalla, Long> {
     @Query("SELECT p FROM Pantalla p WHERE p.usuario.id = :usuarioId AND p.estado = 'ACTIVA'")
     List<Pantalla> findPantallasActivasByUsuarioId(@Param("usuarioId") Long usuarioId);
 
-    /**
-     * Busca pantallas conectadas (última conexión en los últimos 5 minutos)
-     */
-    @Query("SELECT p FROM Pantalla p WHERE p.ultimaConexion > :fechaLimite")
-    List<Pantalla> findPantallasConectadas(@Param("fechaLimite") LocalDateTime fechaLimite);
-
     /**
      * Busca pantallas por nombre (búsqueda parcial)
      */
@@ -77,10 +70,10 @@ public interface RepositorioPantalla extends JpaRepository<Pantalla, Long> {
     List<Pantalla> findAllByOrderByUltimaConexionDesc();
 
     /**
-     * Busca pantallas que no se han conectado en un período específico
+     * Código y última conexión de todas las pantallas (carga inicial del rastreador de conectividad)
      */
-    @Query("SELECT p FROM Pantalla p WHERE p.ultimaConexion IS NULL OR p.ultimaConexion < :fechaLimite")
-    List<Pantalla> findPantallasDesconectadas(@Param("fechaLimite") LocalDateTime fechaLimite);
+    @Query("SELECT p.codigoIdentificacion, p.ultimaConexion FROM Pantalla p")
+    List<Object[]> findCodigosYUltimaConexion();
 
     /**
      * Cuenta pantallas activas
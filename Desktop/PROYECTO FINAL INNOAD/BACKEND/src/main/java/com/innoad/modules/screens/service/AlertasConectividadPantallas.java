@@ -0,0 +1,79 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.modules.screens.domain.EventoConectividadPantalla;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Alertas de pantallas caídas a partir de EventoConectividadPantalla (ver RastreadorConectividadPantallas).
+ * Cada desconexión se registra en el log y en /actuator/metrics (innoad.pantallas.conectividad.*),
+ * donde el monitoreo puede alertar; al reconectarse se informa cuánto tiempo estuvo caída.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertasConectividadPantallas {
+
+    private final RastreadorConectividadPantallas rastreadorConectividad;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Desde cuándo está caída cada pantalla que se desconectó mientras la aplicación estaba en marcha
+     */
+    private final Map<String, LocalDateTime> caidas = new ConcurrentHashMap<>();
+
+    private final LongAdder desconexiones = new LongAdder();
+    private final LongAdder reconexiones = new LongAdder();
+
+    @PostConstruct
+    void registrarMetricas() {
+        FunctionCounter.builder("innoad.pantallas.conectividad.transiciones", desconexiones, LongAdder::sum)
+                .tag("estado", "desconectada")
+                .description("Pantallas que dejaron de enviar heartbeats")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.pantallas.conectividad.transiciones", reconexiones, LongAdder::sum)
+                .tag("estado", "conectada")
+                .description("Pantallas que volvieron a enviar heartbeats")
+                .register(meterRegistry);
+        Gauge.builder("innoad.pantallas.conectividad.desconectadas", rastreadorConectividad,
+                        RastreadorConectividadPantallas::contarDesconectadas)
+                .description("Pantallas sin heartbeat dentro del timeout")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarConectividad(EventoConectividadPantalla evento) {
+        if (!evento.isConectada()) {
+            desconexiones.increment();
+            caidas.put(evento.getCodigoIdentificacion(), evento.getFecha());
+            log.warn("Pantalla desconectada por falta de heartbeat: {}", evento.getCodigoIdentificacion());
+            return;
+        }
+
+        reconexiones.increment();
+        LocalDateTime caida = caidas.remove(evento.getCodigoIdentificacion());
+        if (caida != null) {
+            log.info("Pantalla reconectada: {} - Estuvo desconectada {} min",
+                    evento.getCodigoIdentificacion(), Duration.between(caida, evento.getFecha()).toMinutes());
+        }
+    }
+
+    /**
+     * Olvida una pantalla eliminada mientras estaba caída
+     */
+    public void olvidar(String codigoIdentificacion) {
+        caidas.remove(codigoIdentificacion);
+    }
+}
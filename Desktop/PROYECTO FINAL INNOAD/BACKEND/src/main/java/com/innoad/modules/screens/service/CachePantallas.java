@@ -0,0 +1,173 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.modules.screens.domain.ResumenPantalla;
+import com.innoad.modules.screens.repository.RepositorioPantalla;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché acotada y con expiración de pantallas por código de identificación.
+ * Una sincronización de Raspberry Pi resolvía la misma fila varias veces (conexión, sincronización,
+ * contenidos); con esta caché se consulta la base de datos una vez por pantalla y por TTL.
+ * Las métricas se publican en /actuator/metrics (innoad.pantallas.cache.*).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CachePantallas {
+
+    private final RepositorioPantalla repositorioPantalla;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${innoad.pantallas.cache.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    @Value("${innoad.pantallas.cache.max-entradas:50000}")
+    private int maxEntradas;
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Se incrementa en cada invalidación: una carga iniciada antes no debe guardar datos viejos
+     */
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+
+    @PostConstruct
+    void registrarMetricas() {
+        FunctionCounter.builder("innoad.pantallas.cache.aciertos", aciertos, LongAdder::sum)
+                .description("Búsquedas de pantalla resueltas desde la caché")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.pantallas.cache.fallos", fallos, LongAdder::sum)
+                .description("Búsquedas de pantalla que consultaron la base de datos")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.pantallas.cache.desalojos", desalojos, LongAdder::sum)
+                .description("Entradas descartadas por expiración o por tamaño máximo")
+                .register(meterRegistry);
+        Gauge.builder("innoad.pantallas.cache.tamano", entradas, Map::size)
+                .description("Pantallas en caché")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Obtiene la pantalla con el código indicado
+     *
+     * @throws IllegalArgumentException si no existe
+     */
+    public ResumenPantalla obtener(String codigoIdentificacion) {
+        long ahora = System.nanoTime();
+        Entrada entrada = entradas.get(codigoIdentificacion);
+        if (entrada != null) {
+            if (ahora - entrada.expira() < 0) {
+                aciertos.increment();
+                return entrada.pantalla();
+            }
+            if (entradas.remove(codigoIdentificacion, entrada)) {
+                desalojos.increment();
+            }
+        }
+
+        fallos.increment();
+        long generacionLectura = generacion.get();
+        ResumenPantalla pantalla = repositorioPantalla.findByCodigoIdentificacion(codigoIdentificacion)
+                .map(ResumenPantalla::de)
+                .orElseThrow(() -> new IllegalArgumentException("Pantalla no encontrada"));
+
+        if (generacion.get() == generacionLectura) {
+            hacerEspacio(ahora);
+            entradas.put(codigoIdentificacion, new Entrada(pantalla, ahora + TimeUnit.SECONDS.toNanos(ttlSegundos)));
+        }
+        return pantalla;
+    }
+
+    /**
+     * Indica si existe una pantalla con el código indicado
+     */
+    public boolean existe(String codigoIdentificacion) {
+        try {
+            obtener(codigoIdentificacion);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Descarta la pantalla de la caché, ahora y otra vez al confirmar la transacción en curso
+     * (para que una lectura concurrente no vuelva a guardar la fila anterior)
+     */
+    public void invalidar(String codigoIdentificacion) {
+        quitar(codigoIdentificacion);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    quitar(codigoIdentificacion);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cantidad de pantallas en caché
+     */
+    public int tamano() {
+        return entradas.size();
+    }
+
+    // Métodos auxiliares
+
+    private void quitar(String codigoIdentificacion) {
+        generacion.incrementAndGet();
+        entradas.remove(codigoIdentificacion);
+    }
+
+    /**
+     * Al llegar al máximo se descartan las entradas vencidas y, si no alcanza, una parte de las demás
+     */
+    private void hacerEspacio(long ahora) {
+        if (entradas.size() < maxEntradas) {
+            return;
+        }
+
+        int descartadas = 0;
+        for (Iterator<Entrada> iterador = entradas.values().iterator(); iterador.hasNext(); ) {
+            if (ahora - iterador.next().expira() >= 0) {
+                iterador.remove();
+                descartadas++;
+            }
+        }
+
+        int objetivo = maxEntradas - Math.max(1, maxEntradas / 10);
+        for (Iterator<Entrada> iterador = entradas.values().iterator();
+             iterador.hasNext() && entradas.size() > objetivo; ) {
+            iterador.next();
+            iterador.remove();
+            descartadas++;
+        }
+
+        desalojos.add(descartadas);
+        log.debug("Caché de pantallas llena: {} entradas descartadas", descartadas);
+    }
+
+    private record Entrada(ResumenPantalla pantalla, long expira) {
+    }
+}
@@ -0,0 +1,442 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.dto.respuesta.RespuestaTurnoDescarga;
+import com.innoad.modules.screens.domain.DespliegueDescarga;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import com.innoad.modules.screens.domain.ResumenPantalla;
+import com.innoad.modules.screens.repository.RepositorioDespliegueDescarga;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reparte en el tiempo la descarga de una nueva versión del reproductor en la flota,
+ * para que no la pidan todas las pantallas en su siguiente sondeo.
+ * <p>
+ * Cada pantalla cae en una ola fija del despliegue (hash del despliegue y la pantalla) con un desfase
+ * pseudoaleatorio dentro de la ola, así las aperturas no coinciden en el mismo segundo. Abierta su ola, la
+ * pantalla recibe un turno si su ubicación tiene cupo (máximo de descargas simultáneas por sitio); el
+ * turno vence si no informa el resultado a tiempo y cuenta como error. Si la proporción de errores en
+ * los últimos resultados supera el umbral, el despliegue se pausa: no se entregan turnos nuevos.
+ * <p>
+ * Una pantalla termina cuando reporta la versión objetivo, así que tras un reinicio no
+ * vuelve a descargar aunque los resultados en memoria se hayan perdido.
+ * <p>
+ * Los turnos se entregan en el heartbeat y en la sincronización incremental, sin consultar la base de
+ * datos: el estado vive en memoria y sólo los cambios de estado del despliegue se persisten. La pausa
+ * automática sólo se persiste si el despliegue sigue activo, para no pisar lo que haya hecho un administrador.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrquestadorDescargas {
+
+    private final RepositorioDespliegueDescarga repositorioDespliegue;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${innoad.pantallas.despliegues.ventana-resultados:50}")
+    private int ventanaResultados;
+
+    @Value("${innoad.pantallas.despliegues.minimo-resultados:10}")
+    private int minimoResultados;
+
+    private final Map<Long, EstadoDespliegue> despliegues = new ConcurrentHashMap<>();
+
+    /**
+     * Avance de un despliegue desde el último arranque
+     */
+    public record Avance(int descargasEnCurso, long completadas, long errores, double tasaErroresReciente) {
+    }
+
+    /**
+     * Carga los despliegues activos y pausados al iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarDespliegues() {
+        List<DespliegueDescarga> vigentes = repositorioDespliegue.findByEstadoIn(
+                List.of(DespliegueDescarga.ESTADO_ACTIVO, DespliegueDescarga.ESTADO_PAUSADO));
+        vigentes = vigentes.stream()
+                .filter(despliegue -> DespliegueDescarga.TIPO_SOFTWARE.equals(despliegue.getTipo()))
+                .toList();
+        vigentes.forEach(this::registrar);
+        log.info("Orquestador de descargas iniciado - Despliegues vigentes: {}", vigentes.size());
+    }
+
+    /**
+     * Agrega un despliegue nuevo o recién cargado
+     */
+    public void registrar(DespliegueDescarga despliegue) {
+        despliegues.put(despliegue.getId(), new EstadoDespliegue(despliegue, ventanaResultados));
+    }
+
+    /**
+     * Reanuda un despliegue con su nueva fecha de inicio: conserva los turnos vigentes y las pantallas
+     * que terminaron con éxito; las que fallaron vuelven a recibir turno y la ventana de errores se reinicia
+     */
+    public void reanudar(DespliegueDescarga despliegue) {
+        EstadoDespliegue nuevo = new EstadoDespliegue(despliegue, ventanaResultados);
+        EstadoDespliegue anterior = despliegues.get(despliegue.getId());
+        if (anterior != null) {
+            synchronized (anterior) {
+                nuevo.reservas.putAll(anterior.reservas);
+                nuevo.enCursoPorUbicacion.putAll(anterior.enCursoPorUbicacion);
+                nuevo.exitosas.addAll(anterior.exitosas);
+                nuevo.completadas = anterior.completadas;
+                nuevo.errores = anterior.errores;
+            }
+        }
+        despliegues.put(despliegue.getId(), nuevo);
+    }
+
+    /**
+     * Deja de entregar turnos nuevos; los turnos vigentes pueden terminar
+     */
+    public void pausar(Long despliegueId) {
+        EstadoDespliegue estado = despliegues.get(despliegueId);
+        if (estado != null) {
+            synchronized (estado) {
+                estado.pausado = true;
+            }
+        }
+    }
+
+    /**
+     * Retira un despliegue finalizado
+     */
+    public void retirar(Long despliegueId) {
+        despliegues.remove(despliegueId);
+    }
+
+    public Avance obtenerAvance(Long despliegueId) {
+        EstadoDespliegue estado = despliegues.get(despliegueId);
+        if (estado == null) {
+            return new Avance(0, 0, 0, 0);
+        }
+        synchronized (estado) {
+            return new Avance(estado.reservas.size(), estado.completadas, estado.errores, estado.tasaErrores());
+        }
+    }
+
+    /**
+     * Turnos de descarga de una pantalla en los despliegues vigentes (vacío si no tiene nada que descargar)
+     *
+     * @param versionReportada versión del reproductor que informa la pantalla (null si no se conoce)
+     */
+    public List<RespuestaTurnoDescarga> asignarTurnos(ResumenPantalla pantalla, String versionReportada) {
+        if (despliegues.isEmpty()) {
+            return List.of();
+        }
+        long ahora = System.currentTimeMillis();
+        List<RespuestaTurnoDescarga> turnos = new ArrayList<>();
+        List<EstadoDespliegue> aPausar = new ArrayList<>();
+
+        for (EstadoDespliegue estado : despliegues.values()) {
+            RespuestaTurnoDescarga turno;
+            synchronized (estado) {
+                turno = estado.asignar(pantalla, versionReportada, ahora);
+                if (estado.debePausarse(minimoResultados)) {
+                    aPausar.add(estado);
+                }
+            }
+            if (turno != null) {
+                turnos.add(turno);
+            }
+        }
+        aPausar.forEach(this::pausarPorErrores);
+        return turnos;
+    }
+
+    /**
+     * Resultado informado por la pantalla: libera su turno y actualiza la tasa de errores
+     */
+    public void informarResultado(ResumenPantalla pantalla, Long despliegueId, boolean exitoso) {
+        EstadoDespliegue estado = despliegues.get(despliegueId);
+        if (estado == null) {
+            throw new IllegalArgumentException("Despliegue no encontrado o finalizado");
+        }
+        boolean pausar;
+        synchronized (estado) {
+            if (!estado.liberar(pantalla.getId())) {
+                throw new IllegalArgumentException("La pantalla no tiene un turno vigente en este despliegue");
+            }
+            estado.registrarResultado(pantalla.getId(), exitoso);
+            pausar = estado.debePausarse(minimoResultados);
+        }
+        if (pausar) {
+            pausarPorErrores(estado);
+        }
+    }
+
+    /**
+     * Libera los turnos vencidos (cuentan como error)
+     */
+    @Scheduled(fixedDelayString = "${innoad.pantallas.despliegues.intervalo-revision-ms:30000}")
+    public void revisarReservas() {
+        long ahora = System.currentTimeMillis();
+        for (EstadoDespliegue estado : despliegues.values()) {
+            int vencidas;
+            boolean pausar;
+            synchronized (estado) {
+                vencidas = estado.liberarVencidas(ahora);
+                pausar = estado.debePausarse(minimoResultados);
+            }
+            if (vencidas > 0) {
+                log.warn("Despliegue {}: {} turnos vencieron sin resultado", estado.id, vencidas);
+            }
+            if (pausar) {
+                pausarPorErrores(estado);
+            }
+        }
+    }
+
+    /**
+     * Libera los turnos de una pantalla eliminada
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        if (evento.isPantallaEliminada() && evento.getPantallaId() != null) {
+            for (EstadoDespliegue estado : despliegues.values()) {
+                synchronized (estado) {
+                    estado.liberar(evento.getPantallaId());
+                }
+            }
+        }
+    }
+
+    // Métodos auxiliares
+
+    private void pausarPorErrores(EstadoDespliegue estado) {
+        String motivo;
+        synchronized (estado) {
+            if (estado.pausado) {
+                return;
+            }
+            estado.pausado = true;
+            motivo = String.format(Locale.ROOT, "Pausa automática: %.0f%% de errores en los últimos %d resultados",
+                    estado.tasaErrores() * 100, estado.cantidadVentana);
+        }
+        log.warn("Despliegue {} pausado - {}", estado.id, motivo);
+        try {
+            Integer filas = new TransactionTemplate(transactionManager).execute(tx ->
+                    repositorioDespliegue.pausarSiActivo(estado.id, motivo, LocalDateTime.now()));
+            if (filas == null || filas == 0) {
+                log.info("Despliegue {} ya no estaba activo: se conserva su estado", estado.id);
+            }
+        } catch (Exception e) {
+            // La pausa en memoria ya rige; se vuelve a persistir si se repite
+            log.error("Error al persistir la pausa del despliegue {}: {}", estado.id, e.getMessage());
+        }
+    }
+
+    /**
+     * Ola de la pantalla: fija por despliegue y pantalla, para que no cambie entre sondeos ni reinicios
+     */
+    private static long mezclar(long despliegueId, long pantallaId) {
+        long z = despliegueId * 0x9E3779B97F4A7C15L + pantallaId;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String normalizarUbicacion(String ubicacion) {
+        return ubicacion == null ? "" : ubicacion.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static LocalDateTime aFecha(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Turno vigente de una pantalla
+     */
+    private record Reserva(String ubicacion, long vence) {
+    }
+
+    /**
+     * Estado en memoria de un despliegue; se accede sincronizado sobre la instancia
+     */
+    private static final class EstadoDespliegue {
+
+        final Long id;
+        final String tipo;
+        final String versionObjetivo;
+        final String urlDescarga;
+        final int olas;
+        final long milisEntreOlas;
+        final int maxPorUbicacion;
+        final long milisReserva;
+        final double umbralErrores;
+        final long inicio;
+        boolean pausado;
+
+        final Map<Long, Reserva> reservas = new HashMap<>();
+        final Map<String, Integer> enCursoPorUbicacion = new HashMap<>();
+
+        /**
+         * Pantallas que ya terminaron: no reciben otro turno (las fallidas, hasta reanudar el despliegue)
+         */
+        final Set<Long> exitosas = new HashSet<>();
+        final Set<Long> fallidas = new HashSet<>();
+
+        // Ventana circular de los últimos resultados (true = error)
+        final boolean[] ventana;
+        int posicionVentana;
+        int cantidadVentana;
+        int erroresVentana;
+
+        long completadas;
+        long errores;
+
+        EstadoDespliegue(DespliegueDescarga despliegue, int tamanoVentana) {
+            this.id = despliegue.getId();
+            this.tipo = despliegue.getTipo();
+            this.versionObjetivo = despliegue.getVersionObjetivo();
+            this.urlDescarga = despliegue.getUrlDescarga();
+            this.olas = Math.max(1, despliegue.getOlas());
+            this.milisEntreOlas = Math.max(0, despliegue.getMinutosEntreOlas()) * 60_000L;
+            this.maxPorUbicacion = Math.max(1, despliegue.getMaxDescargasPorUbicacion());
+            this.milisReserva = Math.max(1, despliegue.getMinutosReserva()) * 60_000L;
+            this.umbralErrores = despliegue.getUmbralErrores();
+            this.inicio = despliegue.getFechaInicio().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            this.pausado = DespliegueDescarga.ESTADO_PAUSADO.equals(despliegue.getEstado());
+            this.ventana = new boolean[Math.max(1, tamanoVentana)];
+        }
+
+        RespuestaTurnoDescarga asignar(ResumenPantalla pantalla, String versionReportada, long ahora) {
+            Long pantallaId = pantalla.getId();
+            if (versionObjetivo.equals(versionReportada)) {
+                // La pantalla ya reporta la versión nueva: terminó (aunque no lo haya informado)
+                if (liberar(pantallaId)) {
+                    registrarResultado(pantallaId, true);
+                } else if (exitosas.add(pantallaId)) {
+                    fallidas.remove(pantallaId);
+                    completadas++;
+                }
+                return null;
+            }
+            if (exitosas.contains(pantallaId) || fallidas.contains(pantallaId)) {
+                return null;
+            }
+
+            Reserva reserva = reservas.get(pantallaId);
+            if (reserva != null && reserva.vence() > ahora) {
+                return turno(RespuestaTurnoDescarga.DESCARGAR).reservaHasta(aFecha(reserva.vence())).build();
+            }
+            if (pausado) {
+                return null;
+            }
+
+            long apertura = aperturaOla(pantallaId);
+            if (ahora < apertura) {
+                return turno(RespuestaTurnoDescarga.ESPERAR).disponibleDesde(aFecha(apertura)).build();
+            }
+
+            String ubicacion = normalizarUbicacion(pantalla.getUbicacion());
+            int enCurso = enCursoPorUbicacion.getOrDefault(ubicacion, 0);
+            if (enCurso >= maxPorUbicacion) {
+                return turno(RespuestaTurnoDescarga.ESPERAR).build();
+            }
+
+            long vence = ahora + milisReserva;
+            reservas.put(pantallaId, new Reserva(ubicacion, vence));
+            enCursoPorUbicacion.put(ubicacion, enCurso + 1);
+            return turno(RespuestaTurnoDescarga.DESCARGAR).reservaHasta(aFecha(vence)).build();
+        }
+
+        long aperturaOla(Long pantallaId) {
+            long hash = mezclar(id, pantallaId);
+            long ola = Math.floorMod(hash, olas);
+            long desfase = milisEntreOlas > 0 ? Math.floorMod(hash >>> 20, milisEntreOlas) : 0;
+            return inicio + ola * milisEntreOlas + desfase;
+        }
+
+        /**
+         * Quita el turno de la pantalla y devuelve el cupo a su ubicación (false si no tenía)
+         */
+        boolean liberar(Long pantallaId) {
+            Reserva reserva = reservas.remove(pantallaId);
+            if (reserva == null) {
+                return false;
+            }
+            enCursoPorUbicacion.computeIfPresent(reserva.ubicacion(), (clave, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+            return true;
+        }
+
+        int liberarVencidas(long ahora) {
+            List<Long> vencidas = new ArrayList<>();
+            Iterator<Map.Entry<Long, Reserva>> iterador = reservas.entrySet().iterator();
+            while (iterador.hasNext()) {
+                Map.Entry<Long, Reserva> entrada = iterador.next();
+                if (entrada.getValue().vence() <= ahora) {
+                    vencidas.add(entrada.getKey());
+                }
+            }
+            for (Long pantallaId : vencidas) {
+                liberar(pantallaId);
+                registrarResultado(pantallaId, false);
+            }
+            return vencidas.size();
+        }
+
+        void registrarResultado(Long pantallaId, boolean exitoso) {
+            if (exitoso) {
+                exitosas.add(pantallaId);
+                completadas++;
+            } else {
+                fallidas.add(pantallaId);
+                errores++;
+            }
+
+            if (cantidadVentana == ventana.length) {
+                if (ventana[posicionVentana]) {
+                    erroresVentana--;
+                }
+            } else {
+                cantidadVentana++;
+            }
+            ventana[posicionVentana] = !exitoso;
+            if (!exitoso) {
+                erroresVentana++;
+            }
+            posicionVentana = (posicionVentana + 1) % ventana.length;
+        }
+
+        double tasaErrores() {
+            return cantidadVentana == 0 ? 0 : (double) erroresVentana / cantidadVentana;
+        }
+
+        boolean debePausarse(int minimoResultados) {
+            return !pausado && cantidadVentana >= Math.min(minimoResultados, ventana.length)
+                    && tasaErrores() > umbralErrores;
+        }
+
+        private RespuestaTurnoDescarga.RespuestaTurnoDescargaBuilder turno(String accion) {
+            return RespuestaTurnoDescarga.builder()
+                    .despliegueId(id)
+                    .tipo(tipo)
+                    .accion(accion)
+                    .versionObjetivo(versionObjetivo)
+                    .urlDescarga(urlDescarga);
+        }
+    }
+}
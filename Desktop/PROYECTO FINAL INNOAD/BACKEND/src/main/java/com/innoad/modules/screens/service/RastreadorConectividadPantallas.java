@@ -0,0 +1,297 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.modules.screens.domain.EventoConectividadPantalla;
+import com.innoad.modules.screens.repository.RepositorioPantalla;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rastreador de conectividad de la flota de pantallas basado en una rueda de tiempo (hashed timing wheel).
+ * Cada heartbeat reprograma el vencimiento de la pantalla en O(1); un tick periódico recorre sólo
+ * la ranura que vence y marca como desconectadas las pantallas sin heartbeat reciente.
+ * Los conteos de conectadas/desconectadas se mantienen al día sin consultar la tabla pantallas.
+ * <p>
+ * No hay un candado global: el estado de cada pantalla se protege con su nodo y cada ranura con su
+ * propio conjunto, siempre en ese orden (nodo y luego ranura), así los heartbeats de pantallas
+ * distintas y el tick no se bloquean entre sí salvo cuando tocan la misma ranura.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RastreadorConectividadPantallas {
+
+    private static final int RANURAS = 512;
+
+    private final RepositorioPantalla repositorioPantalla;
+    private final ApplicationEventPublisher publicadorEventos;
+
+    @Value("${innoad.pantallas.conectividad.timeout-segundos:300}")
+    private long timeoutSegundos;
+
+    @Value("${innoad.pantallas.conectividad.tick-ms:1000}")
+    private long tickMs;
+
+    private final Map<String, Nodo> nodos = new ConcurrentHashMap<>();
+
+    private final List<Set<Nodo>> rueda = crearRueda();
+
+    private final AtomicInteger conectadas = new AtomicInteger();
+
+    private volatile long ultimoTick = -1;
+
+    /**
+     * Carga el estado inicial desde la última conexión persistida de cada pantalla
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        List<Object[]> filas = repositorioPantalla.findCodigosYUltimaConexion();
+        long inicio = tickActual();
+        ultimoTick = inicio;
+        for (Object[] fila : filas) {
+            String codigo = (String) fila[0];
+            LocalDateTime ultimaConexion = aFecha(fila[1]);
+            Nodo nodo = nodos.computeIfAbsent(codigo, Nodo::new);
+            synchronized (nodo) {
+                // Un heartbeat recibido durante el arranque es más reciente que lo persistido
+                if (ultimaConexion != null && !nodo.conectada && !nodo.eliminado) {
+                    long vencimiento = aMillis(ultimaConexion) / tickMs + timeoutTicks();
+                    if (vencimiento > inicio) {
+                        programar(nodo, vencimiento);
+                    }
+                }
+            }
+        }
+        log.info("Rastreador de conectividad inicializado: {} pantallas, {} conectadas", filas.size(), conectadas.get());
+    }
+
+    /**
+     * Registra un heartbeat: la pantalla queda conectada hasta que pase el timeout sin otro
+     */
+    public void registrarLatido(String codigoIdentificacion) {
+        boolean seConecto;
+        while (true) {
+            Nodo nodo = nodos.computeIfAbsent(codigoIdentificacion, Nodo::new);
+            synchronized (nodo) {
+                if (nodo.eliminado) {
+                    // Se olvidó mientras tanto: el heartbeat la vuelve a agregar con un nodo nuevo
+                    continue;
+                }
+                seConecto = !nodo.conectada;
+                programar(nodo, tickActual() + timeoutTicks());
+                break;
+            }
+        }
+        if (seConecto) {
+            log.debug("Pantalla conectada: {}", codigoIdentificacion);
+            publicadorEventos.publishEvent(
+                    new EventoConectividadPantalla(codigoIdentificacion, true, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Agrega una pantalla nueva a la flota (desconectada hasta su primer heartbeat)
+     */
+    public void registrarPantalla(String codigoIdentificacion) {
+        nodos.computeIfAbsent(codigoIdentificacion, Nodo::new);
+    }
+
+    /**
+     * Quita una pantalla eliminada
+     */
+    public void olvidar(String codigoIdentificacion) {
+        Nodo nodo = nodos.remove(codigoIdentificacion);
+        if (nodo == null) {
+            return;
+        }
+        synchronized (nodo) {
+            nodo.eliminado = true;
+            if (nodo.conectada) {
+                desprogramar(nodo);
+                nodo.conectada = false;
+                conectadas.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Indica si la pantalla envió un heartbeat dentro del timeout
+     */
+    public boolean estaConectada(String codigoIdentificacion) {
+        Nodo nodo = nodos.get(codigoIdentificacion);
+        return nodo != null && nodo.conectada;
+    }
+
+    public int contarConectadas() {
+        return conectadas.get();
+    }
+
+    public int contarDesconectadas() {
+        return Math.max(0, nodos.size() - conectadas.get());
+    }
+
+    public int contarPantallas() {
+        return nodos.size();
+    }
+
+    /**
+     * Códigos de las pantallas desconectadas (para alertas)
+     */
+    public List<String> obtenerCodigosDesconectados() {
+        return nodos.values().stream()
+                .filter(nodo -> !nodo.conectada)
+                .map(nodo -> nodo.codigo)
+                .toList();
+    }
+
+    /**
+     * Avanza la rueda hasta el tick actual y desconecta las pantallas vencidas
+     */
+    @Scheduled(fixedRateString = "${innoad.pantallas.conectividad.tick-ms:1000}")
+    public void avanzar() {
+        if (ultimoTick < 0) {
+            return;
+        }
+        List<String> desconectadas = new ArrayList<>();
+        long ahora = tickActual();
+        // Si pasó más de una vuelta basta con recorrer cada ranura una vez
+        long desde = Math.max(ultimoTick + 1, ahora - RANURAS + 1);
+        for (long tick = desde; tick <= ahora; tick++) {
+            for (Nodo nodo : vencidos(ranura(tick), ahora)) {
+                synchronized (nodo) {
+                    // Un heartbeat pudo reprogramarla después de tomar la ranura
+                    if (nodo.conectada && nodo.vencimiento <= ahora) {
+                        desprogramar(nodo);
+                        nodo.conectada = false;
+                        conectadas.decrementAndGet();
+                        desconectadas.add(nodo.codigo);
+                    }
+                }
+            }
+        }
+        ultimoTick = ahora;
+
+        if (!desconectadas.isEmpty()) {
+            log.info("Pantallas desconectadas por falta de heartbeat: {}", desconectadas.size());
+            LocalDateTime fecha = LocalDateTime.now();
+            desconectadas.forEach(codigo ->
+                    publicadorEventos.publishEvent(new EventoConectividadPantalla(codigo, false, fecha)));
+        }
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Programa el vencimiento de la pantalla; se llama con el candado del nodo
+     */
+    private void programar(Nodo nodo, long vencimiento) {
+        if (nodo.conectada) {
+            desprogramar(nodo);
+        } else {
+            nodo.conectada = true;
+            conectadas.incrementAndGet();
+        }
+        nodo.vencimiento = vencimiento;
+        Set<Nodo> ranura = ranura(vencimiento);
+        synchronized (ranura) {
+            ranura.add(nodo);
+        }
+    }
+
+    /**
+     * Quita la pantalla de su ranura; se llama con el candado del nodo
+     */
+    private void desprogramar(Nodo nodo) {
+        Set<Nodo> ranura = ranura(nodo.vencimiento);
+        synchronized (ranura) {
+            ranura.remove(nodo);
+        }
+    }
+
+    /**
+     * Pantallas de la ranura que ya vencieron; se copian para revisarlas con el candado de cada nodo
+     */
+    private static List<Nodo> vencidos(Set<Nodo> ranura, long ahora) {
+        synchronized (ranura) {
+            if (ranura.isEmpty()) {
+                return List.of();
+            }
+            List<Nodo> vencidos = new ArrayList<>();
+            for (Nodo nodo : ranura) {
+                if (nodo.vencimiento <= ahora) {
+                    vencidos.add(nodo);
+                }
+            }
+            return vencidos;
+        }
+    }
+
+    private Set<Nodo> ranura(long tick) {
+        return rueda.get((int) (tick % RANURAS));
+    }
+
+    private static List<Set<Nodo>> crearRueda() {
+        List<Set<Nodo>> ranuras = new ArrayList<>(RANURAS);
+        for (int i = 0; i < RANURAS; i++) {
+            ranuras.add(new HashSet<>());
+        }
+        return List.copyOf(ranuras);
+    }
+
+    private long tickActual() {
+        return System.currentTimeMillis() / tickMs;
+    }
+
+    private long timeoutTicks() {
+        return Math.max(1, timeoutSegundos * 1000 / tickMs);
+    }
+
+    private static long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime aFecha(Object valor) {
+        if (valor instanceof LocalDateTime fecha) {
+            return fecha;
+        }
+        if (valor instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        if (valor instanceof Instant instante) {
+            return LocalDateTime.ofInstant(instante, ZoneId.systemDefault());
+        }
+        return null;
+    }
+
+    /**
+     * Estado de una pantalla en la rueda (identidad por referencia). Sus campos se modifican con el
+     * candado del nodo; vencimiento no cambia mientras el nodo está en una ranura
+     */
+    private static final class Nodo {
+        private final String codigo;
+        private long vencimiento;
+        private volatile boolean conectada;
+        private boolean eliminado;
+
+        private Nodo(String codigo) {
+            this.codigo = codigo;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.dto.respuesta.RespuestaDespliegue;
+import com.innoad.dto.solicitud.SolicitudDespliegue;
+import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.screens.domain.DespliegueDescarga;
+import com.innoad.modules.screens.repository.RepositorioDespliegueDescarga;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Servicio para administrar los despliegues escalonados de descargas (ver OrquestadorDescargas)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioDespliegues {
+
+    private final RepositorioDespliegueDescarga repositorioDespliegue;
+    private final OrquestadorDescargas orquestadorDescargas;
+
+    @Value("${innoad.pantallas.despliegues.olas:10}")
+    private int olasPorDefecto;
+
+    @Value("${innoad.pantallas.despliegues.minutos-entre-olas:15}")
+    private int minutosEntreOlasPorDefecto;
+
+    @Value("${innoad.pantallas.despliegues.max-descargas-por-ubicacion:3}")
+    private int maxDescargasPorUbicacionPorDefecto;
+
+    @Value("${innoad.pantallas.despliegues.minutos-reserva:30}")
+    private int minutosReservaPorDefecto;
+
+    @Value("${innoad.pantallas.despliegues.umbral-errores:0.2}")
+    private double umbralErroresPorDefecto;
+
+    /**
+     * Crea un despliegue; la primera ola se abre de inmediato.
+     * Sólo se despliega software: un contenido pertenece a una sola pantalla, que lo descarga
+     * al sincronizar su lista, así que no hay flota que escalonar.
+     */
+    public RespuestaDespliegue crearDespliegue(SolicitudDespliegue solicitud, Usuario usuario) {
+        if (!DespliegueDescarga.TIPO_SOFTWARE.equals(solicitud.getTipo())) {
+            throw new IllegalArgumentException("Sólo se admiten despliegues de tipo SOFTWARE");
+        }
+        if (esVacio(solicitud.getVersionObjetivo()) || esVacio(solicitud.getUrlDescarga())) {
+            throw new IllegalArgumentException("Un despliegue de software requiere versionObjetivo y urlDescarga");
+        }
+
+        DespliegueDescarga despliegue = DespliegueDescarga.builder()
+                .nombre(solicitud.getNombre())
+                .tipo(DespliegueDescarga.TIPO_SOFTWARE)
+                .versionObjetivo(solicitud.getVersionObjetivo().trim())
+                .urlDescarga(solicitud.getUrlDescarga().trim())
+                .olas(valorO(solicitud.getOlas(), olasPorDefecto))
+                .minutosEntreOlas(valorO(solicitud.getMinutosEntreOlas(), minutosEntreOlasPorDefecto))
+                .maxDescargasPorUbicacion(valorO(solicitud.getMaxDescargasPorUbicacion(), maxDescargasPorUbicacionPorDefecto))
+                .minutosReserva(valorO(solicitud.getMinutosReserva(), minutosReservaPorDefecto))
+                .umbralErrores(solicitud.getUmbralErrores() != null ? solicitud.getUmbralErrores() : umbralErroresPorDefecto)
+                .creadoPor(usuario.getNombreUsuario())
+                .fechaInicio(LocalDateTime.now())
+                .build();
+
+        DespliegueDescarga guardado = repositorioDespliegue.save(despliegue);
+        orquestadorDescargas.registrar(guardado);
+
+        log.info("Despliegue creado: {} - Tipo: {} - Olas: {} - Usuario: {}",
+                guardado.getNombre(), guardado.getTipo(), guardado.getOlas(), usuario.getNombreUsuario());
+        return convertirARespuesta(guardado);
+    }
+
+    /**
+     * Lista los despliegues con su avance
+     */
+    public List<RespuestaDespliegue> obtenerDespliegues() {
+        return repositorioDespliegue.findAllByOrderByFechaCreacionDesc().stream()
+                .map(this::convertirARespuesta)
+                .toList();
+    }
+
+    /**
+     * Pausa un despliegue: no se entregan turnos nuevos
+     */
+    public RespuestaDespliegue pausarDespliegue(Long despliegueId, Usuario usuario) {
+        DespliegueDescarga despliegue = obtenerVigente(despliegueId);
+        despliegue.setEstado(DespliegueDescarga.ESTADO_PAUSADO);
+        despliegue.setMotivoPausa("Pausado por " + usuario.getNombreUsuario());
+        DespliegueDescarga guardado = repositorioDespliegue.save(despliegue);
+        orquestadorDescargas.pausar(despliegueId);
+
+        log.info("Despliegue pausado: {} - Usuario: {}", guardado.getNombre(), usuario.getNombreUsuario());
+        return convertirARespuesta(guardado);
+    }
+
+    /**
+     * Reanuda un despliegue pausado; las olas pendientes vuelven a contar desde ahora
+     */
+    public RespuestaDespliegue reanudarDespliegue(Long despliegueId, Usuario usuario) {
+        DespliegueDescarga despliegue = obtenerVigente(despliegueId);
+        despliegue.setEstado(DespliegueDescarga.ESTADO_ACTIVO);
+        despliegue.setMotivoPausa(null);
+        despliegue.setFechaInicio(LocalDateTime.now());
+        DespliegueDescarga guardado = repositorioDespliegue.save(despliegue);
+        orquestadorDescargas.reanudar(guardado);
+
+        log.info("Despliegue reanudado: {} - Usuario: {}", guardado.getNombre(), usuario.getNombreUsuario());
+        return convertirARespuesta(guardado);
+    }
+
+    /**
+     * Finaliza un despliegue: las pantallas dejan de recibir turnos
+     */
+    public RespuestaDespliegue finalizarDespliegue(Long despliegueId, Usuario usuario) {
+        DespliegueDescarga despliegue = obtenerVigente(despliegueId);
+        RespuestaDespliegue respuesta = convertirARespuesta(despliegue);
+
+        despliegue.setEstado(DespliegueDescarga.ESTADO_FINALIZADO);
+        repositorioDespliegue.save(despliegue);
+        orquestadorDescargas.retirar(despliegueId);
+        respuesta.setEstado(DespliegueDescarga.ESTADO_FINALIZADO);
+
+        log.info("Despliegue finalizado: {} - Usuario: {}", despliegue.getNombre(), usuario.getNombreUsuario());
+        return respuesta;
+    }
+
+    // Métodos auxiliares
+
+    private DespliegueDescarga obtenerVigente(Long despliegueId) {
+        DespliegueDescarga despliegue = repositorioDespliegue.findById(despliegueId)
+                .orElseThrow(() -> new IllegalArgumentException("Despliegue no encontrado"));
+        if (DespliegueDescarga.ESTADO_FINALIZADO.equals(despliegue.getEstado())) {
+            throw new IllegalArgumentException("El despliegue ya fue finalizado");
+        }
+        return despliegue;
+    }
+
+    private RespuestaDespliegue convertirARespuesta(DespliegueDescarga despliegue) {
+        OrquestadorDescargas.Avance avance = orquestadorDescargas.obtenerAvance(despliegue.getId());
+        return RespuestaDespliegue.builder()
+                .id(despliegue.getId())
+                .nombre(despliegue.getNombre())
+                .tipo(despliegue.getTipo())
+                .versionObjetivo(despliegue.getVersionObjetivo())
+                .urlDescarga(despliegue.getUrlDescarga())
+                .estado(despliegue.getEstado())
+                .motivoPausa(despliegue.getMotivoPausa())
+                .olas(despliegue.getOlas())
+                .minutosEntreOlas(despliegue.getMinutosEntreOlas())
+                .maxDescargasPorUbicacion(despliegue.getMaxDescargasPorUbicacion())
+                .minutosReserva(despliegue.getMinutosReserva())
+                .umbralErrores(despliegue.getUmbralErrores())
+                .fechaInicio(despliegue.getFechaInicio())
+                .fechaCreacion(despliegue.getFechaCreacion())
+                .creadoPor(despliegue.getCreadoPor())
+                .descargasEnCurso(avance.descargasEnCurso())
+                .completadas(avance.completadas())
+                .errores(avance.errores())
+                .tasaErroresReciente(avance.tasaErroresReciente())
+                .build();
+    }
+
+    private static int valorO(Integer valor, int porDefecto) {
+        return valor != null ? valor : porDefecto;
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.isBlank();
+    }
+}
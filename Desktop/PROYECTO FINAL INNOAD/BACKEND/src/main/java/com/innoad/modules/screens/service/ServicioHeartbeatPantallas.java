@@ -0,0 +1,208 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.modules.screens.domain.Pantalla;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabla en memoria de heartbeats de pantallas (write-behind).
+ * Los heartbeats y sincronizaciones de las Raspberry Pi se acumulan aquí y se
+ * escriben en la tabla pantallas mediante actualizaciones JDBC por lotes periódicas,
+ * en lugar de un SELECT + UPDATE completo de la entidad en cada petición.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioHeartbeatPantallas {
+
+    private static final String SQL_ACTUALIZAR =
+            "UPDATE pantallas SET " +
+            "ultima_conexion = COALESCE(?, ultima_conexion), " +
+            "ultima_sincronizacion = COALESCE(?, ultima_sincronizacion), " +
+            "direccion_ip = COALESCE(?, direccion_ip), " +
+            "version_software = COALESCE(?, version_software), " +
+            "informacion_sistema = COALESCE(?, informacion_sistema) " +
+            "WHERE codigo_identificacion = ?";
+
+    private final CachePantallas cachePantallas;
+    private final RastreadorConectividadPantallas rastreadorConectividad;
+    private final ServicioTelemetriaPantallas servicioTelemetria;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, HeartbeatPantalla> heartbeats = new ConcurrentHashMap<>();
+    private final Set<String> pendientes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Registra la conexión de una pantalla en memoria
+     */
+    public void registrarConexion(String codigoIdentificacion, String direccionIp, String versionSoftware, String informacionSistema) {
+        verificarPantalla(codigoIdentificacion);
+        LocalDateTime ahora = LocalDateTime.now();
+
+        heartbeats.compute(codigoIdentificacion, (codigo, actual) -> {
+            HeartbeatPantalla base = actual != null ? actual : HeartbeatPantalla.vacio(codigo);
+            return new HeartbeatPantalla(
+                    codigo,
+                    ahora,
+                    base.ultimaSincronizacion(),
+                    direccionIp != null ? truncar(direccionIp, 45) : base.direccionIp(),
+                    versionSoftware != null ? truncar(versionSoftware, 20) : base.versionSoftware(),
+                    informacionSistema != null ? truncar(informacionSistema, 500) : base.informacionSistema()
+            );
+        });
+        pendientes.add(codigoIdentificacion);
+        rastreadorConectividad.registrarLatido(codigoIdentificacion);
+        servicioTelemetria.registrar(codigoIdentificacion, informacionSistema);
+    }
+
+    /**
+     * Registra la sincronización de una pantalla en memoria
+     */
+    public void registrarSincronizacion(String codigoIdentificacion) {
+        verificarPantalla(codigoIdentificacion);
+        LocalDateTime ahora = LocalDateTime.now();
+
+        heartbeats.compute(codigoIdentificacion, (codigo, actual) -> {
+            HeartbeatPantalla base = actual != null ? actual : HeartbeatPantalla.vacio(codigo);
+            return new HeartbeatPantalla(codigo, base.ultimaConexion(), ahora,
+                    base.direccionIp(), base.versionSoftware(), base.informacionSistema());
+        });
+        pendientes.add(codigoIdentificacion);
+    }
+
+    /**
+     * Obtiene el último heartbeat conocido en memoria (null si no hay)
+     */
+    public HeartbeatPantalla obtener(String codigoIdentificacion) {
+        return heartbeats.get(codigoIdentificacion);
+    }
+
+    /**
+     * Última conexión de la pantalla, combinando la base de datos con lo aún no persistido
+     */
+    public LocalDateTime obtenerUltimaConexion(Pantalla pantalla) {
+        HeartbeatPantalla heartbeat = heartbeats.get(pantalla.getCodigoIdentificacion());
+        return masReciente(pantalla.getUltimaConexion(), heartbeat != null ? heartbeat.ultimaConexion() : null);
+    }
+
+    /**
+     * Verifica si la pantalla está conectada (O(1), ver RastreadorConectividadPantallas)
+     */
+    public boolean estaConectada(Pantalla pantalla) {
+        return rastreadorConectividad.estaConectada(pantalla.getCodigoIdentificacion());
+    }
+
+    /**
+     * Descarta el heartbeat de una pantalla eliminada
+     */
+    public void olvidar(String codigoIdentificacion) {
+        pendientes.remove(codigoIdentificacion);
+        heartbeats.remove(codigoIdentificacion);
+    }
+
+    /**
+     * Escribe en lote los heartbeats pendientes en la tabla pantallas
+     */
+    @Scheduled(fixedDelayString = "${innoad.pantallas.heartbeat.intervalo-escritura-ms:15000}")
+    public void escribirPendientes() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        List<HeartbeatPantalla> lote = new ArrayList<>();
+        Iterator<String> iterador = pendientes.iterator();
+        while (iterador.hasNext()) {
+            String codigo = iterador.next();
+            // Se quita de pendientes antes de leer: un heartbeat posterior lo vuelve a marcar
+            iterador.remove();
+            HeartbeatPantalla heartbeat = heartbeats.get(codigo);
+            if (heartbeat != null) {
+                lote.add(heartbeat);
+            }
+        }
+
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(SQL_ACTUALIZAR, lote, 500, (ps, heartbeat) -> {
+                ps.setTimestamp(1, aTimestamp(heartbeat.ultimaConexion()));
+                ps.setTimestamp(2, aTimestamp(heartbeat.ultimaSincronizacion()));
+                ps.setString(3, heartbeat.direccionIp());
+                ps.setString(4, heartbeat.versionSoftware());
+                ps.setString(5, heartbeat.informacionSistema());
+                ps.setString(6, heartbeat.codigoIdentificacion());
+            });
+            log.debug("Heartbeats de pantallas persistidos: {}", lote.size());
+        } catch (Exception e) {
+            // Reintentar en la siguiente ejecución
+            lote.forEach(heartbeat -> pendientes.add(heartbeat.codigoIdentificacion()));
+            log.error("Error al persistir heartbeats de pantallas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Persiste lo pendiente antes de detener la aplicación
+     */
+    @PreDestroy
+    public void alDetener() {
+        escribirPendientes();
+    }
+
+    // Métodos auxiliares
+
+    private void verificarPantalla(String codigoIdentificacion) {
+        if (!heartbeats.containsKey(codigoIdentificacion)) {
+            // Lanza "Pantalla no encontrada" si el código no existe
+            cachePantallas.obtener(codigoIdentificacion);
+        }
+    }
+
+    private static LocalDateTime masReciente(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static Timestamp aTimestamp(LocalDateTime fecha) {
+        return fecha != null ? Timestamp.valueOf(fecha) : null;
+    }
+
+    private static String truncar(String valor, int longitudMaxima) {
+        return valor.length() > longitudMaxima ? valor.substring(0, longitudMaxima) : valor;
+    }
+
+    /**
+     * Último estado de conexión conocido de una pantalla
+     */
+    public record HeartbeatPantalla(
+            String codigoIdentificacion,
+            LocalDateTime ultimaConexion,
+            LocalDateTime ultimaSincronizacion,
+            String direccionIp,
+            String versionSoftware,
+            String informacionSistema
+    ) {
+        static HeartbeatPantalla vacio(String codigoIdentificacion) {
+            return new HeartbeatPantalla(codigoIdentificacion, null, null, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Canal de notificaciones push (Server-Sent Events) hacia las pantallas.
+ * Avisa a la Raspberry Pi en cuanto cambia su lista de reproducción, de modo que
+ * la sincronización periódica sólo se necesita como respaldo.
+ * <p>
+ * Cada pantalla puede tener a lo sumo innoad.pantallas.eventos.max-emisores-por-pantalla canales abiertos:
+ * una reconexión cuyo canal anterior aún no se detectó como caído, o alguien que abre canales en bucle
+ * con el código de una pantalla, no acumula conexiones; al pasar el máximo se cierra la más antigua.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioNotificacionPantallas {
+
+    private final CachePantallas cachePantallas;
+    private final ServicioVersionPlaylist servicioVersionPlaylist;
+
+    @Value("${innoad.pantallas.eventos.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${innoad.pantallas.eventos.max-emisores-por-pantalla:2}")
+    private int maxEmisoresPorPantalla;
+
+    /**
+     * Canales de cada pantalla en orden de apertura (el primero es el más antiguo)
+     */
+    private final Map<Long, Deque<SseEmitter>> suscripciones = new ConcurrentHashMap<>();
+
+    /**
+     * Abre un canal de eventos para la pantalla indicada
+     */
+    public SseEmitter suscribir(String codigoIdentificacion) {
+        Long pantallaId = cachePantallas.obtener(codigoIdentificacion).getId();
+
+        SseEmitter emisor = new SseEmitter(timeoutMs);
+        List<SseEmitter> excedentes = new ArrayList<>();
+        suscripciones.compute(pantallaId, (id, emisores) -> {
+            Deque<SseEmitter> cola = emisores != null ? emisores : new ConcurrentLinkedDeque<>();
+            cola.addLast(emisor);
+            while (cola.size() > Math.max(1, maxEmisoresPorPantalla)) {
+                excedentes.add(cola.pollFirst());
+            }
+            return cola;
+        });
+        // Se cierran fuera de compute: sus callbacks vuelven a modificar el mapa
+        excedentes.forEach(SseEmitter::complete);
+        if (!excedentes.isEmpty()) {
+            log.debug("Canales de eventos antiguos cerrados - Pantalla: {} - Cantidad: {}",
+                    codigoIdentificacion, excedentes.size());
+        }
+
+        emisor.onCompletion(() -> quitar(pantallaId, emisor));
+        emisor.onTimeout(() -> quitar(pantallaId, emisor));
+        emisor.onError(error -> quitar(pantallaId, emisor));
+
+        enviar(pantallaId, emisor, SseEmitter.event()
+                .name("conectado")
+                .data(Map.of("pantallaId", pantallaId,
+                        "version", servicioVersionPlaylist.obtenerVersion(pantallaId))));
+
+        log.debug("Canal de eventos abierto - Pantalla: {}", codigoIdentificacion);
+        return emisor;
+    }
+
+    /**
+     * Notifica a las pantallas suscritas una vez confirmada la transacción que modificó su lista
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        Deque<SseEmitter> emisores = suscripciones.get(evento.getPantallaId());
+        if (emisores == null || emisores.isEmpty()) {
+            return;
+        }
+
+        String nombreEvento = evento.isPantallaEliminada() ? "pantalla-eliminada" : "playlist-modificada";
+        for (SseEmitter emisor : emisores) {
+            enviar(evento.getPantallaId(), emisor, SseEmitter.event()
+                    .name(nombreEvento)
+                    .data(Map.of("pantallaId", evento.getPantallaId())));
+            if (evento.isPantallaEliminada()) {
+                emisor.complete();
+            }
+        }
+        log.debug("Pantallas notificadas: {} - Evento: {}", emisores.size(), nombreEvento);
+    }
+
+    /**
+     * Mantiene abiertas las conexiones a través de proxies y detecta clientes caídos
+     */
+    @Scheduled(fixedDelayString = "${innoad.pantallas.eventos.intervalo-keepalive-ms:25000}")
+    public void enviarKeepAlive() {
+        suscripciones.forEach((pantallaId, emisores) ->
+                emisores.forEach(emisor -> enviar(pantallaId, emisor, SseEmitter.event().comment("keepalive"))));
+    }
+
+    /**
+     * Cantidad de pantallas con canal de eventos abierto
+     */
+    public int contarPantallasSuscritas() {
+        return suscripciones.size();
+    }
+
+    // Métodos auxiliares
+
+    private void enviar(Long pantallaId, SseEmitter emisor, SseEmitter.SseEventBuilder evento) {
+        try {
+            emisor.send(evento);
+        } catch (IOException e) {
+            quitar(pantallaId, emisor);
+            emisor.completeWithError(e);
+        } catch (IllegalStateException e) {
+            // El emisor ya fue completado
+            quitar(pantallaId, emisor);
+        }
+    }
+
+    private void quitar(Long pantallaId, SseEmitter emisor) {
+        suscripciones.computeIfPresent(pantallaId, (id, emisores) -> {
+            emisores.remove(emisor);
+            return emisores.isEmpty() ? null : emisores;
+        });
+    }
+}
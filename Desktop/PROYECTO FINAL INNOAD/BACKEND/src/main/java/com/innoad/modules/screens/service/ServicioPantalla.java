@@ -2,13 +2,18 @@ package com.innoad.modules.screens.service;
 
 import com.innoad.dto.solicitud.SolicitudPantalla;
 import com.innoad.dto.respuesta.RespuestaPantalla;
+import com.innoad.dto.respuesta.RespuestaTelemetriaPantalla;
+import com.innoad.dto.respuesta.RespuestaTurnoDescarga;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
 import com.innoad.modules.screens.domain.Pantalla;
+import com.innoad.modules.screens.domain.ResumenPantalla;
 import com.innoad.modules.auth.domain.Usuario;
 import com.innoad.modules.auth.service.ServicioJWT;
 import com.innoad.modules.content.repository.RepositorioContenido;
 import com.innoad.modules.screens.repository.RepositorioPantalla;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +33,13 @@ public class ServicioPantalla {
     private final RepositorioPantalla repositorioPantalla;
     private final RepositorioContenido repositorioContenido;
     private final ServicioJWT servicioJWT;
+    private final ApplicationEventPublisher publicadorEventos;
+    private final ServicioHeartbeatPantallas servicioHeartbeat;
+    private final CachePantallas cachePantallas;
+    private final RastreadorConectividadPantallas rastreadorConectividad;
+    private final AlertasConectividadPantallas alertasConectividad;
+    private final ServicioTelemetriaPantallas servicioTelemetria;
+    private final OrquestadorDescargas orquestadorDescargas;
 
     /**
      * Crea una nueva pantalla
@@ -52,6 +64,7 @@ public class ServicioPantalla {
         pantalla.setTokenAutenticacion(generarTokenPantalla(pantalla));
 
         Pantalla pantallaGuardada = repositorioPantalla.save(pantalla);
+        rastreadorConectividad.registrarPantalla(pantallaGuardada.getCodigoIdentificacion());
         log.info("Pantalla creada: {} - Usuario: {}", pantallaGuardada.getNombre(), usuario.getNombreUsuario());
 
         return convertirARespuesta(pantallaGuardada);
@@ -85,6 +98,8 @@ public class ServicioPantalla {
         pantalla.setNotas(solicitud.getNotas());
 
         Pantalla pantallaActualizada = repositorioPantalla.save(pantalla);
+        cachePantallas.invalidar(pantallaActualizada.getCodigoIdentificacion());
+        publicadorEventos.publishEvent(EventoPlaylistModificado.de(pantallaActualizada.getId()));
         log.info("Pantalla actualizada: {} - Usuario: {}", pantallaActualizada.getNombre(), usuario.getNombreUsuario());
 
         return convertirARespuesta(pantallaActualizada);
@@ -123,6 +138,21 @@ public class ServicioPantalla {
         return convertirARespuesta(pantalla);
     }
 
+    /**
+     * Obtiene la telemetría (CPU, temperatura, memoria, disco) de una pantalla en las últimas horas
+     */
+    @Transactional(readOnly = true)
+    public RespuestaTelemetriaPantalla obtenerTelemetria(Long pantallaId, int horas, String resolucion, Usuario usuario) {
+        Pantalla pantalla = obtenerPantallaPorId(pantallaId);
+
+        // Verificar permisos - Admin y Tecnico pueden ver cualquier pantalla; Usuario solo la suya
+        if (!usuario.esAdministrador() && !usuario.esTecnico() && !pantalla.getUsuario().getId().equals(usuario.getId())) {
+            throw new IllegalArgumentException("No tienes permiso para ver esta pantalla");
+        }
+
+        return servicioTelemetria.obtenerHistorial(pantallaId, horas, resolucion);
+    }
+
     /**
      * Elimina una pantalla
      */
@@ -136,6 +166,11 @@ public class ServicioPantalla {
         }
 
         repositorioPantalla.delete(pantalla);
+        cachePantallas.invalidar(pantalla.getCodigoIdentificacion());
+        servicioHeartbeat.olvidar(pantalla.getCodigoIdentificacion());
+        rastreadorConectividad.olvidar(pantalla.getCodigoIdentificacion());
+        alertasConectividad.olvidar(pantalla.getCodigoIdentificacion());
+        publicadorEventos.publishEvent(EventoPlaylistModificado.eliminacion(pantalla.getId()));
         log.info("Pantalla eliminada: {} - Usuario: {}", pantalla.getNombre(), usuario.getNombreUsuario());
     }
 
@@ -153,6 +188,7 @@ public class ServicioPantalla {
 
         pantalla.setEstado("ACTIVA");
         Pantalla pantallaActualizada = repositorioPantalla.save(pantalla);
+        cachePantallas.invalidar(pantallaActualizada.getCodigoIdentificacion());
 
         log.info("Pantalla activada: {}", pantalla.getNombre());
         return convertirARespuesta(pantallaActualizada);
@@ -172,38 +208,26 @@ public class ServicioPantalla {
 
         pantalla.setEstado("INACTIVA");
         Pantalla pantallaActualizada = repositorioPantalla.save(pantalla);
+        cachePantallas.invalidar(pantallaActualizada.getCodigoIdentificacion());
 
         log.info("Pantalla desactivada: {}", pantalla.getNombre());
         return convertirARespuesta(pantallaActualizada);
     }
 
     /**
-     * Registra la conexión de una pantalla (usado por Raspberry Pi)
+     * Registra la conexión de una pantalla (usado por Raspberry Pi).
+     * Se acumula en memoria y se persiste por lotes (ver ServicioHeartbeatPantallas).
      */
-    @Transactional
     public void registrarConexion(String codigoIdentificacion, String direccionIp, String versionSoftware, String informacionSistema) {
-        Pantalla pantalla = repositorioPantalla.findByCodigoIdentificacion(codigoIdentificacion)
-                .orElseThrow(() -> new IllegalArgumentException("Pantalla no encontrada"));
-
-        pantalla.actualizarConexion();
-        pantalla.setDireccionIp(direccionIp);
-        pantalla.setVersionSoftware(versionSoftware);
-        pantalla.setInformacionSistema(informacionSistema);
-
-        repositorioPantalla.save(pantalla);
+        servicioHeartbeat.registrarConexion(codigoIdentificacion, direccionIp, versionSoftware, informacionSistema);
         log.debug("Conexión registrada - Pantalla: {} - IP: {}", codigoIdentificacion, direccionIp);
     }
 
     /**
-     * Registra la sincronización de una pantalla
+     * Registra la sincronización de una pantalla (en memoria, persistida por lotes)
      */
-    @Transactional
     public void registrarSincronizacion(String codigoIdentificacion) {
-        Pantalla pantalla = repositorioPantalla.findByCodigoIdentificacion(codigoIdentificacion)
-                .orElseThrow(() -> new IllegalArgumentException("Pantalla no encontrada"));
-
-        pantalla.actualizarSincronizacion();
-        repositorioPantalla.save(pantalla);
+        servicioHeartbeat.registrarSincronizacion(codigoIdentificacion);
         log.debug("Sincronización registrada - Pantalla: {}", codigoIdentificacion);
     }
 
@@ -216,6 +240,38 @@ public class ServicioPantalla {
                 .orElseThrow(() -> new IllegalArgumentException("Pantalla no encontrada"));
     }
 
+    /**
+     * Obtiene los datos básicos de una pantalla por código de identificación, desde caché (para Raspberry Pi)
+     */
+    public ResumenPantalla obtenerResumenPorCodigo(String codigoIdentificacion) {
+        return cachePantallas.obtener(codigoIdentificacion);
+    }
+
+    /**
+     * Turnos de descarga de la pantalla en los despliegues vigentes (en memoria, ver OrquestadorDescargas)
+     *
+     * @param versionSoftware versión reportada en esta petición; si es null se usa la del último heartbeat
+     */
+    public List<RespuestaTurnoDescarga> obtenerTurnosDescarga(String codigoIdentificacion, String versionSoftware) {
+        ResumenPantalla pantalla = cachePantallas.obtener(codigoIdentificacion);
+        String version = versionSoftware;
+        if (version == null) {
+            ServicioHeartbeatPantallas.HeartbeatPantalla heartbeat = servicioHeartbeat.obtener(codigoIdentificacion);
+            version = heartbeat != null ? heartbeat.versionSoftware() : null;
+        }
+        return orquestadorDescargas.asignarTurnos(pantalla, version);
+    }
+
+    /**
+     * Registra el resultado de la descarga de un turno y libera el cupo de su ubicación
+     */
+    public void informarResultadoDescarga(String codigoIdentificacion, Long despliegueId, boolean exitoso) {
+        ResumenPantalla pantalla = cachePantallas.obtener(codigoIdentificacion);
+        orquestadorDescargas.informarResultado(pantalla, despliegueId, exitoso);
+        log.info("Resultado de descarga - Pantalla: {} - Despliegue: {} - Exitoso: {}",
+                codigoIdentificacion, despliegueId, exitoso);
+    }
+
     // Métodos auxiliares
 
     private Pantalla obtenerPantallaPorId(Long pantallaId) {
@@ -239,6 +295,15 @@ public class ServicioPantalla {
     private RespuestaPantalla convertirARespuesta(Pantalla pantalla) {
         long cantidadContenidos = repositorioContenido.contarContenidosActivosByPantallaId(pantalla.getId());
 
+        // Los datos de conexión más recientes pueden estar aún en memoria
+        ServicioHeartbeatPantallas.HeartbeatPantalla heartbeat = servicioHeartbeat.obtener(pantalla.getCodigoIdentificacion());
+        LocalDateTime ultimaConexion = servicioHeartbeat.obtenerUltimaConexion(pantalla);
+        LocalDateTime ultimaSincronizacion = pantalla.getUltimaSincronizacion();
+        if (heartbeat != null && heartbeat.ultimaSincronizacion() != null
+                && (ultimaSincronizacion == null || heartbeat.ultimaSincronizacion().isAfter(ultimaSincronizacion))) {
+            ultimaSincronizacion = heartbeat.ultimaSincronizacion();
+        }
+
         return RespuestaPantalla.builder()
                 .id(pantalla.getId())
                 .nombre(pantalla.getNombre())
@@ -251,13 +316,13 @@ public class ServicioPantalla {
                 .usuarioId(pantalla.getUsuario().getId())
                 .nombreUsuario(pantalla.getUsuario().getNombreUsuario())
                 .fechaRegistro(pantalla.getFechaRegistro())
-                .ultimaConexion(pantalla.getUltimaConexion())
-                .ultimaSincronizacion(pantalla.getUltimaSincronizacion())
-                .direccionIp(pantalla.getDireccionIp())
-                .versionSoftware(pantalla.getVersionSoftware())
-                .informacionSistema(pantalla.getInformacionSistema())
+                .ultimaConexion(ultimaConexion)
+                .ultimaSincronizacion(ultimaSincronizacion)
+                .direccionIp(heartbeat != null && heartbeat.direccionIp() != null ? heartbeat.direccionIp() : pantalla.getDireccionIp())
+                .versionSoftware(heartbeat != null && heartbeat.versionSoftware() != null ? heartbeat.versionSoftware() : pantalla.getVersionSoftware())
+                .informacionSistema(heartbeat != null && heartbeat.informacionSistema() != null ? heartbeat.informacionSistema() : pantalla.getInformacionSistema())
                 .notas(pantalla.getNotas())
-                .estaConectada(pantalla.estaConectada())
+                .estaConectada(rastreadorConectividad.estaConectada(pantalla.getCodigoIdentificacion()))
                 .cantidadContenidos((int) cantidadContenidos)
                 .build();
     }
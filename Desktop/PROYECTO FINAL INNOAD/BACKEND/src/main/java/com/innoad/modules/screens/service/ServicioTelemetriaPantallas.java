@@ -0,0 +1,678 @@
+package com.innoad.modules.screens.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innoad.dto.respuesta.RespuestaTelemetriaPantalla;
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import com.innoad.modules.screens.domain.MetricaPantalla;
+import com.innoad.modules.screens.domain.ResumenPantalla;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Telemetría de salud de las pantallas (CPU, temperatura, memoria, disco) tomada de informacionSistema.
+ * <p>
+ * Cada heartbeat se interpreta a métricas numéricas y se guarda en memoria:
+ * las muestras recientes en buffers circulares de primitivos por pantalla, y la hora en curso como
+ * acumuladores por minuto. Una vez por intervalo se escribe por lotes una fila por pantalla y hora
+ * (resumen horario + bloque columnar con el promedio de cada minuto) con INSERT ... ON CONFLICT,
+ * así la base de datos recibe a lo sumo una fila por pantalla y hora en lugar de una por heartbeat.
+ * Tras un reinicio, la primera escritura de cada hora se combina con la fila ya guardada.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioTelemetriaPantallas {
+
+    private static final MetricaPantalla[] METRICAS = MetricaPantalla.values();
+    private static final int MINUTOS = 60;
+    private static final int TAMANO_LOTE_JDBC = 500;
+
+    private static final String COLUMNAS_RESUMEN =
+            "muestras, cpu_promedio, cpu_maximo, temperatura_promedio, temperatura_maximo, " +
+            "memoria_promedio, memoria_maximo, disco_promedio, disco_maximo, minutos";
+
+    private static final String SQL_GUARDAR =
+            "INSERT INTO telemetria_pantallas (pantalla_id, hora, " + COLUMNAS_RESUMEN + ", fecha_actualizacion) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (pantalla_id, hora) DO UPDATE SET " +
+            "muestras = EXCLUDED.muestras, " +
+            "cpu_promedio = EXCLUDED.cpu_promedio, cpu_maximo = EXCLUDED.cpu_maximo, " +
+            "temperatura_promedio = EXCLUDED.temperatura_promedio, temperatura_maximo = EXCLUDED.temperatura_maximo, " +
+            "memoria_promedio = EXCLUDED.memoria_promedio, memoria_maximo = EXCLUDED.memoria_maximo, " +
+            "disco_promedio = EXCLUDED.disco_promedio, disco_maximo = EXCLUDED.disco_maximo, " +
+            "minutos = EXCLUDED.minutos, fecha_actualizacion = EXCLUDED.fecha_actualizacion";
+
+    private static final String SQL_HISTORIAL =
+            "SELECT pantalla_id, hora, " + COLUMNAS_RESUMEN + " FROM telemetria_pantallas " +
+            "WHERE pantalla_id = ? AND hora >= ? AND hora <= ? ORDER BY hora";
+
+    private static final String SQL_EXISTENTES =
+            "SELECT pantalla_id, hora, " + COLUMNAS_RESUMEN + " FROM telemetria_pantallas WHERE hora = ? AND pantalla_id IN (%s)";
+
+    private static final String SQL_DEPURAR = "DELETE FROM telemetria_pantallas WHERE hora < ?";
+
+    /**
+     * Número inicial de un valor ("23.5%", "51.2°C", "40")
+     */
+    private static final Pattern PATRON_NUMERO = Pattern.compile("^-?\\d+(?:\\.\\d+)?");
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final CachePantallas cachePantallas;
+
+    @Value("${innoad.pantallas.telemetria.muestras-recientes:240}")
+    private int capacidadReciente;
+
+    @Value("${innoad.pantallas.telemetria.dias-retencion:30}")
+    private int diasRetencion;
+
+    private final Map<Long, SerieTelemetria> series = new ConcurrentHashMap<>();
+
+    /**
+     * Horas ya terminadas pendientes de escribir
+     */
+    private final Queue<BloqueHora> cerrados = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Registra las métricas de un heartbeat (sin acceso a la base de datos).
+     * Los textos que no contienen métricas conocidas se ignoran.
+     */
+    public void registrar(String codigoIdentificacion, String informacionSistema) {
+        if (informacionSistema == null || informacionSistema.isBlank()) {
+            return;
+        }
+        float[] valores = interpretar(informacionSistema);
+        if (valores == null) {
+            return;
+        }
+        ResumenPantalla pantalla = cachePantallas.obtener(codigoIdentificacion);
+        series.computeIfAbsent(pantalla.getId(), id -> new SerieTelemetria(id, capacidadReciente))
+                .agregar(LocalDateTime.now(), valores, cerrados);
+    }
+
+    /**
+     * Historial de una pantalla en las últimas horas.
+     *
+     * @param resolucion MUESTRA (muestras recientes en memoria), MINUTO u HORA
+     */
+    public RespuestaTelemetriaPantalla obtenerHistorial(Long pantallaId, int horas, String resolucion) {
+        if (horas < 1 || horas > diasRetencion * 24) {
+            throw new IllegalArgumentException("Las horas deben estar entre 1 y " + diasRetencion * 24);
+        }
+        String tipo = resolucion == null ? "MINUTO" : resolucion.toUpperCase();
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime desde = ahora.truncatedTo(ChronoUnit.HOURS).minusHours(horas - 1L);
+        SerieTelemetria serie = series.get(pantallaId);
+
+        List<RespuestaTelemetriaPantalla.PuntoTelemetria> puntos = switch (tipo) {
+            case "MUESTRA" -> serie != null ? serie.muestrasDesde(desde) : List.of();
+            case "MINUTO", "HORA" -> puntosAgregados(pantallaId, serie, desde, ahora, "HORA".equals(tipo));
+            default -> throw new IllegalArgumentException("Resolución no válida: " + resolucion);
+        };
+
+        return RespuestaTelemetriaPantalla.builder()
+                .pantallaId(pantallaId)
+                .desde(desde)
+                .hasta(ahora)
+                .resolucion(tipo)
+                .ultimaMuestra(serie != null ? serie.ultima() : null)
+                .puntos(puntos)
+                .build();
+    }
+
+    /**
+     * Escribe por lotes las horas cerradas y la hora en curso de las pantallas con muestras nuevas
+     */
+    @Scheduled(fixedDelayString = "${innoad.pantallas.telemetria.intervalo-escritura-ms:60000}")
+    public void escribirPendientes() {
+        List<BloqueHora> terminados = new ArrayList<>();
+        BloqueHora cerrado;
+        while ((cerrado = cerrados.poll()) != null) {
+            terminados.add(cerrado);
+        }
+        List<SerieTelemetria> modificadas = series.values().stream().filter(SerieTelemetria::estaModificada).toList();
+        if (terminados.isEmpty() && modificadas.isEmpty()) {
+            return;
+        }
+
+        List<BloqueHora> lote = new ArrayList<>(terminados);
+        try {
+            combinarConGuardados(terminados, modificadas);
+            for (SerieTelemetria serie : modificadas) {
+                lote.add(serie.tomarHoraEnCurso());
+            }
+
+            Timestamp fecha = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(SQL_GUARDAR, lote, TAMANO_LOTE_JDBC, (ps, bloque) -> {
+                ps.setLong(1, bloque.pantallaId);
+                ps.setTimestamp(2, Timestamp.valueOf(bloque.hora));
+                ps.setInt(3, bloque.muestras);
+                int indice = 4;
+                for (int m = 0; m < METRICAS.length; m++) {
+                    setFloat(ps, indice++, bloque.promedioHora(m));
+                    setFloat(ps, indice++, bloque.maximo[m]);
+                }
+                ps.setBytes(indice++, bloque.codificarMinutos());
+                ps.setTimestamp(indice, fecha);
+            });
+            log.debug("Telemetría de pantallas persistida: {} filas", lote.size());
+        } catch (Exception e) {
+            // Reintentar en la siguiente ejecución
+            cerrados.addAll(terminados);
+            modificadas.forEach(SerieTelemetria::marcarModificada);
+            log.error("Error al persistir telemetría de pantallas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Borra las filas más antiguas que la retención configurada
+     */
+    @Scheduled(cron = "0 15 3 * * *")
+    public void depurar() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(diasRetencion).truncatedTo(ChronoUnit.HOURS);
+        int eliminadas = jdbcTemplate.update(SQL_DEPURAR, Timestamp.valueOf(limite));
+        if (eliminadas > 0) {
+            log.info("Telemetría depurada: {} filas anteriores a {}", eliminadas, limite);
+        }
+    }
+
+    /**
+     * Descarta la telemetría en memoria de una pantalla eliminada
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        if (evento.isPantallaEliminada() && evento.getPantallaId() != null) {
+            series.remove(evento.getPantallaId());
+            cerrados.removeIf(bloque -> bloque.pantallaId.equals(evento.getPantallaId()));
+        }
+    }
+
+    @PreDestroy
+    public void alDetener() {
+        escribirPendientes();
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Métricas del texto de informacionSistema: JSON ({"cpu": 23.5, "temp": 51}) o pares clave=valor
+     * separados por ; , & o espacios ("cpu=23.5;temp=51.2C;mem=40%"). Null si no hay ninguna métrica.
+     */
+    float[] interpretar(String texto) {
+        float[] valores = new float[METRICAS.length];
+        Arrays.fill(valores, Float.NaN);
+        boolean encontrada = false;
+
+        String contenido = texto.trim();
+        if (contenido.startsWith("{")) {
+            try {
+                for (Map.Entry<String, JsonNode> campo : objectMapper.readTree(contenido).properties()) {
+                    JsonNode valor = campo.getValue();
+                    if (valor.isNumber() || valor.isTextual()) {
+                        encontrada |= asignar(valores, campo.getKey(), valor.asText());
+                    }
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        } else {
+            for (String par : contenido.split("[;,&\\s]+")) {
+                int separador = par.indexOf('=');
+                if (separador < 0) {
+                    separador = par.indexOf(':');
+                }
+                if (separador > 0) {
+                    encontrada |= asignar(valores, par.substring(0, separador), par.substring(separador + 1));
+                }
+            }
+        }
+        return encontrada ? valores : null;
+    }
+
+    private static boolean asignar(float[] valores, String nombre, String texto) {
+        MetricaPantalla metrica = MetricaPantalla.desde(nombre);
+        if (metrica == null) {
+            return false;
+        }
+        Matcher numero = PATRON_NUMERO.matcher(texto.trim());
+        if (!numero.find()) {
+            return false;
+        }
+        double valor = Double.parseDouble(numero.group());
+        if (!metrica.esValido(valor)) {
+            return false;
+        }
+        valores[metrica.ordinal()] = (float) valor;
+        return true;
+    }
+
+    /**
+     * Antes de la primera escritura de una hora iniciada tras un reinicio, incorpora lo ya guardado
+     * para esa hora (una consulta por hora distinta, no por pantalla)
+     */
+    private void combinarConGuardados(List<BloqueHora> terminados, List<SerieTelemetria> modificadas) {
+        Map<LocalDateTime, Map<Long, Object>> porHora = new HashMap<>();
+        for (BloqueHora bloque : terminados) {
+            if (!bloque.combinado) {
+                porHora.computeIfAbsent(bloque.hora, hora -> new HashMap<>()).put(bloque.pantallaId, bloque);
+            }
+        }
+        for (SerieTelemetria serie : modificadas) {
+            LocalDateTime hora = serie.horaSinCombinar();
+            if (hora != null) {
+                porHora.computeIfAbsent(hora, clave -> new HashMap<>()).put(serie.pantallaId, serie);
+            }
+        }
+
+        for (Map.Entry<LocalDateTime, Map<Long, Object>> entrada : porHora.entrySet()) {
+            Map<Long, Object> pendientes = entrada.getValue();
+            String marcadores = String.join(", ", Collections.nCopies(pendientes.size(), "?"));
+            List<Object> parametros = new ArrayList<>();
+            parametros.add(Timestamp.valueOf(entrada.getKey()));
+            parametros.addAll(pendientes.keySet());
+
+            List<BloqueHora> guardados = jdbcTemplate.query(String.format(SQL_EXISTENTES, marcadores),
+                    (rs, fila) -> leerBloque(rs), parametros.toArray());
+            for (BloqueHora guardado : guardados) {
+                Object destino = pendientes.get(guardado.pantallaId);
+                if (destino instanceof BloqueHora bloque) {
+                    bloque.combinar(guardado);
+                } else if (destino instanceof SerieTelemetria serie) {
+                    serie.combinar(guardado);
+                }
+            }
+            for (Object destino : pendientes.values()) {
+                if (destino instanceof BloqueHora bloque) {
+                    bloque.combinado = true;
+                } else if (destino instanceof SerieTelemetria serie) {
+                    serie.marcarCombinada(entrada.getKey());
+                }
+            }
+        }
+    }
+
+    private List<RespuestaTelemetriaPantalla.PuntoTelemetria> puntosAgregados(
+            Long pantallaId, SerieTelemetria serie, LocalDateTime desde, LocalDateTime hasta, boolean porHora) {
+        Map<LocalDateTime, BloqueHora> bloques = new HashMap<>();
+        jdbcTemplate.query(SQL_HISTORIAL, (ResultSet rs) -> {
+            BloqueHora bloque = leerBloque(rs);
+            bloques.put(bloque.hora, bloque);
+        }, pantallaId, Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+
+        // Lo que aún no se escribió reemplaza (o se combina con) la fila guardada de su hora
+        List<BloqueHora> enMemoria = new ArrayList<>();
+        for (BloqueHora cerrado : cerrados) {
+            if (cerrado.pantallaId.equals(pantallaId)) {
+                enMemoria.add(cerrado.copiar());
+            }
+        }
+        if (serie != null) {
+            BloqueHora actual = serie.copiarHoraEnCurso();
+            if (actual != null) {
+                enMemoria.add(actual);
+            }
+        }
+        for (BloqueHora bloque : enMemoria) {
+            BloqueHora guardado = bloques.get(bloque.hora);
+            if (!bloque.combinado && guardado != null) {
+                bloque.combinar(guardado);
+            }
+            bloques.put(bloque.hora, bloque);
+        }
+
+        List<RespuestaTelemetriaPantalla.PuntoTelemetria> puntos = new ArrayList<>();
+        for (LocalDateTime hora = desde; !hora.isAfter(hasta); hora = hora.plusHours(1)) {
+            BloqueHora bloque = bloques.get(hora);
+            if (bloque == null || bloque.muestras == 0) {
+                continue;
+            }
+            if (porHora) {
+                float[] promedios = new float[METRICAS.length];
+                for (int m = 0; m < METRICAS.length; m++) {
+                    promedios[m] = bloque.promedioHora(m);
+                }
+                puntos.add(punto(hora, promedios));
+                continue;
+            }
+            for (int minuto = 0; minuto < MINUTOS; minuto++) {
+                float[] promedios = bloque.promediosMinuto(minuto);
+                if (promedios != null) {
+                    puntos.add(punto(hora.plusMinutes(minuto), promedios));
+                }
+            }
+        }
+        return puntos;
+    }
+
+    private static BloqueHora leerBloque(ResultSet rs) throws SQLException {
+        BloqueHora bloque = new BloqueHora(rs.getLong("pantalla_id"), rs.getTimestamp("hora").toLocalDateTime());
+        bloque.combinado = true;
+        int muestras = rs.getInt("muestras");
+        float[] minutos = decodificarMinutos(rs.getBytes("minutos"));
+        for (int m = 0; m < METRICAS.length; m++) {
+            String prefijo = METRICAS[m].name().toLowerCase();
+            float promedio = rs.getFloat(prefijo + "_promedio");
+            boolean hayPromedio = !rs.wasNull();
+            float maximo = rs.getFloat(prefijo + "_maximo");
+            bloque.maximo[m] = rs.wasNull() ? Float.NaN : maximo;
+
+            // Las muestras por minuto no se guardan: cada minuto con datos cuenta como una muestra,
+            // y el total horario se reparte para conservar el promedio de la hora al combinar
+            int minutosConDatos = 0;
+            for (int minuto = 0; minuto < MINUTOS; minuto++) {
+                float valor = minutos[m * MINUTOS + minuto];
+                if (!Float.isNaN(valor)) {
+                    bloque.suma[m][minuto] = valor;
+                    bloque.cuenta[m][minuto] = 1;
+                    minutosConDatos++;
+                }
+            }
+            if (hayPromedio && minutosConDatos > 0) {
+                bloque.sumaHora[m] = (double) promedio * muestras;
+                bloque.cuentaHora[m] = muestras;
+            }
+        }
+        bloque.muestras = muestras;
+        return bloque;
+    }
+
+    private static float[] decodificarMinutos(byte[] bytes) {
+        float[] valores = new float[METRICAS.length * MINUTOS];
+        Arrays.fill(valores, Float.NaN);
+        if (bytes != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < valores.length && buffer.remaining() >= Float.BYTES; i++) {
+                valores[i] = buffer.getFloat();
+            }
+        }
+        return valores;
+    }
+
+    private static void setFloat(java.sql.PreparedStatement ps, int indice, float valor) throws SQLException {
+        if (Float.isNaN(valor)) {
+            ps.setNull(indice, Types.REAL);
+        } else {
+            ps.setFloat(indice, valor);
+        }
+    }
+
+    private static RespuestaTelemetriaPantalla.PuntoTelemetria punto(LocalDateTime fecha, float[] valores) {
+        return RespuestaTelemetriaPantalla.PuntoTelemetria.builder()
+                .fecha(fecha)
+                .cpu(valor(valores, MetricaPantalla.CPU))
+                .temperatura(valor(valores, MetricaPantalla.TEMPERATURA))
+                .memoria(valor(valores, MetricaPantalla.MEMORIA))
+                .disco(valor(valores, MetricaPantalla.DISCO))
+                .build();
+    }
+
+    private static Float valor(float[] valores, MetricaPantalla metrica) {
+        float valor = valores[metrica.ordinal()];
+        return Float.isNaN(valor) ? null : valor;
+    }
+
+    /**
+     * Acumuladores de una pantalla durante una hora: suma y cantidad por métrica y minuto,
+     * más el máximo y el promedio de toda la hora
+     */
+    private static final class BloqueHora {
+
+        final Long pantallaId;
+        final LocalDateTime hora;
+        final double[][] suma = new double[METRICAS.length][MINUTOS];
+        final int[][] cuenta = new int[METRICAS.length][MINUTOS];
+        final double[] sumaHora = new double[METRICAS.length];
+        final int[] cuentaHora = new int[METRICAS.length];
+        final float[] maximo = new float[METRICAS.length];
+        int muestras;
+
+        /**
+         * Si ya incorpora lo guardado para su hora (sólo puede faltar en la primera hora tras un reinicio)
+         */
+        boolean combinado;
+
+        BloqueHora(Long pantallaId, LocalDateTime hora) {
+            this.pantallaId = pantallaId;
+            this.hora = hora;
+            Arrays.fill(maximo, Float.NaN);
+        }
+
+        void agregar(int minuto, float[] valores) {
+            for (int m = 0; m < valores.length; m++) {
+                float valor = valores[m];
+                if (Float.isNaN(valor)) {
+                    continue;
+                }
+                suma[m][minuto] += valor;
+                cuenta[m][minuto]++;
+                sumaHora[m] += valor;
+                cuentaHora[m]++;
+                if (Float.isNaN(maximo[m]) || valor > maximo[m]) {
+                    maximo[m] = valor;
+                }
+            }
+            muestras++;
+        }
+
+        /**
+         * Incorpora lo guardado en la base de datos; en los minutos presentes en ambos prevalece lo reciente
+         */
+        void combinar(BloqueHora guardado) {
+            for (int m = 0; m < METRICAS.length; m++) {
+                for (int minuto = 0; minuto < MINUTOS; minuto++) {
+                    if (cuenta[m][minuto] == 0 && guardado.cuenta[m][minuto] > 0) {
+                        suma[m][minuto] = guardado.suma[m][minuto];
+                        cuenta[m][minuto] = guardado.cuenta[m][minuto];
+                    }
+                }
+                sumaHora[m] += guardado.sumaHora[m];
+                cuentaHora[m] += guardado.cuentaHora[m];
+                if (Float.isNaN(maximo[m]) || guardado.maximo[m] > maximo[m]) {
+                    maximo[m] = guardado.maximo[m];
+                }
+            }
+            muestras += guardado.muestras;
+            combinado = true;
+        }
+
+        float promedioHora(int metrica) {
+            return cuentaHora[metrica] == 0 ? Float.NaN : (float) (sumaHora[metrica] / cuentaHora[metrica]);
+        }
+
+        /**
+         * Promedios de un minuto (null si no hubo muestras)
+         */
+        float[] promediosMinuto(int minuto) {
+            float[] promedios = new float[METRICAS.length];
+            boolean hay = false;
+            for (int m = 0; m < METRICAS.length; m++) {
+                if (cuenta[m][minuto] == 0) {
+                    promedios[m] = Float.NaN;
+                } else {
+                    promedios[m] = (float) (suma[m][minuto] / cuenta[m][minuto]);
+                    hay = true;
+                }
+            }
+            return hay ? promedios : null;
+        }
+
+        /**
+         * Bloque columnar: 60 promedios por métrica, float big-endian (NaN = sin muestras)
+         */
+        byte[] codificarMinutos() {
+            ByteBuffer buffer = ByteBuffer.allocate(METRICAS.length * MINUTOS * Float.BYTES);
+            for (int m = 0; m < METRICAS.length; m++) {
+                for (int minuto = 0; minuto < MINUTOS; minuto++) {
+                    buffer.putFloat(cuenta[m][minuto] == 0
+                            ? Float.NaN
+                            : (float) (suma[m][minuto] / cuenta[m][minuto]));
+                }
+            }
+            return buffer.array();
+        }
+
+        BloqueHora copiar() {
+            BloqueHora copia = new BloqueHora(pantallaId, hora);
+            for (int m = 0; m < METRICAS.length; m++) {
+                System.arraycopy(suma[m], 0, copia.suma[m], 0, MINUTOS);
+                System.arraycopy(cuenta[m], 0, copia.cuenta[m], 0, MINUTOS);
+            }
+            System.arraycopy(sumaHora, 0, copia.sumaHora, 0, sumaHora.length);
+            System.arraycopy(cuentaHora, 0, copia.cuentaHora, 0, cuentaHora.length);
+            System.arraycopy(maximo, 0, copia.maximo, 0, maximo.length);
+            copia.muestras = muestras;
+            copia.combinado = combinado;
+            return copia;
+        }
+    }
+
+    /**
+     * Telemetría en memoria de una pantalla: buffer circular de muestras recientes
+     * (instantes y valores en arreglos primitivos) y la hora en curso
+     */
+    private static final class SerieTelemetria {
+
+        final Long pantallaId;
+        private final long[] instantes;
+        private final float[][] valores;
+        private int siguiente;
+        private int cantidad;
+        private BloqueHora horaEnCurso;
+        private boolean modificada;
+
+        SerieTelemetria(Long pantallaId, int capacidad) {
+            this.pantallaId = pantallaId;
+            this.instantes = new long[capacidad];
+            this.valores = new float[METRICAS.length][capacidad];
+        }
+
+        synchronized void agregar(LocalDateTime fecha, float[] muestra, Queue<BloqueHora> cerrados) {
+            instantes[siguiente] = aMillis(fecha);
+            for (int m = 0; m < METRICAS.length; m++) {
+                valores[m][siguiente] = muestra[m];
+            }
+            siguiente = (siguiente + 1) % instantes.length;
+            cantidad = Math.min(cantidad + 1, instantes.length);
+
+            LocalDateTime hora = fecha.truncatedTo(ChronoUnit.HOURS);
+            if (horaEnCurso == null) {
+                // Primera muestra desde el arranque: puede haber datos guardados de esta hora
+                horaEnCurso = new BloqueHora(pantallaId, hora);
+            } else if (!horaEnCurso.hora.equals(hora)) {
+                if (horaEnCurso.muestras > 0) {
+                    cerrados.add(horaEnCurso);
+                }
+                BloqueHora nueva = new BloqueHora(pantallaId, hora);
+                nueva.combinado = true;
+                horaEnCurso = nueva;
+            }
+            horaEnCurso.agregar(fecha.getMinute(), muestra);
+            modificada = true;
+        }
+
+        synchronized boolean estaModificada() {
+            return modificada;
+        }
+
+        synchronized void marcarModificada() {
+            modificada = true;
+        }
+
+        /**
+         * Hora en curso que aún no incorporó lo guardado (null si no hace falta)
+         */
+        synchronized LocalDateTime horaSinCombinar() {
+            return horaEnCurso != null && !horaEnCurso.combinado ? horaEnCurso.hora : null;
+        }
+
+        synchronized void combinar(BloqueHora guardado) {
+            if (horaEnCurso != null && !horaEnCurso.combinado && horaEnCurso.hora.equals(guardado.hora)) {
+                horaEnCurso.combinar(guardado);
+            }
+        }
+
+        synchronized void marcarCombinada(LocalDateTime hora) {
+            if (horaEnCurso != null && horaEnCurso.hora.equals(hora)) {
+                horaEnCurso.combinado = true;
+            }
+        }
+
+        /**
+         * Copia de la hora en curso para escribirla, y la marca como escrita
+         */
+        synchronized BloqueHora tomarHoraEnCurso() {
+            modificada = false;
+            return horaEnCurso.copiar();
+        }
+
+        synchronized BloqueHora copiarHoraEnCurso() {
+            return horaEnCurso != null ? horaEnCurso.copiar() : null;
+        }
+
+        synchronized List<RespuestaTelemetriaPantalla.PuntoTelemetria> muestrasDesde(LocalDateTime desde) {
+            long limite = aMillis(desde);
+            List<RespuestaTelemetriaPantalla.PuntoTelemetria> puntos = new ArrayList<>(cantidad);
+            int inicio = (siguiente - cantidad + instantes.length) % instantes.length;
+            for (int i = 0; i < cantidad; i++) {
+                int posicion = (inicio + i) % instantes.length;
+                if (instantes[posicion] >= limite) {
+                    puntos.add(punto(aFecha(instantes[posicion]), muestra(posicion)));
+                }
+            }
+            return puntos;
+        }
+
+        synchronized RespuestaTelemetriaPantalla.PuntoTelemetria ultima() {
+            if (cantidad == 0) {
+                return null;
+            }
+            int posicion = (siguiente - 1 + instantes.length) % instantes.length;
+            return punto(aFecha(instantes[posicion]), muestra(posicion));
+        }
+
+        private float[] muestra(int posicion) {
+            float[] muestra = new float[METRICAS.length];
+            for (int m = 0; m < METRICAS.length; m++) {
+                muestra[m] = valores[m][posicion];
+            }
+            return muestra;
+        }
+    }
+
+    private static long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime aFecha(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
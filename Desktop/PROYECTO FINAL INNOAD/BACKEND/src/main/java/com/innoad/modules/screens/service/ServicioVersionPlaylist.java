@@ -0,0 +1,176 @@
+package com.innoad.modules.screens.service;
+
+import com.innoad.modules.screens.domain.EventoPlaylistModificado;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servicio que mantiene en memoria la versión de la lista de reproducción de cada pantalla.
+ * Permite responder sincronizaciones condicionales (If-None-Match / ETag) sin consultar la base de datos.
+ */
+@Service
+@Slf4j
+public class ServicioVersionPlaylist {
+
+    /**
+     * Época del proceso: evita que un ETag emitido antes de un reinicio coincida con uno nuevo
+     */
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Long, AtomicLong> versiones = new ConcurrentHashMap<>();
+    private final Map<String, Long> pantallasPorCodigo = new ConcurrentHashMap<>();
+    private final Map<Long, Vigencia> vigencias = new ConcurrentHashMap<>();
+
+    /**
+     * Obtiene la versión actual de la lista de reproducción de una pantalla.
+     * Debe leerse ANTES de consultar los contenidos para no etiquetar datos nuevos con una versión vieja.
+     */
+    public long obtenerVersion(Long pantallaId) {
+        return versiones.computeIfAbsent(pantallaId, id -> new AtomicLong()).get();
+    }
+
+    /**
+     * Registra el resultado de una sincronización completa y retorna su ETag.
+     *
+     * @param vigenteHasta instante en el que algún contenido entra o sale de su período de publicación
+     *                     (null si no hay fechas pendientes)
+     */
+    public String registrarSincronizacion(String codigoIdentificacion, Long pantallaId, long version, LocalDateTime vigenteHasta) {
+        pantallasPorCodigo.put(codigoIdentificacion, pantallaId);
+        vigencias.merge(pantallaId, new Vigencia(version, vigenteHasta),
+                (actual, nueva) -> nueva.version() >= actual.version() ? nueva : actual);
+        return construirEtag(pantallaId, version);
+    }
+
+    /**
+     * Retorna el ETag vigente de una pantalla sin consultar la base de datos,
+     * o null si no se conoce o si la lista pudo haber cambiado.
+     */
+    public String obtenerEtagVigente(String codigoIdentificacion) {
+        Long pantallaId = pantallasPorCodigo.get(codigoIdentificacion);
+        if (pantallaId == null) {
+            return null;
+        }
+
+        Vigencia vigencia = vigencias.get(pantallaId);
+        if (vigencia == null || vigencia.version() != obtenerVersion(pantallaId)) {
+            return null;
+        }
+
+        if (vigencia.hasta() != null && !LocalDateTime.now().isBefore(vigencia.hasta())) {
+            vencerVersion(pantallaId, vigencia.version());
+            return null;
+        }
+
+        return construirEtag(pantallaId, vigencia.version());
+    }
+
+    /**
+     * Obtiene el id de pantalla asociado a un código ya sincronizado (null si no se conoce)
+     */
+    public Long obtenerPantallaId(String codigoIdentificacion) {
+        return pantallasPorCodigo.get(codigoIdentificacion);
+    }
+
+    /**
+     * Un contenido entró o salió de su período de publicación: la versión indicada deja de ser válida.
+     * Sólo incrementa si nadie lo hizo antes, para no generar versiones de más.
+     */
+    public void vencerVersion(Long pantallaId, long version) {
+        AtomicLong actual = versiones.get(pantallaId);
+        if (actual != null) {
+            actual.compareAndSet(version, version + 1);
+        }
+    }
+
+    /**
+     * Extrae la versión de un ETag emitido por este proceso para la pantalla indicada.
+     * Retorna null si el ETag es de otra pantalla, de antes de un reinicio o no tiene el formato esperado.
+     */
+    public Long extraerVersion(String etag, Long pantallaId) {
+        if (etag == null) {
+            return null;
+        }
+        String valor = etag.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+
+        // Las variantes de la lista (ver variante) comparten la versión
+        String[] partes = valor.split("-");
+        if (partes.length < 3 || !epoca.equals(partes[0]) || !partes[1].equals(String.valueOf(pantallaId))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(partes[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * ETag de una representación particular de la lista: el ETag base con un sufijo
+     * (null si el ETag base es null)
+     */
+    public static String variante(String etag, String sufijo) {
+        if (etag == null || sufijo.isEmpty()) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + sufijo + "\"";
+    }
+
+    /**
+     * Verifica si el valor de If-None-Match contiene el ETag indicado
+     */
+    public static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals(etag) || "*".equals(valor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Incrementa la versión de la pantalla una vez confirmada la transacción que la modificó
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarPlaylist(EventoPlaylistModificado evento) {
+        Long pantallaId = evento.getPantallaId();
+        if (pantallaId == null) {
+            return;
+        }
+
+        if (evento.isPantallaEliminada()) {
+            versiones.remove(pantallaId);
+            vigencias.remove(pantallaId);
+            pantallasPorCodigo.values().removeIf(pantallaId::equals);
+            log.debug("Versión de playlist descartada - Pantalla: {}", pantallaId);
+            return;
+        }
+
+        long nuevaVersion = versiones.computeIfAbsent(pantallaId, id -> new AtomicLong()).incrementAndGet();
+        log.debug("Playlist modificada - Pantalla: {} - Versión: {}", pantallaId, nuevaVersion);
+    }
+
+    private String construirEtag(Long pantallaId, long version) {
+        return "\"" + epoca + "-" + pantallaId + "-" + version + "\"";
+    }
+
+    private record Vigencia(long version, LocalDateTime hasta) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.innoad.modules.stats.controller;
 
 import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.screens.service.RastreadorConectividadPantallas;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -20,6 +21,8 @@ import java.util.Map;
 @Slf4j
 public class ControladorEstadisticas {
 
+    private final RastreadorConectividadPantallas rastreadorConectividad;
+
     /**
      * Obtener estadísticas generales del sistema
      */
@@ -29,7 +32,7 @@ public class ControladorEstadisticas {
 
         Map<String, Object> estadisticas = new HashMap<>();
         estadisticas.put("campanasActivas", 0);
-        estadisticas.put("pantallasConectadas", 0);
+        estadisticas.put("pantallasConectadas", rastreadorConectividad.contarConectadas());
         estadisticas.put("reproduccionesTotales", 0);
         estadisticas.put("usuariosActivos", 0);
         estadisticas.put("mensaje", "Estadísticas disponibles");
@@ -61,11 +64,15 @@ public class ControladorEstadisticas {
     public ResponseEntity<Map<String, Object>> obtenerEstadisticasPantallas(
             @AuthenticationPrincipal Usuario usuario) {
 
+        // Conteos en memoria, sin recorrer la tabla de pantallas
+        int totalPantallas = rastreadorConectividad.contarPantallas();
+        int conectadas = rastreadorConectividad.contarConectadas();
+
         Map<String, Object> estadisticas = new HashMap<>();
-        estadisticas.put("totalPantallas", 0);
-        estadisticas.put("pantallasConectadas", 0);
-        estadisticas.put("pantallasDesconectadas", 0);
-        estadisticas.put("tasaDisponibilidad", 0.0);
+        estadisticas.put("totalPantallas", totalPantallas);
+        estadisticas.put("pantallasConectadas", conectadas);
+        estadisticas.put("pantallasDesconectadas", totalPantallas - conectadas);
+        estadisticas.put("tasaDisponibilidad", totalPantallas > 0 ? (double) conectadas / totalPantallas : 0.0);
 
         return ResponseEntity.ok(estadisticas);
     }
@@ -1,5 +1,8 @@
 package com.innoad.shared.security;
 
+import com.innoad.modules.auth.domain.TokenVerificado;
+import com.innoad.modules.auth.domain.Usuario;
+import com.innoad.modules.auth.service.RegistroVersionesToken;
 import com.innoad.modules.auth.service.ServicioJWT;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -20,6 +23,8 @@ import java.io.IOException;
 /**
  * Filtro de autenticación JWT que intercepta todas las peticiones HTTP.
  * Valida el token JWT y establece el contexto de seguridad.
+ * El principal se arma con los claims del token (id, rol, versión) sin consultar la base de datos;
+ * solo los tokens emitidos antes de incluir esos claims cargan el usuario.
  */
 @Component
 @RequiredArgsConstructor
@@ -27,6 +32,7 @@ public class FiltroAutenticacionJWT extends OncePerRequestFilter {
     
     private final ServicioJWT servicioJWT;
     private final UserDetailsService userDetailsService;
+    private final RegistroVersionesToken registroVersionesToken;
     
     @Override
     protected void doFilterInternal(
@@ -55,17 +61,19 @@ public class FiltroAutenticacionJWT extends OncePerRequestFilter {
         }
         
         try {
-            // Extraer el token
+            // Extraer el token y verificar su firma una sola vez
             final String jwt = authHeader.substring(7);
-            final String nombreUsuario = servicioJWT.extraerNombreUsuario(jwt);
+            final TokenVerificado token = servicioJWT.verificarToken(jwt);
+            final String nombreUsuario = token.getNombreUsuario();
             
             // Si hay nombre de usuario y no hay autenticación actual
             if (nombreUsuario != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Cargar los detalles del usuario
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(nombreUsuario);
+                UserDetails userDetails = token.tieneDatosUsuario()
+                        ? construirPrincipal(token)
+                        : this.userDetailsService.loadUserByUsername(nombreUsuario);
                 
                 // Validar el token
-                if (servicioJWT.esTokenValido(jwt, userDetails)) {
+                if (userDetails != null && servicioJWT.esTokenValido(token, userDetails)) {
                     // Crear el token de autenticación
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
@@ -89,6 +97,25 @@ public class FiltroAutenticacionJWT extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * Arma el usuario autenticado con los claims del token, si su versión de credenciales sigue vigente.
+     * Es un Usuario no administrado por JPA: solo tiene id, nombre de usuario, nombre, apellido y rol.
+     */
+    private Usuario construirPrincipal(TokenVerificado token) {
+        if (!registroVersionesToken.esVigente(token.getUsuarioId(), token.getVersion())) {
+            return null;
+        }
+        return Usuario.builder()
+                .id(token.getUsuarioId())
+                .nombreUsuario(token.getNombreUsuario())
+                .nombre(token.getNombre())
+                .apellido(token.getApellido())
+                .rol(token.getRol())
+                .activo(true)
+                .versionToken(token.getVersion())
+                .build();
+    }
+    
     /**
      * Verifica si la ruta es pública y no requiere autenticación JWT
      */
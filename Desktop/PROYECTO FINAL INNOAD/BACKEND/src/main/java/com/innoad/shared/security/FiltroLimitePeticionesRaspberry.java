@@ -0,0 +1,159 @@
+package com.innoad.shared.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innoad.dto.respuesta.RespuestaAPI;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filtro de admisión para /api/v1/raspberry/** (ver LimitadorPeticionesRaspberry).
+ * Se ejecuta antes de la cadena de seguridad: una pantalla que sondea sin pausa recibe 429 con
+ * Retry-After sin ocupar un hilo en el controlador ni una conexión a la base de datos.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+@Slf4j
+public class FiltroLimitePeticionesRaspberry extends OncePerRequestFilter {
+
+    private static final String PREFIJO = "/api/v1/raspberry/";
+
+    /**
+     * Acciones cuyo segundo segmento es el código de la pantalla (/api/v1/raspberry/{accion}/{codigo}/...)
+     */
+    private static final Set<String> ACCIONES_CON_CODIGO = Set.of(
+            "sincronizar", "paquete", "eventos", "reproducciones", "heartbeat", "configuracion", "descargas");
+
+    private static final String ACCION_SINCRONIZAR = "sincronizar";
+    private static final String ACCION_PAQUETE = "paquete";
+
+    private final LimitadorPeticionesRaspberry limitador;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(PREFIJO);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String[] segmentos = request.getRequestURI().substring(PREFIJO.length()).split("/", 3);
+        String accion = segmentos[0];
+        if ("health".equals(accion)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String codigo = ACCIONES_CON_CODIGO.contains(accion) && segmentos.length > 1 && !segmentos[1].isEmpty()
+                ? segmentos[1]
+                : request.getParameter("codigoIdentificacion");
+
+        LimitadorPeticionesRaspberry.Admision admision = limitador.admitir(codigo, request.getRemoteAddr());
+        if (!admision.admitida()) {
+            rechazar(response, admision, codigo, request.getRemoteAddr());
+            return;
+        }
+
+        // Sincronizaciones y paquetes tienen cada uno su máximo de peticiones simultáneas
+        Runnable liberarLugar;
+        if (ACCION_SINCRONIZAR.equals(accion)) {
+            admision = limitador.iniciarSincronizacion();
+            liberarLugar = limitador::terminarSincronizacion;
+        } else if (ACCION_PAQUETE.equals(accion)) {
+            admision = limitador.iniciarPaquete();
+            liberarLugar = limitador::terminarPaquete;
+        } else {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!admision.admitida()) {
+            rechazar(response, admision, codigo, request.getRemoteAddr());
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // El paquete se transmite de forma asíncrona: el lugar se libera al terminar la respuesta
+                request.getAsyncContext().addListener(new LiberarAlTerminar(liberarLugar));
+            } else {
+                liberarLugar.run();
+            }
+        }
+    }
+
+    /**
+     * Libera el lugar ocupado una sola vez (onError y onComplete pueden llegar ambos)
+     */
+    @RequiredArgsConstructor
+    private static final class LiberarAlTerminar implements AsyncListener {
+
+        private final Runnable liberarLugar;
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Sin cambios: sigue siendo la misma respuesta
+        }
+
+        private void liberar() {
+            if (liberado.compareAndSet(false, true)) {
+                liberarLugar.run();
+            }
+        }
+    }
+
+    private void rechazar(HttpServletResponse response, LimitadorPeticionesRaspberry.Admision admision,
+                          String codigo, String direccionIp) throws IOException {
+        log.debug("Petición de Raspberry Pi rechazada - Pantalla: {} - IP: {} - Motivo: {}",
+                codigo, direccionIp, admision.motivo());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admision.reintentarEnSegundos()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), RespuestaAPI.<Void>builder()
+                .exitoso(false)
+                .mensaje("Demasiadas peticiones, reintente en " + admision.reintentarEnSegundos() + " s")
+                .build());
+    }
+}
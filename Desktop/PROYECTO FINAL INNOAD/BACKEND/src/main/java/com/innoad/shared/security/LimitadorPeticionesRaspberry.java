@@ -0,0 +1,225 @@
+package com.innoad.shared.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de admisión de los endpoints públicos de Raspberry Pi (/api/v1/raspberry/**).
+ * <p>
+ * Cada pantalla (código de identificación) y cada IP tienen un token bucket sin bloqueos: el estado es un
+ * solo AtomicLong con el instante teórico en que el bucket vuelve a estar lleno (GCRA), que se avanza con
+ * compareAndSet. Una petición se admite si quedan tokens en los dos buckets.
+ * Además, las sincronizaciones y las descargas de paquetes tienen cada una su máximo global de peticiones
+ * simultáneas, para que una tormenta de la flota no ocupe todos los hilos ni las conexiones. Van por separado
+ * porque un paquete tarda mucho más que una sincronización: si compartieran lugares, unas pocas descargas
+ * lentas dejarían a las pantallas sin poder sincronizar.
+ * Las métricas se publican en /actuator/metrics (innoad.raspberry.limite.*).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LimitadorPeticionesRaspberry {
+
+    private static final String CLAVE_DESBORDE = "*";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${innoad.pantallas.limite.peticiones-por-minuto-pantalla:60}")
+    private int peticionesPorMinutoPantalla;
+
+    @Value("${innoad.pantallas.limite.rafaga-pantalla:20}")
+    private int rafagaPantalla;
+
+    @Value("${innoad.pantallas.limite.peticiones-por-minuto-ip:600}")
+    private int peticionesPorMinutoIp;
+
+    @Value("${innoad.pantallas.limite.rafaga-ip:100}")
+    private int rafagaIp;
+
+    @Value("${innoad.pantallas.limite.max-sincronizaciones-concurrentes:32}")
+    private int maxSincronizacionesConcurrentes;
+
+    @Value("${innoad.pantallas.limite.max-paquetes-concurrentes:16}")
+    private int maxPaquetesConcurrentes;
+
+    @Value("${innoad.pantallas.limite.max-entradas:100000}")
+    private int maxEntradas;
+
+    private final Map<String, AtomicLong> bucketsPantalla = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> bucketsIp = new ConcurrentHashMap<>();
+    private final AtomicInteger sincronizacionesEnCurso = new AtomicInteger();
+    private final AtomicInteger paquetesEnCurso = new AtomicInteger();
+
+    private final LongAdder admitidas = new LongAdder();
+    private final LongAdder rechazosPantalla = new LongAdder();
+    private final LongAdder rechazosIp = new LongAdder();
+    private final LongAdder rechazosConcurrencia = new LongAdder();
+    private final LongAdder rechazosPaquetes = new LongAdder();
+
+    /**
+     * Resultado de la admisión: si se rechaza, segundos que el cliente debe esperar (Retry-After)
+     */
+    public record Admision(boolean admitida, String motivo, long reintentarEnSegundos) {
+
+        static final Admision ADMITIDA = new Admision(true, null, 0);
+    }
+
+    @PostConstruct
+    void registrarMetricas() {
+        FunctionCounter.builder("innoad.raspberry.limite.admitidas", admitidas, LongAdder::sum)
+                .description("Peticiones de Raspberry Pi admitidas")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.raspberry.limite.rechazos", rechazosPantalla, LongAdder::sum)
+                .tag("motivo", "pantalla")
+                .description("Peticiones rechazadas con 429")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.raspberry.limite.rechazos", rechazosIp, LongAdder::sum)
+                .tag("motivo", "ip")
+                .description("Peticiones rechazadas con 429")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.raspberry.limite.rechazos", rechazosConcurrencia, LongAdder::sum)
+                .tag("motivo", "concurrencia")
+                .description("Peticiones rechazadas con 429")
+                .register(meterRegistry);
+        FunctionCounter.builder("innoad.raspberry.limite.rechazos", rechazosPaquetes, LongAdder::sum)
+                .tag("motivo", "paquetes")
+                .description("Peticiones rechazadas con 429")
+                .register(meterRegistry);
+        Gauge.builder("innoad.raspberry.limite.sincronizaciones.en-curso", sincronizacionesEnCurso, AtomicInteger::get)
+                .description("Sincronizaciones de pantallas en curso")
+                .register(meterRegistry);
+        Gauge.builder("innoad.raspberry.limite.sincronizaciones.maximo", this, limitador -> limitador.maxSincronizacionesConcurrentes)
+                .description("Máximo de sincronizaciones simultáneas")
+                .register(meterRegistry);
+        Gauge.builder("innoad.raspberry.limite.paquetes.en-curso", paquetesEnCurso, AtomicInteger::get)
+                .description("Descargas de paquetes en curso")
+                .register(meterRegistry);
+        Gauge.builder("innoad.raspberry.limite.paquetes.maximo", this, limitador -> limitador.maxPaquetesConcurrentes)
+                .description("Máximo de descargas de paquetes simultáneas")
+                .register(meterRegistry);
+        Gauge.builder("innoad.raspberry.limite.buckets", this, limitador -> limitador.bucketsPantalla.size() + limitador.bucketsIp.size())
+                .description("Buckets de pantallas e IPs en memoria")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consume un token del bucket de la pantalla (si se conoce su código) y uno del de la IP
+     */
+    public Admision admitir(String codigoIdentificacion, String direccionIp) {
+        long ahora = System.nanoTime();
+
+        if (codigoIdentificacion != null) {
+            long espera = consumir(bucketsPantalla, codigoIdentificacion, peticionesPorMinutoPantalla, rafagaPantalla, ahora);
+            if (espera > 0) {
+                rechazosPantalla.increment();
+                return rechazo("pantalla", espera);
+            }
+        }
+        if (direccionIp != null) {
+            long espera = consumir(bucketsIp, direccionIp, peticionesPorMinutoIp, rafagaIp, ahora);
+            if (espera > 0) {
+                rechazosIp.increment();
+                return rechazo("ip", espera);
+            }
+        }
+        admitidas.increment();
+        return Admision.ADMITIDA;
+    }
+
+    /**
+     * Ocupa un lugar de sincronización; si se admite, debe liberarse con {@link #terminarSincronizacion()}
+     */
+    public Admision iniciarSincronizacion() {
+        if (sincronizacionesEnCurso.incrementAndGet() > maxSincronizacionesConcurrentes) {
+            sincronizacionesEnCurso.decrementAndGet();
+            rechazosConcurrencia.increment();
+            return rechazo("concurrencia", TimeUnit.SECONDS.toNanos(1));
+        }
+        return Admision.ADMITIDA;
+    }
+
+    public void terminarSincronizacion() {
+        sincronizacionesEnCurso.decrementAndGet();
+    }
+
+    /**
+     * Ocupa un lugar de descarga de paquete; si se admite, debe liberarse con {@link #terminarPaquete()}
+     */
+    public Admision iniciarPaquete() {
+        if (paquetesEnCurso.incrementAndGet() > maxPaquetesConcurrentes) {
+            paquetesEnCurso.decrementAndGet();
+            rechazosPaquetes.increment();
+            return rechazo("paquetes", TimeUnit.SECONDS.toNanos(5));
+        }
+        return Admision.ADMITIDA;
+    }
+
+    public void terminarPaquete() {
+        paquetesEnCurso.decrementAndGet();
+    }
+
+    /**
+     * Descarta los buckets que ya se rellenaron por completo (equivalen a uno nuevo)
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void limpiarBuckets() {
+        long ahora = System.nanoTime();
+        int antes = bucketsPantalla.size() + bucketsIp.size();
+        bucketsPantalla.values().removeIf(bucket -> bucket.get() - ahora <= 0);
+        bucketsIp.values().removeIf(bucket -> bucket.get() - ahora <= 0);
+        int eliminados = antes - bucketsPantalla.size() - bucketsIp.size();
+        if (eliminados > 0) {
+            log.debug("Buckets de límite de Raspberry Pi descartados: {}", eliminados);
+        }
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * GCRA: el bucket guarda el instante en que estaría lleno otra vez. Cada petición lo corre un
+     * intervalo; se rechaza si así quedaría más lejos que la ráfaga permitida.
+     *
+     * @return 0 si se admite; si no, nanosegundos hasta que haya un token
+     */
+    private long consumir(Map<String, AtomicLong> buckets, String clave, int porMinuto, int rafaga, long ahora) {
+        AtomicLong bucket = buckets.get(clave);
+        if (bucket == null) {
+            // Con la tabla llena (p. ej. códigos inventados) las claves nuevas comparten un bucket
+            String claveBucket = buckets.size() >= maxEntradas ? CLAVE_DESBORDE : clave;
+            bucket = buckets.computeIfAbsent(claveBucket, k -> new AtomicLong(ahora));
+        }
+
+        long intervalo = TimeUnit.MINUTES.toNanos(1) / Math.max(1, porMinuto);
+        long tolerancia = intervalo * Math.max(1, rafaga);
+        while (true) {
+            long lleno = bucket.get();
+            long base = lleno - ahora > 0 ? lleno : ahora;
+            long siguiente = base + intervalo;
+            if (siguiente - ahora > tolerancia) {
+                return siguiente - ahora - tolerancia;
+            }
+            if (bucket.compareAndSet(lleno, siguiente)) {
+                return 0;
+            }
+        }
+    }
+
+    private static Admision rechazo(String motivo, long esperaNanos) {
+        long segundos = Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return new Admision(false, motivo, segundos);
+    }
+}
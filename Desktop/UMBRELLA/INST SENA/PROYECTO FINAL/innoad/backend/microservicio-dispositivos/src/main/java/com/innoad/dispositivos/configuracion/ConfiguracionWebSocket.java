@@ -0,0 +1,66 @@
+package com.innoad.dispositivos.configuracion;
+
+import com.innoad.dispositivos.websocket.InterceptorHandshakeDispositivo;
+import com.innoad.dispositivos.websocket.ManejadorWebSocketRaspberry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Configuración del WebSocket de los dispositivos Raspberry Pi (propiedades websocket.raspberry.*).
+ * Tomcat atiende las conexiones con NIO, así que una sesión inactiva no ocupa un hilo;
+ * los mensajes se procesan en hilos virtuales para sostener miles de dispositivos con poca memoria.
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class ConfiguracionWebSocket implements WebSocketConfigurer {
+
+    private final ManejadorWebSocketRaspberry manejadorWebSocketRaspberry;
+    private final InterceptorHandshakeDispositivo interceptorHandshakeDispositivo;
+
+    @Value("${websocket.raspberry.endpoint:/websocket/raspberry}")
+    private String endpoint;
+
+    @Value("${websocket.raspberry.allowed-origins:*}")
+    private String[] origenesPermitidos;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(manejadorWebSocketRaspberry, endpoint)
+                .addInterceptors(interceptorHandshakeDispositivo)
+                .setAllowedOriginPatterns(origenesPermitidos);
+    }
+
+    /**
+     * Límites del contenedor: tamaño máximo de mensaje y cierre de sesiones inactivas
+     */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(
+            @Value("${websocket.raspberry.message-size-limit:65536}") int limiteMensaje,
+            @Value("${websocket.raspberry.connection-timeout:300000}") long tiempoInactividad) {
+        ServletServerContainerFactoryBean contenedor = new ServletServerContainerFactoryBean();
+        contenedor.setMaxTextMessageBufferSize(limiteMensaje);
+        contenedor.setMaxBinaryMessageBufferSize(limiteMensaje);
+        contenedor.setMaxSessionIdleTimeout(tiempoInactividad);
+        return contenedor;
+    }
+
+    /**
+     * Ejecuta las peticiones y mensajes de Tomcat en hilos virtuales (Java 21)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "websocket.raspberry.hilos-virtuales", havingValue = "true", matchIfMissing = true)
+    public TomcatProtocolHandlerCustomizer<?> ejecutorHilosVirtuales() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,69 @@
+package com.innoad.dispositivos.controlador;
+
+import com.innoad.dispositivos.servicio.IndiceGeograficoDispositivos;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas geográficas sobre la flota de dispositivos (mapa), resueltas con el índice en memoria
+ */
+@RestController
+@RequestMapping("/api/dispositivos/ubicacion")
+@RequiredArgsConstructor
+public class ControladorUbicacionDispositivos {
+
+    private final IndiceGeograficoDispositivos indiceGeografico;
+
+    /**
+     * Dispositivos dentro de un radio, ordenados por distancia
+     */
+    @GetMapping("/cercanos")
+    public ResponseEntity<List<IndiceGeograficoDispositivos.DispositivoCercano>> buscarCercanos(
+            @RequestParam double latitud,
+            @RequestParam double longitud,
+            @RequestParam double radioKm,
+            @RequestParam(defaultValue = "100") int limite
+    ) {
+        return ResponseEntity.ok(indiceGeografico.buscarCercanos(latitud, longitud, radioKm, limite));
+    }
+
+    /**
+     * Dispositivos dentro del área visible del mapa
+     */
+    @GetMapping("/area")
+    public ResponseEntity<List<IndiceGeograficoDispositivos.UbicacionDispositivo>> buscarEnArea(
+            @RequestParam double latitudMin,
+            @RequestParam double longitudMin,
+            @RequestParam double latitudMax,
+            @RequestParam double longitudMax
+    ) {
+        return ResponseEntity.ok(indiceGeografico.buscarEnArea(latitudMin, longitudMin, latitudMax, longitudMax));
+    }
+
+    /**
+     * Cantidad de dispositivos por grupo para el nivel de zoom del mapa
+     */
+    @GetMapping("/grupos")
+    public ResponseEntity<List<IndiceGeograficoDispositivos.GrupoDispositivos>> agrupar(
+            @RequestParam double latitudMin,
+            @RequestParam double longitudMin,
+            @RequestParam double latitudMax,
+            @RequestParam double longitudMax,
+            @RequestParam int zoom
+    ) {
+        return ResponseEntity.ok(indiceGeografico.agrupar(latitudMin, longitudMin, latitudMax, longitudMax, zoom));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> manejarParametrosInvalidos(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("mensaje", e.getMessage()));
+    }
+}
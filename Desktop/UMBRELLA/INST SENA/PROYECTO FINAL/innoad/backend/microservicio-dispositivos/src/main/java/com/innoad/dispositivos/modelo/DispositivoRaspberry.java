@@ -1,5 +1,6 @@
 package com.innoad.dispositivos.modelo;
 
+import com.innoad.dispositivos.servicio.EscuchaUbicacionDispositivo;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Data;
@@ -21,6 +22,7 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "dispositivos_raspberry")
+@EntityListeners(EscuchaUbicacionDispositivo.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -56,6 +58,16 @@ public class DispositivoRaspberry {
     @Column(length = 500)
     private String descripcion;
 
+    @DecimalMin(value = "-90.0", message = "La latitud debe estar entre -90 y 90")
+    @DecimalMax(value = "90.0", message = "La latitud debe estar entre -90 y 90")
+    @Column(name = "latitud")
+    private Double latitud;
+
+    @DecimalMin(value = "-180.0", message = "La longitud debe estar entre -180 y 180")
+    @DecimalMax(value = "180.0", message = "La longitud debe estar entre -180 y 180")
+    @Column(name = "longitud")
+    private Double longitud;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private EstadoDispositivo estado = EstadoDispositivo.DESCONECTADO;
@@ -91,6 +103,12 @@ public class DispositivoRaspberry {
     @Column(nullable = false)
     private Boolean activo = true;
 
+    /**
+     * SHA-256 (hex) del secreto con el que el dispositivo se autentica al abrir el WebSocket
+     */
+    @Column(name = "secreto_hash", length = 64)
+    private String secretoHash;
+
     @NotNull(message = "El propietario es obligatorio")
     @Column(name = "propietario_id", nullable = false)
     private Long propietarioId;
@@ -147,6 +165,13 @@ public class DispositivoRaspberry {
         return java.time.Duration.between(ultimoHeartbeat, LocalDateTime.now()).toMinutes();
     }
 
+    /**
+     * Indica si el dispositivo tiene coordenadas registradas
+     */
+    public boolean tieneCoordenadas() {
+        return latitud != null && longitud != null;
+    }
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -3,10 +3,12 @@ package com.innoad.dispositivos.repositorio;
 import com.innoad.dispositivos.modelo.DispositivoRaspberry;
 import com.innoad.dispositivos.modelo.EstadoDispositivo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,17 +39,24 @@ public interface DispositivoRepositorio extends JpaRepository<DispositivoRaspber
     List<DispositivoRaspberry> findByPropietarioIdAndActivoTrue(Long propietarioId);
 
     /**
-     * Busca dispositivos por ubicación (búsqueda parcial)
+     * Busca dispositivos por ubicación (búsqueda parcial).
+     * Las búsquedas por cercanía y por área usan IndiceGeograficoDispositivos sobre latitud/longitud.
      */
     List<DispositivoRaspberry> findByUbicacionContainingIgnoreCaseAndActivoTrue(String ubicacion);
 
+    /**
+     * Dispositivos activos con coordenadas, para cargar el índice geográfico
+     */
+    List<DispositivoRaspberry> findByLatitudIsNotNullAndLongitudIsNotNullAndActivoTrue();
+
     /**
      * Busca dispositivos por estado específico
      */
     List<DispositivoRaspberry> findByEstadoAndActivoTrue(EstadoDispositivo estado);
 
     /**
-     * Busca dispositivos que no han enviado heartbeat recientemente
+     * Busca dispositivos que no han enviado heartbeat recientemente.
+     * Para detectar desconexiones en línea se usa MonitorVidaDispositivos, que no consulta la base de datos.
      */
     @Query("SELECT d FROM DispositivoRaspberry d WHERE d.activo = true AND " +
            "(d.ultimoHeartbeat IS NULL OR d.ultimoHeartbeat < :fechaLimite)")
@@ -60,6 +69,31 @@ public interface DispositivoRepositorio extends JpaRepository<DispositivoRaspber
            "d.estado = 'CONECTADO' AND d.ultimoHeartbeat > :fechaLimite")
     List<DispositivoRaspberry> findDispositivosOnline(@Param("fechaLimite") LocalDateTime fechaLimite);
 
+    /**
+     * Registra en lote los heartbeats recibidos por WebSocket
+     * (mismo efecto que DispositivoRaspberry.actualizarHeartbeat sobre cada dispositivo)
+     */
+    @Modifying
+    @Query("UPDATE DispositivoRaspberry d SET d.ultimoHeartbeat = :fecha, d.updatedAt = :fecha, " +
+           "d.estado = CASE WHEN d.estado = com.innoad.dispositivos.modelo.EstadoDispositivo.DESCONECTADO " +
+           "THEN com.innoad.dispositivos.modelo.EstadoDispositivo.CONECTADO ELSE d.estado END " +
+           "WHERE d.idDispositivo IN :ids")
+    int registrarHeartbeats(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Marca en lote como desconectados los dispositivos cuyo heartbeat venció
+     * (mismo efecto que DispositivoRaspberry.marcarDesconectado sobre cada dispositivo)
+     */
+    @Modifying
+    @Query("UPDATE DispositivoRaspberry d SET d.estado = com.innoad.dispositivos.modelo.EstadoDispositivo.DESCONECTADO, " +
+           "d.updatedAt = :fecha WHERE d.idDispositivo IN :ids")
+    int marcarDesconectados(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Busca dispositivos activos que no están en el estado indicado
+     */
+    List<DispositivoRaspberry> findByEstadoNotAndActivoTrue(EstadoDispositivo estado);
+
     /**
      * Cuenta dispositivos por estado
      */
@@ -120,7 +154,6 @@ public interface DispositivoRepositorio extends JpaRepository<DispositivoRaspber
 
     
        // Metodos adicionales pueden incluir:
-    // - findDispositivosCercanos(latitud, longitud, radio)
     // - findDispositivosConMayorUso()
     // - findDispositivosPorRendimiento()
     // - etc.
@@ -0,0 +1,48 @@
+package com.innoad.dispositivos.servicio;
+
+import com.innoad.dispositivos.modelo.DispositivoRaspberry;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Mantiene el índice geográfico al día cuando se registra, actualiza o elimina un dispositivo.
+ * Los cambios se aplican al confirmarse la transacción para no indexar datos revertidos.
+ * El índice se obtiene en forma diferida porque el listener se crea junto con el EntityManagerFactory.
+ */
+@Component
+@RequiredArgsConstructor
+public class EscuchaUbicacionDispositivo {
+
+    private final ObjectProvider<IndiceGeograficoDispositivos> indiceGeografico;
+
+    @PostPersist
+    @PostUpdate
+    public void alGuardar(DispositivoRaspberry dispositivo) {
+        alConfirmar(() -> indiceGeografico.ifAvailable(indice -> indice.actualizar(dispositivo)));
+    }
+
+    @PostRemove
+    public void alEliminar(DispositivoRaspberry dispositivo) {
+        Long idDispositivo = dispositivo.getIdDispositivo();
+        alConfirmar(() -> indiceGeografico.ifAvailable(indice -> indice.eliminar(idDispositivo)));
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,327 @@
+package com.innoad.dispositivos.servicio;
+
+import com.innoad.dispositivos.modelo.DispositivoRaspberry;
+import com.innoad.dispositivos.repositorio.DispositivoRepositorio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Índice espacial en memoria de los dispositivos con coordenadas, para el mapa de la flota.
+ * <p>
+ * Los dispositivos se agrupan en una grilla de celdas de dispositivos.geografia.tamano-celda-grados.
+ * Una búsqueda recorre sólo las celdas que cubre el área pedida (o las celdas ocupadas, si son menos),
+ * y al agrupar cada punto se asigna a su propio grupo (las celdas no coinciden con los límites de los grupos).
+ * Se carga al iniciar y se mantiene al día con EscuchaUbicacionDispositivo al guardar o borrar dispositivos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceGeograficoDispositivos {
+
+    private static final double RADIO_TIERRA_KM = 6371.0088;
+    private static final double KM_POR_GRADO = 111.32;
+
+    /**
+     * Tamaño del grupo en píxeles de pantalla (teselas de 256 px)
+     */
+    private static final int PIXELES_GRUPO = 64;
+
+    private final DispositivoRepositorio dispositivoRepositorio;
+
+    @Value("${dispositivos.geografia.tamano-celda-grados:0.01}")
+    private double tamanoCelda;
+
+    public record DispositivoCercano(Long idDispositivo, String nombre, double latitud, double longitud,
+                                     double distanciaKm) {
+    }
+
+    public record UbicacionDispositivo(Long idDispositivo, String nombre, double latitud, double longitud) {
+    }
+
+    public record GrupoDispositivos(double latitud, double longitud, int cantidad) {
+    }
+
+    private record Punto(Long idDispositivo, String nombre, double latitud, double longitud, long celda) {
+    }
+
+    private static final class Celda {
+        final List<Punto> puntos = new ArrayList<>(4);
+    }
+
+    private final Map<Long, Celda> celdas = new HashMap<>();
+    private final Map<Long, Punto> puntos = new HashMap<>();
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        List<DispositivoRaspberry> dispositivos =
+                dispositivoRepositorio.findByLatitudIsNotNullAndLongitudIsNotNullAndActivoTrue();
+        for (DispositivoRaspberry dispositivo : dispositivos) {
+            actualizar(dispositivo);
+        }
+        log.info("Índice geográfico cargado - Dispositivos: {} - Celdas: {}", puntos.size(), celdas.size());
+    }
+
+    /**
+     * Agrega, mueve o quita un dispositivo según sus coordenadas y si está activo
+     */
+    public void actualizar(DispositivoRaspberry dispositivo) {
+        if (!dispositivo.tieneCoordenadas() || !Boolean.TRUE.equals(dispositivo.getActivo())) {
+            eliminar(dispositivo.getIdDispositivo());
+            return;
+        }
+        double latitud = dispositivo.getLatitud();
+        double longitud = dispositivo.getLongitud();
+        Punto nuevo = new Punto(dispositivo.getIdDispositivo(), dispositivo.getNombre(),
+                latitud, longitud, celda(fila(latitud), columna(longitud)));
+
+        candado.writeLock().lock();
+        try {
+            quitar(puntos.put(nuevo.idDispositivo(), nuevo));
+            Celda celda = celdas.computeIfAbsent(nuevo.celda(), clave -> new Celda());
+            celda.puntos.add(nuevo);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long idDispositivo) {
+        if (idDispositivo == null) {
+            return;
+        }
+        candado.writeLock().lock();
+        try {
+            quitar(puntos.remove(idDispositivo));
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Dispositivos a menos de radioKm del punto, del más cercano al más lejano
+     */
+    public List<DispositivoCercano> buscarCercanos(double latitud, double longitud, double radioKm, int limite) {
+        validarCoordenadas(latitud, longitud);
+        if (radioKm <= 0) {
+            throw new IllegalArgumentException("El radio debe ser mayor que cero");
+        }
+
+        double deltaLatitud = radioKm / KM_POR_GRADO;
+        double coseno = Math.cos(Math.toRadians(latitud));
+        double deltaLongitud = coseno < 1e-6 ? 360 : Math.min(360, radioKm / (KM_POR_GRADO * coseno));
+
+        List<DispositivoCercano> resultado = new ArrayList<>();
+        candado.readLock().lock();
+        try {
+            recorrer(latitud - deltaLatitud, longitud - deltaLongitud,
+                    latitud + deltaLatitud, longitud + deltaLongitud, punto -> {
+                        double distancia = distanciaKm(latitud, longitud, punto.latitud(), punto.longitud());
+                        if (distancia <= radioKm) {
+                            resultado.add(new DispositivoCercano(punto.idDispositivo(), punto.nombre(),
+                                    punto.latitud(), punto.longitud(), distancia));
+                        }
+                    });
+        } finally {
+            candado.readLock().unlock();
+        }
+
+        resultado.sort(Comparator.comparingDouble(DispositivoCercano::distanciaKm));
+        return limite > 0 && resultado.size() > limite ? resultado.subList(0, limite) : resultado;
+    }
+
+    /**
+     * Dispositivos dentro del rectángulo (si longitudMin > longitudMax el área cruza el antimeridiano)
+     */
+    public List<UbicacionDispositivo> buscarEnArea(double latitudMin, double longitudMin,
+                                                   double latitudMax, double longitudMax) {
+        validarArea(latitudMin, longitudMin, latitudMax, longitudMax);
+        double longitudFin = longitudMax < longitudMin ? longitudMax + 360 : longitudMax;
+
+        List<UbicacionDispositivo> resultado = new ArrayList<>();
+        candado.readLock().lock();
+        try {
+            recorrer(latitudMin, longitudMin, latitudMax, longitudFin, punto -> {
+                if (dentro(punto, latitudMin, longitudMin, latitudMax, longitudMax)) {
+                    resultado.add(new UbicacionDispositivo(punto.idDispositivo(), punto.nombre(),
+                            punto.latitud(), punto.longitud()));
+                }
+            });
+        } finally {
+            candado.readLock().unlock();
+        }
+        return resultado;
+    }
+
+    /**
+     * Cantidad de dispositivos agrupados para un nivel de zoom del mapa (teselas web de 256 px).
+     * El índice limita las celdas a recorrer; cada punto se asigna al grupo que le corresponde.
+     */
+    public List<GrupoDispositivos> agrupar(double latitudMin, double longitudMin,
+                                          double latitudMax, double longitudMax, int zoom) {
+        validarArea(latitudMin, longitudMin, latitudMax, longitudMax);
+        if (zoom < 0 || zoom > 22) {
+            throw new IllegalArgumentException("El zoom debe estar entre 0 y 22");
+        }
+        double tamanoGrupo = 360.0 / (1L << zoom) / (256.0 / PIXELES_GRUPO);
+        double longitudFin = longitudMax < longitudMin ? longitudMax + 360 : longitudMax;
+
+        Map<Long, double[]> grupos = new HashMap<>();
+        candado.readLock().lock();
+        try {
+            recorrer(latitudMin, longitudMin, latitudMax, longitudFin, punto -> {
+                if (dentro(punto, latitudMin, longitudMin, latitudMax, longitudMax)) {
+                    acumular(grupos, tamanoGrupo, punto.latitud(), punto.longitud());
+                }
+            });
+        } finally {
+            candado.readLock().unlock();
+        }
+
+        List<GrupoDispositivos> resultado = new ArrayList<>(grupos.size());
+        for (double[] grupo : grupos.values()) {
+            int cantidad = (int) grupo[2];
+            resultado.add(new GrupoDispositivos(grupo[0] / cantidad, grupo[1] / cantidad, cantidad));
+        }
+        return resultado;
+    }
+
+    public int getCantidadDispositivos() {
+        candado.readLock().lock();
+        try {
+            return puntos.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // Métodos auxiliares
+
+    private void quitar(Punto punto) {
+        if (punto == null) {
+            return;
+        }
+        Celda celda = celdas.get(punto.celda());
+        if (celda == null) {
+            return;
+        }
+        celda.puntos.removeIf(existente -> existente.idDispositivo().equals(punto.idDispositivo()));
+        if (celda.puntos.isEmpty()) {
+            celdas.remove(punto.celda());
+        }
+    }
+
+    private void recorrer(double latitudMin, double longitudMin, double latitudMax, double longitudMax,
+                          Consumer<Punto> accion) {
+        recorrerCeldas(latitudMin, longitudMin, latitudMax, longitudMax, celda -> celda.puntos.forEach(accion));
+    }
+
+    /**
+     * Recorre las celdas ocupadas que intersectan el rectángulo. Si el rectángulo abarca más celdas
+     * de las que hay ocupadas, se recorren directamente las ocupadas.
+     */
+    private void recorrerCeldas(double latitudMin, double longitudMin, double latitudMax, double longitudMax,
+                                Consumer<Celda> accion) {
+        int columnas = columnas();
+        long filaInicio = fila(Math.max(-90, latitudMin));
+        long filaFin = fila(Math.min(90, latitudMax));
+        long columnaInicio = (long) Math.floor((longitudMin + 180) / tamanoCelda);
+        long columnaFin = (long) Math.floor((longitudMax + 180) / tamanoCelda);
+        long anchoColumnas = Math.min(columnas, columnaFin - columnaInicio + 1);
+
+        if ((filaFin - filaInicio + 1) * anchoColumnas > celdas.size()) {
+            for (Map.Entry<Long, Celda> entrada : celdas.entrySet()) {
+                long fila = entrada.getKey() / columnas;
+                long columna = entrada.getKey() % columnas;
+                if (fila >= filaInicio && fila <= filaFin
+                        && Math.floorMod(columna - columnaInicio, columnas) < anchoColumnas) {
+                    accion.accept(entrada.getValue());
+                }
+            }
+            return;
+        }
+
+        for (long fila = filaInicio; fila <= filaFin; fila++) {
+            for (long desplazamiento = 0; desplazamiento < anchoColumnas; desplazamiento++) {
+                long columna = Math.floorMod(columnaInicio + desplazamiento, columnas);
+                Celda celda = celdas.get(celda(fila, columna));
+                if (celda != null) {
+                    accion.accept(celda);
+                }
+            }
+        }
+    }
+
+    private static void acumular(Map<Long, double[]> grupos, double tamanoGrupo, double latitud, double longitud) {
+        long fila = (long) Math.floor((latitud + 90) / tamanoGrupo);
+        long columna = (long) Math.floor((longitud + 180) / tamanoGrupo);
+        double[] grupo = grupos.computeIfAbsent(fila * 1_000_000_000L + columna, clave -> new double[3]);
+        grupo[0] += latitud;
+        grupo[1] += longitud;
+        grupo[2]++;
+    }
+
+    private static boolean dentro(Punto punto, double latitudMin, double longitudMin,
+                                  double latitudMax, double longitudMax) {
+        if (punto.latitud() < latitudMin || punto.latitud() > latitudMax) {
+            return false;
+        }
+        return longitudMin <= longitudMax
+                ? punto.longitud() >= longitudMin && punto.longitud() <= longitudMax
+                : punto.longitud() >= longitudMin || punto.longitud() <= longitudMax;
+    }
+
+    private long fila(double latitud) {
+        long filas = (long) Math.ceil(180 / tamanoCelda);
+        return Math.min(filas - 1, (long) Math.floor((latitud + 90) / tamanoCelda));
+    }
+
+    private long columna(double longitud) {
+        return Math.floorMod((long) Math.floor((longitud + 180) / tamanoCelda), columnas());
+    }
+
+    private int columnas() {
+        return (int) Math.ceil(360 / tamanoCelda);
+    }
+
+    private long celda(long fila, long columna) {
+        return fila * columnas() + columna;
+    }
+
+    /**
+     * Distancia por la fórmula de haversine
+     */
+    private static double distanciaKm(double latitud1, double longitud1, double latitud2, double longitud2) {
+        double dLatitud = Math.toRadians(latitud2 - latitud1);
+        double dLongitud = Math.toRadians(longitud2 - longitud1);
+        double a = Math.sin(dLatitud / 2) * Math.sin(dLatitud / 2)
+                + Math.cos(Math.toRadians(latitud1)) * Math.cos(Math.toRadians(latitud2))
+                * Math.sin(dLongitud / 2) * Math.sin(dLongitud / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static void validarCoordenadas(double latitud, double longitud) {
+        if (latitud < -90 || latitud > 90 || longitud < -180 || longitud > 180) {
+            throw new IllegalArgumentException("Coordenadas fuera de rango");
+        }
+    }
+
+    private static void validarArea(double latitudMin, double longitudMin, double latitudMax, double longitudMax) {
+        validarCoordenadas(latitudMin, longitudMin);
+        validarCoordenadas(latitudMax, longitudMax);
+        if (latitudMin > latitudMax) {
+            throw new IllegalArgumentException("La latitud mínima no puede ser mayor que la máxima");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.innoad.dispositivos.servicio;
+
+import com.innoad.dispositivos.modelo.DispositivoRaspberry;
+import com.innoad.dispositivos.modelo.EstadoDispositivo;
+import com.innoad.dispositivos.repositorio.DispositivoRepositorio;
+import com.innoad.dispositivos.websocket.RegistroSesionesDispositivos;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.CloseStatus;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detecta en memoria los dispositivos que dejaron de enviar heartbeat, sin consultar periódicamente
+ * la base de datos (reemplaza el sondeo con findDispositivosSinHeartbeat).
+ * <p>
+ * Cada dispositivo tiene un plazo (último heartbeat + dispositivos.heartbeat.timeout-minutes).
+ * Los plazos se ordenan en una cola de prioridad con una sola entrada por dispositivo: un heartbeat
+ * sólo mueve el plazo y la entrada se reprograma cuando llega a la cabeza de la cola.
+ * La cola se revisa cada websocket.raspberry.heartbeat-interval, así que un dispositivo vencido se
+ * detecta a más tardar un intervalo después de su plazo, y los vencidos se guardan en un solo lote.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MonitorVidaDispositivos {
+
+    private static final int TAMANO_LOTE = 500;
+
+    private final DispositivoRepositorio dispositivoRepositorio;
+    private final RegistroSesionesDispositivos registroSesiones;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${dispositivos.heartbeat.timeout-minutes:2}")
+    private long minutosTimeout;
+
+    /**
+     * Dispositivo vigilado: plazo vigente en milisegundos epoch
+     */
+    private static final class Vigilado {
+        final Long idDispositivo;
+        volatile long plazo;
+
+        Vigilado(Long idDispositivo, long plazo) {
+            this.idDispositivo = idDispositivo;
+            this.plazo = plazo;
+        }
+    }
+
+    /**
+     * Entrada de la cola: plazo con el que se encoló (puede haber quedado atrás)
+     */
+    private record Entrada(long plazo, String macAddress) {
+    }
+
+    private final Map<String, Vigilado> vigilados = new ConcurrentHashMap<>();
+    private final PriorityQueue<Entrada> plazos = new PriorityQueue<>((a, b) -> Long.compare(a.plazo(), b.plazo()));
+
+    /**
+     * Renueva el plazo de un dispositivo al recibir su heartbeat
+     */
+    public void registrarHeartbeat(String macAddress, Long idDispositivo) {
+        long plazo = System.currentTimeMillis() + minutosTimeout * 60_000;
+        Vigilado vigilado = vigilados.get(macAddress);
+        if (vigilado != null) {
+            vigilado.plazo = plazo;
+            // Si la revisión lo quitó justo ahora, se vuelve a vigilar
+            if (vigilados.get(macAddress) == vigilado) {
+                return;
+            }
+        }
+        vigilar(macAddress, idDispositivo, plazo);
+    }
+
+    /**
+     * Al iniciar, vigila los dispositivos que figuran conectados: si no vuelven a enviar heartbeat
+     * dentro del timeout se marcan desconectados
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarDispositivosConectados() {
+        long plazo = System.currentTimeMillis() + minutosTimeout * 60_000;
+        List<DispositivoRaspberry> dispositivos =
+                dispositivoRepositorio.findByEstadoNotAndActivoTrue(EstadoDispositivo.DESCONECTADO);
+        for (DispositivoRaspberry dispositivo : dispositivos) {
+            String mac = RegistroSesionesDispositivos.normalizarMac(dispositivo.getMacAddress());
+            vigilados.computeIfAbsent(mac, clave -> {
+                synchronized (plazos) {
+                    plazos.add(new Entrada(plazo, clave));
+                }
+                return new Vigilado(dispositivo.getIdDispositivo(), plazo);
+            });
+        }
+        log.info("Monitor de heartbeat iniciado - Dispositivos vigilados: {}", dispositivos.size());
+    }
+
+    /**
+     * Retira de la cola los dispositivos con el plazo vencido y los marca desconectados
+     */
+    @Scheduled(fixedDelayString = "${websocket.raspberry.heartbeat-interval:30000}")
+    public void revisarPlazos() {
+        long ahora = System.currentTimeMillis();
+        List<String> vencidos = new ArrayList<>();
+
+        synchronized (plazos) {
+            while (!plazos.isEmpty() && plazos.peek().plazo() <= ahora) {
+                Entrada entrada = plazos.poll();
+                Vigilado vigilado = vigilados.get(entrada.macAddress());
+                if (vigilado == null) {
+                    continue;
+                }
+                if (vigilado.plazo > ahora) {
+                    // Llegaron heartbeats desde que se encoló: se reprograma con el plazo actual
+                    plazos.add(new Entrada(vigilado.plazo, entrada.macAddress()));
+                } else {
+                    vencidos.add(entrada.macAddress());
+                }
+            }
+        }
+
+        if (!vencidos.isEmpty()) {
+            marcarDesconectados(vencidos, ahora);
+        }
+    }
+
+    public int getCantidadVigilados() {
+        return vigilados.size();
+    }
+
+    // Métodos auxiliares
+
+    private void vigilar(String macAddress, Long idDispositivo, long plazo) {
+        Vigilado[] creado = new Vigilado[1];
+        Vigilado vigilado = vigilados.computeIfAbsent(macAddress, clave -> {
+            creado[0] = new Vigilado(idDispositivo, plazo);
+            return creado[0];
+        });
+        if (vigilado != creado[0]) {
+            vigilado.plazo = plazo;
+            return;
+        }
+        synchronized (plazos) {
+            plazos.add(new Entrada(plazo, macAddress));
+        }
+    }
+
+    private void marcarDesconectados(List<String> macs, long ahora) {
+        List<Long> ids = new ArrayList<>();
+        for (String mac : macs) {
+            // Un heartbeat pudo llegar después de la revisión: sólo se quita si sigue vencido
+            Vigilado vigilado = vigilados.get(mac);
+            if (vigilado == null || vigilado.plazo > ahora || !vigilados.remove(mac, vigilado)) {
+                continue;
+            }
+            ids.add(vigilado.idDispositivo);
+
+            // La conexión que sigue abierta sin enviar heartbeats se da por perdida
+            registroSesiones.obtener(mac).ifPresent(sesion -> {
+                sesion.getDispositivo().marcarDesconectado();
+                try {
+                    sesion.getSesion().close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException e) {
+                    log.debug("Error al cerrar sesión sin heartbeat - MAC: {}", mac);
+                }
+            });
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime fecha = LocalDateTime.now();
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            for (int inicio = 0; inicio < ids.size(); inicio += TAMANO_LOTE) {
+                List<Long> lote = ids.subList(inicio, Math.min(inicio + TAMANO_LOTE, ids.size()));
+                dispositivoRepositorio.marcarDesconectados(lote, fecha);
+            }
+        });
+        log.info("Dispositivos sin heartbeat marcados como desconectados: {}", ids.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.innoad.dispositivos.servicio;
+
+import com.innoad.dispositivos.repositorio.DispositivoRepositorio;
+import com.innoad.dispositivos.websocket.RegistroSesionesDispositivos;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Guarda por lotes los heartbeats recibidos por WebSocket: una sola sentencia UPDATE por cada
+ * 500 dispositivos y por intervalo de heartbeat, en lugar de una escritura por mensaje.
+ * El ultimo_heartbeat persistido puede atrasarse hasta un intervalo respecto al real en memoria.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServicioHeartbeatDispositivos {
+
+    private static final int TAMANO_LOTE = 500;
+
+    private final RegistroSesionesDispositivos registroSesiones;
+    private final DispositivoRepositorio dispositivoRepositorio;
+    private final PlatformTransactionManager transactionManager;
+
+    @Scheduled(fixedDelayString = "${websocket.raspberry.heartbeat-interval:30000}")
+    public void persistirHeartbeats() {
+        List<Long> ids = registroSesiones.tomarHeartbeatsPendientes();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            for (int inicio = 0; inicio < ids.size(); inicio += TAMANO_LOTE) {
+                List<Long> lote = ids.subList(inicio, Math.min(inicio + TAMANO_LOTE, ids.size()));
+                dispositivoRepositorio.registrarHeartbeats(lote, ahora);
+            }
+        });
+        log.debug("Heartbeats guardados: {}", ids.size());
+    }
+
+    @PreDestroy
+    public void alDetener() {
+        persistirHeartbeats();
+    }
+}
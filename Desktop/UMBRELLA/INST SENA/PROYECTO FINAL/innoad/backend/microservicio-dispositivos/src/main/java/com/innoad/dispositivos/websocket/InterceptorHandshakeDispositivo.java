@@ -0,0 +1,113 @@
+package com.innoad.dispositivos.websocket;
+
+import com.innoad.dispositivos.modelo.DispositivoRaspberry;
+import com.innoad.dispositivos.repositorio.DispositivoRepositorio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Identifica y autentica al dispositivo antes de aceptar la conexión WebSocket.
+ * La MAC llega en el parámetro mac o en el encabezado X-Dispositivo-MAC y debe corresponder
+ * a un dispositivo activo registrado. La MAC no es secreta: el dispositivo además envía su secreto
+ * en el encabezado X-Dispositivo-Secreto, que se compara con el hash guardado (secreto_hash).
+ * Sin secreto válido no se registra ni se reemplaza ninguna sesión.
+ * Si el servidor está lleno se rechaza sin abrir la sesión.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InterceptorHandshakeDispositivo implements HandshakeInterceptor {
+
+    public static final String ATRIBUTO_MAC = "macAddress";
+    public static final String ATRIBUTO_DISPOSITIVO = "dispositivo";
+
+    private static final String ENCABEZADO_MAC = "X-Dispositivo-MAC";
+    private static final String ENCABEZADO_SECRETO = "X-Dispositivo-Secreto";
+    private static final Pattern PATRON_MAC = Pattern.compile("^([0-9A-Fa-f]{2}[:-]){5}([0-9A-Fa-f]{2})$");
+
+    private final DispositivoRepositorio dispositivoRepositorio;
+    private final RegistroSesionesDispositivos registroSesiones;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String mac = request.getHeaders().getFirst(ENCABEZADO_MAC);
+        if (mac == null) {
+            mac = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("mac");
+        }
+        if (mac == null || !PATRON_MAC.matcher(mac.trim()).matches()) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+
+        String secreto = request.getHeaders().getFirst(ENCABEZADO_SECRETO);
+        if (secreto == null || secreto.isBlank()) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        if (!registroSesiones.hayCapacidad()) {
+            log.warn("Conexión rechazada por límite de sesiones - MAC: {}", mac);
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return false;
+        }
+
+        final String macRecibida = mac.trim();
+        String macNormalizada = RegistroSesionesDispositivos.normalizarMac(macRecibida);
+        Optional<DispositivoRaspberry> dispositivo = dispositivoRepositorio.findByMacAddress(macNormalizada)
+                .or(() -> dispositivoRepositorio.findByMacAddress(macRecibida));
+        if (dispositivo.isEmpty() || !Boolean.TRUE.equals(dispositivo.get().getActivo())) {
+            log.warn("Conexión rechazada, dispositivo no registrado o inactivo - MAC: {}", mac);
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+        if (!secretoValido(secreto, dispositivo.get().getSecretoHash())) {
+            log.warn("Conexión rechazada, secreto inválido o no configurado - MAC: {}", mac);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        attributes.put(ATRIBUTO_MAC, macNormalizada);
+        attributes.put(ATRIBUTO_DISPOSITIVO, dispositivo.get());
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Compara en tiempo constante el SHA-256 del secreto recibido con el guardado
+     */
+    private static boolean secretoValido(String secreto, String secretoHash) {
+        if (secretoHash == null || secretoHash.isBlank()) {
+            return false;
+        }
+        try {
+            byte[] recibido = MessageDigest.getInstance("SHA-256").digest(secreto.trim().getBytes(StandardCharsets.UTF_8));
+            byte[] esperado = HexFormat.of().parseHex(secretoHash.trim().toLowerCase());
+            return MessageDigest.isEqual(recibido, esperado);
+        } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+            log.warn("Hash de secreto inválido: {}", e.getMessage());
+            return false;
+        }
+    }
+}
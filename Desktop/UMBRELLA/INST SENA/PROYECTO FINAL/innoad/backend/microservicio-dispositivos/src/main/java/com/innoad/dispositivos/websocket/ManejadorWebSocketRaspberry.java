@@ -0,0 +1,183 @@
+package com.innoad.dispositivos.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innoad.dispositivos.modelo.DispositivoRaspberry;
+import com.innoad.dispositivos.servicio.MonitorVidaDispositivos;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Pasarela WebSocket de los dispositivos Raspberry Pi.
+ * <p>
+ * Protocolo (mensajes de texto JSON con campo "tipo"):
+ * <ul>
+ *   <li>Servidor → dispositivo al conectar: {"tipo":"BIENVENIDA","intervaloHeartbeat":ms}</li>
+ *   <li>Dispositivo → servidor: {"tipo":"HEARTBEAT"} cada intervaloHeartbeat</li>
+ *   <li>Servidor → dispositivo: PING de control cada intervaloHeartbeat; el PONG también cuenta como heartbeat</li>
+ * </ul>
+ * Los mensajes que superan websocket.raspberry.message-size-limit cierran la sesión (lo aplica el contenedor).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ManejadorWebSocketRaspberry extends TextWebSocketHandler {
+
+    /**
+     * Tiempo máximo que un envío puede quedar bloqueado por un dispositivo lento antes de cerrar su sesión
+     */
+    private static final int LIMITE_TIEMPO_ENVIO_MS = 10_000;
+
+    private final RegistroSesionesDispositivos registroSesiones;
+    private final MonitorVidaDispositivos monitorVida;
+    private final ObjectMapper objectMapper;
+
+    @Value("${websocket.raspberry.heartbeat-interval:30000}")
+    private long intervaloHeartbeat;
+
+    @Value("${websocket.raspberry.message-size-limit:65536}")
+    private int limiteMensaje;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String mac = (String) session.getAttributes().get(InterceptorHandshakeDispositivo.ATRIBUTO_MAC);
+        DispositivoRaspberry dispositivo =
+                (DispositivoRaspberry) session.getAttributes().get(InterceptorHandshakeDispositivo.ATRIBUTO_DISPOSITIVO);
+
+        // Los envíos desde otros hilos se serializan y no bloquean más allá del límite
+        WebSocketSession concurrente =
+                new ConcurrentWebSocketSessionDecorator(session, LIMITE_TIEMPO_ENVIO_MS, limiteMensaje);
+        SesionDispositivo sesion = new SesionDispositivo(mac, dispositivo, concurrente);
+
+        SesionDispositivo anterior;
+        try {
+            anterior = registroSesiones.registrar(sesion);
+        } catch (IllegalStateException e) {
+            log.warn("Sesión rechazada - MAC: {} - {}", mac, e.getMessage());
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+            return;
+        }
+        if (anterior != null) {
+            cerrar(anterior, CloseStatus.NORMAL.withReason("Sesión reemplazada"));
+        }
+
+        latido(sesion);
+        enviar(sesion, Map.of("tipo", "BIENVENIDA", "intervaloHeartbeat", intervaloHeartbeat));
+        log.info("Dispositivo conectado - MAC: {} - Sesiones: {}", mac, registroSesiones.getCantidadSesiones());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        SesionDispositivo sesion = sesionDe(session);
+        if (sesion == null) {
+            return;
+        }
+
+        JsonNode mensaje;
+        try {
+            mensaje = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            log.debug("Mensaje inválido - MAC: {}", sesion.getMacAddress());
+            return;
+        }
+
+        String tipo = mensaje.path("tipo").asText();
+        if ("HEARTBEAT".equals(tipo)) {
+            latido(sesion);
+        } else {
+            log.debug("Mensaje no soportado - MAC: {} - Tipo: {}", sesion.getMacAddress(), tipo);
+        }
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        SesionDispositivo sesion = sesionDe(session);
+        if (sesion != null) {
+            latido(sesion);
+        }
+    }
+
+    /**
+     * Envía un PING a cada sesión abierta; los clientes responden con PONG sin lógica propia
+     */
+    @Scheduled(fixedDelayString = "${websocket.raspberry.heartbeat-interval:30000}")
+    public void enviarPings() {
+        for (SesionDispositivo sesion : registroSesiones.getSesiones()) {
+            if (!sesion.getSesion().isOpen()) {
+                continue;
+            }
+            try {
+                sesion.getSesion().sendMessage(new PingMessage(ByteBuffer.allocate(0)));
+            } catch (IOException | RuntimeException e) {
+                // El decorador cierra la sesión si el dispositivo no consume lo que se le envía
+                log.debug("No se pudo enviar PING - MAC: {} - {}", sesion.getMacAddress(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        log.debug("Error de transporte - Sesión: {} - {}", session.getId(), exception.getMessage());
+        if (session.isOpen()) {
+            session.close(CloseStatus.SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String mac = (String) session.getAttributes().get(InterceptorHandshakeDispositivo.ATRIBUTO_MAC);
+        registroSesiones.eliminar(mac, session.getId()).ifPresent(sesion ->
+                log.info("Dispositivo desconectado - MAC: {} - Código: {} - Sesiones: {}",
+                        mac, status.getCode(), registroSesiones.getCantidadSesiones()));
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Heartbeat: se aplica en memoria y renueva el plazo del dispositivo
+     */
+    private void latido(SesionDispositivo sesion) {
+        registroSesiones.registrarHeartbeat(sesion);
+        monitorVida.registrarHeartbeat(sesion.getMacAddress(), sesion.getIdDispositivo());
+    }
+
+    /**
+     * Sesión registrada que corresponde a esta conexión (null si fue reemplazada)
+     */
+    private SesionDispositivo sesionDe(WebSocketSession session) {
+        String mac = (String) session.getAttributes().get(InterceptorHandshakeDispositivo.ATRIBUTO_MAC);
+        return registroSesiones.obtener(mac)
+                .filter(sesion -> sesion.getSesion().getId().equals(session.getId()))
+                .orElse(null);
+    }
+
+    private void enviar(SesionDispositivo sesion, Object mensaje) {
+        try {
+            sesion.getSesion().sendMessage(new TextMessage(objectMapper.writeValueAsString(mensaje)));
+        } catch (IOException e) {
+            log.debug("No se pudo enviar mensaje - MAC: {} - {}", sesion.getMacAddress(), e.getMessage());
+        }
+    }
+
+    private static void cerrar(SesionDispositivo sesion, CloseStatus estado) {
+        try {
+            sesion.getSesion().close(estado);
+        } catch (IOException e) {
+            log.debug("Error al cerrar sesión - MAC: {}", sesion.getMacAddress());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.innoad.dispositivos.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro de las conexiones WebSocket abiertas, indexado por dirección MAC.
+ * Un dispositivo tiene a lo sumo una sesión: si se reconecta, la nueva reemplaza a la anterior.
+ * El total de sesiones se limita a websocket.raspberry.max-sessions.
+ */
+@Component
+@Slf4j
+public class RegistroSesionesDispositivos {
+
+    private final Map<String, SesionDispositivo> sesiones = new ConcurrentHashMap<>();
+    private final AtomicInteger activas = new AtomicInteger();
+
+    /**
+     * Dispositivos con heartbeats aún no guardados en la base de datos
+     */
+    private final Set<Long> heartbeatsPendientes = ConcurrentHashMap.newKeySet();
+
+    @Value("${websocket.raspberry.max-sessions:1000}")
+    private int maxSesiones;
+
+    /**
+     * Registra la sesión de un dispositivo
+     *
+     * @return la sesión anterior del mismo dispositivo, que debe cerrarse (null si no había)
+     * @throws IllegalStateException si se alcanzó el máximo de sesiones
+     */
+    public SesionDispositivo registrar(SesionDispositivo nueva) {
+        SesionDispositivo[] reemplazada = new SesionDispositivo[1];
+        sesiones.compute(nueva.getMacAddress(), (mac, actual) -> {
+            if (actual == null) {
+                if (activas.incrementAndGet() > maxSesiones) {
+                    activas.decrementAndGet();
+                    throw new IllegalStateException("Se alcanzó el máximo de " + maxSesiones + " sesiones");
+                }
+            } else {
+                reemplazada[0] = actual;
+            }
+            return nueva;
+        });
+        return reemplazada[0];
+    }
+
+    /**
+     * Quita la sesión indicada (si no fue reemplazada ya por una más reciente)
+     *
+     * @return la sesión eliminada, o vacío si ya no estaba registrada
+     */
+    public Optional<SesionDispositivo> eliminar(String macAddress, String idSesion) {
+        SesionDispositivo[] eliminada = new SesionDispositivo[1];
+        sesiones.computeIfPresent(macAddress, (mac, actual) -> {
+            if (!actual.getSesion().getId().equals(idSesion)) {
+                return actual;
+            }
+            eliminada[0] = actual;
+            return null;
+        });
+        if (eliminada[0] != null) {
+            activas.decrementAndGet();
+        }
+        return Optional.ofNullable(eliminada[0]);
+    }
+
+    public Optional<SesionDispositivo> obtener(String macAddress) {
+        return Optional.ofNullable(sesiones.get(normalizarMac(macAddress)));
+    }
+
+    /**
+     * Aplica un heartbeat en memoria; se persiste en el siguiente lote
+     */
+    public void registrarHeartbeat(SesionDispositivo sesion) {
+        sesion.registrarHeartbeat();
+        heartbeatsPendientes.add(sesion.getIdDispositivo());
+    }
+
+    /**
+     * Retira los dispositivos con heartbeats pendientes de guardar
+     */
+    public List<Long> tomarHeartbeatsPendientes() {
+        List<Long> ids = new ArrayList<>();
+        for (Long id : heartbeatsPendientes) {
+            if (heartbeatsPendientes.remove(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Sesiones registradas (vista en vivo, para recorrerlas sin copiar)
+     */
+    public Collection<SesionDispositivo> getSesiones() {
+        return sesiones.values();
+    }
+
+    public boolean hayCapacidad() {
+        return activas.get() < maxSesiones;
+    }
+
+    public int getCantidadSesiones() {
+        return activas.get();
+    }
+
+    /**
+     * Forma canónica de una MAC: mayúsculas separadas por dos puntos
+     */
+    public static String normalizarMac(String macAddress) {
+        return macAddress == null ? null : macAddress.trim().toUpperCase().replace('-', ':');
+    }
+}
@@ -0,0 +1,42 @@
+package com.innoad.dispositivos.websocket;
+
+import com.innoad.dispositivos.modelo.DispositivoRaspberry;
+import lombok.Getter;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.LocalDateTime;
+
+/**
+ * Conexión WebSocket abierta de un dispositivo Raspberry Pi.
+ * Guarda una copia en memoria del dispositivo (cargada al conectarse) sobre la que se aplican
+ * los heartbeats; la base de datos se actualiza por lotes.
+ */
+@Getter
+public class SesionDispositivo {
+
+    private final String macAddress;
+    private final DispositivoRaspberry dispositivo;
+    private final WebSocketSession sesion;
+    private final LocalDateTime conectadaDesde = LocalDateTime.now();
+
+    public SesionDispositivo(String macAddress, DispositivoRaspberry dispositivo, WebSocketSession sesion) {
+        this.macAddress = macAddress;
+        this.dispositivo = dispositivo;
+        this.sesion = sesion;
+    }
+
+    public Long getIdDispositivo() {
+        return dispositivo.getIdDispositivo();
+    }
+
+    /**
+     * Aplica un heartbeat sobre la copia en memoria del dispositivo
+     */
+    public synchronized void registrarHeartbeat() {
+        dispositivo.actualizarHeartbeat();
+    }
+
+    public synchronized LocalDateTime getUltimoHeartbeat() {
+        return dispositivo.getUltimoHeartbeat();
+    }
+}
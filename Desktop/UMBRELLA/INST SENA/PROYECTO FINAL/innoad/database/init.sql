@@ -174,6 +174,8 @@ CREATE TABLE IF NOT EXISTS dispositivos_raspberry (
   ip_address VARCHAR(45),
   ubicacion VARCHAR(200) NOT NULL,
   descripcion TEXT,
+  latitud DOUBLE NULL,
+  longitud DOUBLE NULL,
   estado ENUM('conectado','desconectado','error','mantenimiento','reproduciendo') DEFAULT 'desconectado',
   ultimo_heartbeat DATETIME,
   fecha_registro DATETIME DEFAULT CURRENT_TIMESTAMP,
@@ -183,6 +185,7 @@ CREATE TABLE IF NOT EXISTS dispositivos_raspberry (
   volumen_audio INT DEFAULT 50,
   brillo_pantalla INT DEFAULT 80,
   activo BOOLEAN DEFAULT TRUE,
+  secreto_hash VARCHAR(64),
   propietario_id INT UNSIGNED NOT NULL,
   created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
   updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
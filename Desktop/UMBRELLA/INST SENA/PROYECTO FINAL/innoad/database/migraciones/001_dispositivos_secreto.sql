@@ -0,0 +1,11 @@
+-- InnoAd - Migración 001
+-- Secreto de conexión de los dispositivos Raspberry Pi (microservicio-dispositivos).
+-- El WebSocket exige el encabezado X-Dispositivo-Secreto; se guarda solo su SHA-256 en hexadecimal.
+
+USE innoad;
+
+ALTER TABLE dispositivos_raspberry
+  ADD COLUMN secreto_hash VARCHAR(64) NULL AFTER activo;
+
+-- Asignar el secreto de cada dispositivo (el mismo valor se configura en INNOAD_DEVICE_SECRET del cliente):
+-- UPDATE dispositivos_raspberry SET secreto_hash = SHA2('<secreto>', 256) WHERE mac_address = 'AA:BB:CC:DD:EE:FF';
@@ -0,0 +1,8 @@
+-- InnoAd - Migración 002
+-- Coordenadas de los dispositivos Raspberry Pi para el índice geográfico (microservicio-dispositivos).
+
+USE innoad;
+
+ALTER TABLE dispositivos_raspberry
+  ADD COLUMN latitud DOUBLE NULL AFTER descripcion,
+  ADD COLUMN longitud DOUBLE NULL AFTER latitud;
@@ -57,6 +57,9 @@ except:
 
 DEVICE_ID = MAC_ADDRESS.replace(':', '')
 
+# Secreto del dispositivo para autenticar el WebSocket (su SHA-256 se registra en el servidor)
+SECRETO_DISPOSITIVO = os.getenv('INNOAD_DEVICE_SECRET', '')
+
 # Crear directorios necesarios
 for directorio in [DIRECTORIO_CONTENIDO, DIRECTORIO_LOGS, DIRECTORIO_CONFIG]:
     directorio.mkdir(parents=True, exist_ok=True)
@@ -117,6 +120,8 @@ class ClienteInnoAdRaspberry:
         """
         try:
             headers = {
+                'X-Dispositivo-MAC': MAC_ADDRESS,
+                'X-Dispositivo-Secreto': SECRETO_DISPOSITIVO,
                 'mac_address': MAC_ADDRESS,
                 'device_type': 'raspberry_pi',
                 'software_version': '1.0.0',